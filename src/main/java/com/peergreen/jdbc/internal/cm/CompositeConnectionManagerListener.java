@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+import com.peergreen.jdbc.listener.ConnectionManagerListener;
+
+import javax.transaction.Transaction;
+import java.util.Arrays;
+
+/**
+ * Dispatches the connection manager events to several listeners.
+ * The listeners array is copied on write, notifications iterate it without lock nor allocation:
+ * without listener, a notification is an empty loop.
+ */
+public class CompositeConnectionManagerListener implements ConnectionManagerListener {
+
+    private static final ConnectionManagerListener[] NONE = new ConnectionManagerListener[0];
+
+    private volatile ConnectionManagerListener[] listeners = NONE;
+
+    public synchronized void addListener(final ConnectionManagerListener listener) {
+        ConnectionManagerListener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+        copy[listeners.length] = listener;
+        listeners = copy;
+    }
+
+    public synchronized void removeListener(final ConnectionManagerListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ConnectionManagerListener[] copy = new ConnectionManagerListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, copy, 0, i);
+                System.arraycopy(listeners, i + 1, copy, i, copy.length - i);
+                listeners = copy;
+                return;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    @Override
+    public void connectionEnlisted(final Transaction transaction) {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionEnlisted(transaction);
+        }
+    }
+
+    @Override
+    public void connectionEnlistmentError() {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionEnlistmentError();
+        }
+    }
+
+    @Override
+    public void connectionDelisted(final Transaction transaction) {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionDelisted(transaction);
+        }
+    }
+
+    @Override
+    public void connectionServed() {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionServed();
+        }
+    }
+
+    @Override
+    public void connectionReusedInSameTransaction(final Transaction transaction) {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionReusedInSameTransaction(transaction);
+        }
+    }
+
+    @Override
+    public void connectionFreedAfterTransactionCompletion(final Transaction transaction,
+                                                         final int reuses,
+                                                         final long heldTime,
+                                                         final long idleHeldTime) {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionFreedAfterTransactionCompletion(transaction, reuses, heldTime, idleHeldTime);
+        }
+    }
+
+    @Override
+    public void connectionReleased(final Transaction transaction, final long heldTime, final long jdbcTime) {
+        for (ConnectionManagerListener listener : listeners) {
+            listener.connectionReleased(transaction, heldTime, jdbcTime);
+        }
+    }
+}
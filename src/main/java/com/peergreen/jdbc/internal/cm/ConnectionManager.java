@@ -11,9 +11,12 @@
 
 package com.peergreen.jdbc.internal.cm;
 
+import com.peergreen.jdbc.internal.cm.event.EventRecorder;
+import com.peergreen.jdbc.internal.cm.event.EventType;
 import com.peergreen.jdbc.internal.cm.pool.Pool;
 import com.peergreen.jdbc.internal.cm.pool.internal.UsernamePasswordInfo;
 import com.peergreen.jdbc.internal.log.Log;
+import com.peergreen.jdbc.listener.ConnectionManagerListener;
 
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
@@ -55,7 +58,7 @@ public class ConnectionManager implements ConnectionEventListener {
      * This HashMap gives the IManagedConnection from its transaction Requests
      * with same tx get always the same connection.
      */
-    private Map<Transaction, IManagedConnection> transactions = new HashMap<>();
+    private Map<Transaction, TransactionAssociation> transactions = new HashMap<>();
 
     /**
      * Number of getConnection() served.
@@ -77,6 +80,11 @@ public class ConnectionManager implements ConnectionEventListener {
      */
     private ConnectionManagerListener listener = new EmptyConnectionManagerListener();
 
+    /**
+     * Records the connections served to the application (disabled by default).
+     */
+    private EventRecorder eventRecorder = new EventRecorder();
+
     /**
      * Constructor for ObjectFactory.
      */
@@ -95,6 +103,10 @@ public class ConnectionManager implements ConnectionEventListener {
         this.listener = listener;
     }
 
+    public void setEventRecorder(final EventRecorder eventRecorder) {
+        this.eventRecorder = eventRecorder;
+    }
+
     /**
      * @return sampling period in sec.
      */
@@ -144,6 +156,9 @@ public class ConnectionManager implements ConnectionEventListener {
     }
 
     private Connection getConnection(final UsernamePasswordInfo info) throws SQLException {
+        // Only measured when recorded
+        boolean recorded = eventRecorder.isEnabled(EventType.CONNECTION_ACQUIRED);
+        long start = recorded ? System.nanoTime() : 0;
         IManagedConnection mc = null;
 
         // Get the current Transaction
@@ -188,6 +203,9 @@ public class ConnectionManager implements ConnectionEventListener {
         }
 
         listener.connectionServed();
+        if (recorded) {
+            eventRecorder.record(EventType.CONNECTION_ACQUIRED, mc.getIdentifier(), System.nanoTime() - start, null);
+        }
         // return a Connection object
         return ret;
     }
@@ -207,9 +225,11 @@ public class ConnectionManager implements ConnectionEventListener {
         // If a Connection exists already for this transaction, just return it.
         // If no transaction, never reuse a connection already used.
         if (transaction != null) {
-            mc = this.transactions.get(transaction);
-            if (mc != null) {
+            TransactionAssociation association = this.transactions.get(transaction);
+            if (association != null) {
                 logger.fine("Reuse a Connection for same transaction");
+                mc = association.connection;
+                association.reuses++;
                 mc.hold();
                 this.servedOpen++;
                 listener.connectionReusedInSameTransaction(transaction);
@@ -230,7 +250,7 @@ public class ConnectionManager implements ConnectionEventListener {
             // register synchronization
             try {
                 transaction.registerSynchronization(new TransactionSynchronization(transaction));
-                this.transactions.put(transaction, mc); // only if registerSynchronization was OK.
+                this.transactions.put(transaction, new TransactionAssociation(mc)); // only if registerSynchronization was OK.
             } catch (javax.transaction.RollbackException e) {
                 // / optimization is probably possible at this point
                 logger.warn("Pool mc registered, but transaction is rollback only", e);
@@ -290,12 +310,17 @@ public class ConnectionManager implements ConnectionEventListener {
      */
     public synchronized void freeConnections(final Transaction tx) {
         logger.fine("free connection for Tx = %s", tx);
-        listener.connectionFreedAfterTransactionCompletion(tx);
-        IManagedConnection mc = this.transactions.remove(tx);
-        if (mc == null) {
+        TransactionAssociation association = this.transactions.remove(tx);
+        if (association == null) {
+            listener.connectionFreedAfterTransactionCompletion(tx, 0, 0, 0);
             logger.error("pool: no connection found to free for Tx = %s", tx);
             return;
         }
+        listener.connectionFreedAfterTransactionCompletion(tx,
+                                                           association.reuses,
+                                                           association.heldTime,
+                                                           association.idleHeldTime);
+        IManagedConnection mc = association.connection;
         mc.setTransaction(null);
         if (mc.isOpen()) {
             // Connection not yet closed (but committed).
@@ -324,6 +349,12 @@ public class ConnectionManager implements ConnectionEventListener {
         if (!mc.release()) {
             return false;
         }
+        if (mc.isClosed()) {
+            long held = mc.getHeldTime();
+            long jdbc = mc.getJdbcTime();
+            listener.connectionReleased(mc.getTransaction(), held, jdbc);
+            heldInTransaction(mc.getTransaction(), held, jdbc);
+        }
         if (mc.getTransaction() != null) {
             logger.fine("keep connection for same transaction");
         } else {
@@ -348,6 +379,23 @@ public class ConnectionManager implements ConnectionEventListener {
         return true;
     }
 
+    /**
+     * Adds the time a connection has been held to its transaction, reported when the transaction completes.
+     * @param transaction transaction the connection is kept for, null if none
+     * @param held time since the application got the connection, in nanoseconds
+     * @param jdbc part of the held time spent executing statements, in nanoseconds
+     */
+    private synchronized void heldInTransaction(final Transaction transaction, final long held, final long jdbc) {
+        if (transaction == null) {
+            return;
+        }
+        TransactionAssociation association = this.transactions.get(transaction);
+        if (association != null) {
+            association.heldTime += held;
+            association.idleHeldTime += Math.max(held - jdbc, 0);
+        }
+    }
+
     private class TransactionSynchronization implements Synchronization {
         private final Transaction transaction;
 
@@ -365,4 +413,30 @@ public class ConnectionManager implements ConnectionEventListener {
             freeConnections(transaction);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Connection used by a transaction, guarded by the manager.
+     */
+    private static class TransactionAssociation {
+        private final IManagedConnection connection;
+
+        /**
+         * Number of times the connection has been served again in the transaction.
+         */
+        private int reuses = 0;
+
+        /**
+         * Time the connection has been held by the application in the transaction, in nanoseconds.
+         */
+        private long heldTime = 0;
+
+        /**
+         * Part of the held time spent without executing statements, in nanoseconds.
+         */
+        private long idleHeldTime = 0;
+
+        public TransactionAssociation(final IManagedConnection connection) {
+            this.connection = connection;
+        }
+    }
+}
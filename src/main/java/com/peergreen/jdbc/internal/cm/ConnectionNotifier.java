@@ -11,7 +11,11 @@
 
 package com.peergreen.jdbc.internal.cm;
 
+import com.peergreen.jdbc.internal.cm.event.SlowQueryLog;
+
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * User: guillaume
@@ -31,4 +35,85 @@ public interface ConnectionNotifier {
     void notifyError(SQLException ex);
 
     void notifyPsClose(IPreparedStatement preparedStatement);
+
+    /**
+     * Notify a statement execution.
+     * @param sql normalized SQL of the statement
+     * @param elapsed execution time in nanoseconds
+     * @param updatedRows number of updated rows (0 for queries)
+     */
+    void notifyStatementExecuted(String sql, long elapsed, long updatedRows);
+
+    /**
+     * Notify a statement execution failure.
+     * @param sql normalized SQL of the statement
+     * @param elapsed time before failure in nanoseconds
+     */
+    void notifyStatementFailed(String sql, long elapsed);
+
+    /**
+     * @return true if the connection takes part in a transaction (global, or local with auto-commit disabled):
+     *         the results of its queries may include uncommitted changes and must not go through the result cache
+     */
+    boolean isInTransaction();
+
+    /**
+     * Notify an update executed inside a transaction: the cached results it impacts are invalidated again
+     * when the transaction completes, as they may have been read by other connections in the meantime.
+     * @param sql SQL of the update
+     */
+    void notifyTransactionalUpdate(String sql);
+
+    /**
+     * @param elapsed execution time in nanoseconds
+     * @return true if an execution that long has to be reported with {@link #notifySlowStatement}
+     */
+    boolean isSlow(long elapsed);
+
+    /**
+     * Read on each use, as the slow query log may be reconfigured while statements are cached.
+     * @return what the slow query log reports of the bound parameters ({@code NONE} when the log is disabled)
+     */
+    SlowQueryLog.Parameters getSlowParameters();
+
+    /**
+     * Notify an execution longer than the slow query threshold (succeeded or not).
+     * @param sql SQL of the statement, as given by the application
+     * @param elapsed execution time in nanoseconds
+     * @param parameters summary of the bound parameters, null if not recorded
+     */
+    void notifySlowStatement(String sql, long elapsed, String parameters);
+
+    /**
+     * Notify the number of rows fetched from the result of a query (when the result set is closed).
+     * @param sql normalized SQL of the query
+     * @param rows number of fetched rows
+     */
+    void notifyRowsFetched(String sql, long rows);
+
+    /**
+     * Notify that a statement not kept in the statement cache has been opened.
+     * It will be closed when the connection is released if the application does not close it.
+     * @param statement opened statement
+     */
+    void notifyStatementOpened(Statement statement);
+
+    /**
+     * Notify that a statement not kept in the statement cache has been closed.
+     * @param statement closed statement
+     */
+    void notifyStatementClosed(Statement statement);
+
+    /**
+     * Notify that a result set has been opened.
+     * It will be closed when the connection is released if the application does not close it.
+     * @param resultSet opened result set
+     */
+    void notifyResultSetOpened(ResultSet resultSet);
+
+    /**
+     * Notify that a result set has been closed.
+     * @param resultSet closed result set
+     */
+    void notifyResultSetClosed(ResultSet resultSet);
 }
@@ -11,6 +11,8 @@
 
 package com.peergreen.jdbc.internal.cm;
 
+import com.peergreen.jdbc.listener.ConnectionManagerListener;
+
 import javax.transaction.Transaction;
 
 /**
@@ -45,7 +47,15 @@ public class EmptyConnectionManagerListener implements ConnectionManagerListener
     }
 
     @Override
-    public void connectionFreedAfterTransactionCompletion(final Transaction transaction) {
+    public void connectionFreedAfterTransactionCompletion(final Transaction transaction,
+                                                         final int reuses,
+                                                         final long heldTime,
+                                                         final long idleHeldTime) {
+
+    }
+
+    @Override
+    public void connectionReleased(final Transaction transaction, final long heldTime, final long jdbcTime) {
 
     }
 }
@@ -11,18 +11,12 @@
 
 package com.peergreen.jdbc.internal.cm;
 
-import javax.transaction.Transaction;
-
 /**
- * User: guillaume
- * Date: 24/10/13
- * Time: 11:44
+ * Default no-op {@link ResourceListener}.
  */
-public interface ConnectionManagerListener {
-    void connectionEnlisted(Transaction transaction);
-    void connectionEnlistmentError();
-    void connectionDelisted(Transaction transaction);
-    void connectionServed();
-    void connectionReusedInSameTransaction(Transaction transaction);
-    void connectionFreedAfterTransactionCompletion(Transaction transaction);
+public class EmptyResourceListener implements ResourceListener {
+    @Override
+    public void resourcesAutoClosed(final int statements, final int resultSets) {
+
+    }
 }
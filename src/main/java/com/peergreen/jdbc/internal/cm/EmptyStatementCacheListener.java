@@ -0,0 +1,32 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+/**
+ * Default no-op {@link StatementCacheListener}.
+ */
+public class EmptyStatementCacheListener implements StatementCacheListener {
+    @Override
+    public void statementCacheHit(final StatementKey.Kind kind) {
+
+    }
+
+    @Override
+    public void statementCacheMiss(final StatementKey.Kind kind) {
+
+    }
+
+    @Override
+    public void statementCacheBusy(final StatementKey.Kind kind) {
+
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+/**
+ * Default no-op {@link StatementListener}.
+ */
+public class EmptyStatementListener implements StatementListener {
+    @Override
+    public void statementExecuted(final String sql, final long elapsed, final long updatedRows) {
+
+    }
+
+    @Override
+    public void statementFailed(final String sql, final long elapsed) {
+
+    }
+
+    @Override
+    public void rowsFetched(final String sql, final long rows) {
+
+    }
+}
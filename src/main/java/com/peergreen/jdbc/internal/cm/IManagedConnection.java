@@ -11,11 +11,15 @@
 
 package com.peergreen.jdbc.internal.cm;
 
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+
 import javax.sql.XAConnection;
 import javax.transaction.Transaction;
 import javax.transaction.xa.XAResource;
+import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Specify all interface that are used by the Managed Connection.
@@ -43,6 +47,22 @@ public interface IManagedConnection extends Comparable<IManagedConnection>,
      */
     int getOpenCount();
 
+    /**
+     * @return creation time of the physical connection, in milliseconds
+     */
+    long getCreationTime();
+
+    /**
+     * @return nanoseconds since the connection was first held by the application
+     *         (the connection is held until the open count drops to 0)
+     */
+    long getHeldTime();
+
+    /**
+     * @return nanoseconds spent executing statements since the connection was first held
+     */
+    long getJdbcTime();
+
     /**
      * @return the Transaction
      */
@@ -106,9 +126,80 @@ public interface IManagedConnection extends Comparable<IManagedConnection>,
      */
     PreparedStatement prepareStatement(final String sql) throws SQLException;
 
+    /**
+     * Try to find a PreparedStatement in the pool.
+     * @param key the given sql query and preparation options.
+     * @throws SQLException if an error in the database occurs.
+     * @return a given prepared statement.
+     */
+    PreparedStatement prepareStatement(final StatementKey key) throws SQLException;
+
+    /**
+     * Try to find a CallableStatement in the pool.
+     * @param key the given sql query and preparation options.
+     * @throws SQLException if an error in the database occurs.
+     * @return a given callable statement.
+     */
+    CallableStatement prepareCall(final StatementKey key) throws SQLException;
+
+    /**
+     * Prepare the given statements in the statement cache, before the connection is used.
+     * @param keys statements to prepare, the most important first
+     * @param timeout maximum time spent preparing statements, in milliseconds
+     * @return the number of prepared statements
+     */
+    int warmUp(final List<StatementKey> keys, final long timeout);
+
+    /**
+     * The warm up of this new connection has prepared its statements.
+     */
+    void notifyWarmedUp();
+
+    /**
+     * @return true if the statements of this connection have been prepared by the warm up
+     */
+    boolean isWarmedUp();
+
+    /**
+     * @return number of statements in the statement cache (used or idle).
+     */
+    int getCachedStatements();
+
+    /**
+     * @param streamable true for forward only, read only statements
+     * @return fetch size given to the new statements, 0 for the driver's default
+     */
+    int getDefaultFetchSize(final boolean streamable);
+
+    /**
+     * @return query result cache of the DataSource, null if disabled
+     */
+    QueryResultCache getResultCache();
+
     /**
      * @return the connection handle
      */
     ConnectionProxy getConnectionProxy();
 
+    /**
+     * The local transaction of the connection has been committed or rolled back.
+     */
+    void notifyTransactionCompleted();
+
+    /**
+     * The physical connection has been handed out to the application through {@code unwrap()}.
+     */
+    void notifyUnwrapped();
+
+    /**
+     * The connection returns to the free list, the next borrower has not unwrapped it (yet).
+     */
+    void clearUnwrapped();
+
+    /**
+     * @return true if the physical connection, handed out through {@code unwrap()}, has been closed
+     *         by the application: it cannot return to the pool
+     */
+    boolean isClosedByApplication();
+
 }
\ No newline at end of file
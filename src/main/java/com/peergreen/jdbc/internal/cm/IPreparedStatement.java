@@ -44,4 +44,15 @@ public interface IPreparedStatement extends PreparedStatement {
     boolean forceClose();
 
     String getSql();
+
+    /**
+     * @return identity of this statement in the statement cache (SQL and preparation options).
+     */
+    StatementKey getKey();
+
+    /**
+     * @return true if the physical statement has been handed out through {@code unwrap()}: its vendor
+     *         specific state is unknown, it is not reused
+     */
+    boolean isUnwrapped();
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+/**
+ * Notified of the statements and result sets left opened by the application,
+ * closed when their connection was released.
+ */
+public interface ResourceListener {
+    /**
+     * @param statements number of statements closed on behalf of the application
+     * @param resultSets number of result sets closed on behalf of the application
+     */
+    void resourcesAutoClosed(int statements, int resultSets);
+}
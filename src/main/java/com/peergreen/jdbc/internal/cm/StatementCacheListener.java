@@ -0,0 +1,22 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+/**
+ * Notified of the prepared statements cache activity of the managed connections.
+ * A busy lookup found the statement in the cache but all its instances were used.
+ */
+public interface StatementCacheListener {
+    void statementCacheHit(StatementKey.Kind kind);
+    void statementCacheMiss(StatementKey.Kind kind);
+    void statementCacheBusy(StatementKey.Kind kind);
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Identity of a cached statement: the SQL plus all the options given to the
+ * {@code prepareStatement()} / {@code prepareCall()} overload used to create it.
+ * The hashcode is computed once since keys are looked up on every statement preparation.
+ */
+public final class StatementKey {
+
+    /**
+     * Kind of cached statement.
+     */
+    public static enum Kind {
+        PREPARED,
+        CALLABLE
+    }
+
+    /**
+     * Value of the options that were not given.
+     */
+    private static final int UNSPECIFIED = -1;
+
+    private final Kind kind;
+    private final String sql;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int resultSetHoldability;
+    private final int autoGeneratedKeys;
+    private final int[] columnIndexes;
+    private final String[] columnNames;
+
+    /**
+     * Hashcode computed in constructor.
+     */
+    private final int hashCode;
+
+    private StatementKey(final Kind kind,
+                         final String sql,
+                         final int resultSetType,
+                         final int resultSetConcurrency,
+                         final int resultSetHoldability,
+                         final int autoGeneratedKeys,
+                         final int[] columnIndexes,
+                         final String[] columnNames) {
+        this.kind = kind;
+        this.sql = sql;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
+        this.resultSetHoldability = resultSetHoldability;
+        this.autoGeneratedKeys = autoGeneratedKeys;
+        this.columnIndexes = (columnIndexes == null) ? null : columnIndexes.clone();
+        this.columnNames = (columnNames == null) ? null : columnNames.clone();
+
+        int hash = kind.hashCode();
+        hash = 31 * hash + sql.hashCode();
+        hash = 31 * hash + resultSetType;
+        hash = 31 * hash + resultSetConcurrency;
+        hash = 31 * hash + resultSetHoldability;
+        hash = 31 * hash + autoGeneratedKeys;
+        hash = 31 * hash + Arrays.hashCode(this.columnIndexes);
+        hash = 31 * hash + Arrays.hashCode(this.columnNames);
+        this.hashCode = hash;
+    }
+
+    /**
+     * @see Connection#prepareStatement(String)
+     */
+    public static StatementKey prepared(final String sql) {
+        return prepared(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * @see Connection#prepareStatement(String, int, int)
+     */
+    public static StatementKey prepared(final String sql, final int resultSetType, final int resultSetConcurrency) {
+        return new StatementKey(Kind.PREPARED, sql, resultSetType, resultSetConcurrency, UNSPECIFIED, UNSPECIFIED, null, null);
+    }
+
+    /**
+     * @see Connection#prepareStatement(String, int, int, int)
+     */
+    public static StatementKey prepared(final String sql,
+                                        final int resultSetType,
+                                        final int resultSetConcurrency,
+                                        final int resultSetHoldability) {
+        return new StatementKey(Kind.PREPARED, sql, resultSetType, resultSetConcurrency, resultSetHoldability, UNSPECIFIED, null, null);
+    }
+
+    /**
+     * @see Connection#prepareStatement(String, int)
+     */
+    public static StatementKey prepared(final String sql, final int autoGeneratedKeys) {
+        return new StatementKey(Kind.PREPARED, sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, autoGeneratedKeys, null, null);
+    }
+
+    /**
+     * @see Connection#prepareStatement(String, int[])
+     */
+    public static StatementKey prepared(final String sql, final int[] columnIndexes) {
+        return new StatementKey(Kind.PREPARED, sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, columnIndexes, null);
+    }
+
+    /**
+     * @see Connection#prepareStatement(String, String[])
+     */
+    public static StatementKey prepared(final String sql, final String[] columnNames) {
+        return new StatementKey(Kind.PREPARED, sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, null, columnNames);
+    }
+
+    /**
+     * @see Connection#prepareCall(String)
+     */
+    public static StatementKey callable(final String sql) {
+        return callable(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * @see Connection#prepareCall(String, int, int)
+     */
+    public static StatementKey callable(final String sql, final int resultSetType, final int resultSetConcurrency) {
+        return new StatementKey(Kind.CALLABLE, sql, resultSetType, resultSetConcurrency, UNSPECIFIED, UNSPECIFIED, null, null);
+    }
+
+    /**
+     * @see Connection#prepareCall(String, int, int, int)
+     */
+    public static StatementKey callable(final String sql,
+                                        final int resultSetType,
+                                        final int resultSetConcurrency,
+                                        final int resultSetHoldability) {
+        return new StatementKey(Kind.CALLABLE, sql, resultSetType, resultSetConcurrency, resultSetHoldability, UNSPECIFIED, null, null);
+    }
+
+    /**
+     * Creates the physical statement using the {@link Connection} method matching this key.
+     * @param connection physical connection
+     * @return a new statement (a {@link java.sql.CallableStatement} for {@link Kind#CALLABLE} keys)
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(final Connection connection) throws SQLException {
+        if (kind == Kind.CALLABLE) {
+            if (resultSetHoldability != UNSPECIFIED) {
+                return connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+            }
+            return connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+        }
+        if (autoGeneratedKeys != UNSPECIFIED) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        if (columnIndexes != null) {
+            return connection.prepareStatement(sql, columnIndexes);
+        }
+        if (columnNames != null) {
+            return connection.prepareStatement(sql, columnNames);
+        }
+        if (resultSetHoldability != UNSPECIFIED) {
+            return connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+        return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    /**
+     * @return true if the results of this statement can be streamed (forward only and read only)
+     */
+    public boolean isStreamable() {
+        return isStreamable(resultSetType, resultSetConcurrency);
+    }
+
+    /**
+     * @param resultSetType result set type, negative when not given
+     * @param resultSetConcurrency result set concurrency, negative when not given
+     * @return true if the results can be streamed (forward only and read only)
+     */
+    public static boolean isStreamable(final int resultSetType, final int resultSetConcurrency) {
+        return (resultSetType < 0 || resultSetType == ResultSet.TYPE_FORWARD_ONLY)
+                && (resultSetConcurrency < 0 || resultSetConcurrency == ResultSet.CONCUR_READ_ONLY);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementKey)) {
+            return false;
+        }
+        StatementKey other = (StatementKey) o;
+        return hashCode == other.hashCode
+                && kind == other.kind
+                && resultSetType == other.resultSetType
+                && resultSetConcurrency == other.resultSetConcurrency
+                && resultSetHoldability == other.resultSetHoldability
+                && autoGeneratedKeys == other.autoGeneratedKeys
+                && sql.equals(other.sql)
+                && Arrays.equals(columnIndexes, other.columnIndexes)
+                && Arrays.equals(columnNames, other.columnNames);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + sql;
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+/**
+ * Notified of the statements executions on the managed connections.
+ * Statements are identified by their normalized SQL, times are in nanoseconds.
+ */
+public interface StatementListener {
+    void statementExecuted(String sql, long elapsed, long updatedRows);
+    void statementFailed(String sql, long elapsed);
+    void rowsFetched(String sql, long rows);
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.cache;
+
+import java.util.Arrays;
+
+/**
+ * Identifies a query result: the SQL of the statement and the values bound to its parameters.
+ * The hashcode is computed once since keys are looked up on every query execution.
+ */
+public class QueryKey {
+
+    /**
+     * SQL of the query.
+     */
+    private final String sql;
+
+    /**
+     * Bound parameters (index 0 is the first parameter).
+     */
+    private final Object[] parameters;
+
+    /**
+     * Hashcode computed in constructor.
+     */
+    private final int hashCode;
+
+    public QueryKey(final String sql, final Object[] parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.hashCode = 31 * sql.hashCode() + Arrays.deepHashCode(parameters);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QueryKey)) {
+            return false;
+        }
+        QueryKey other = (QueryKey) o;
+        return hashCode == other.hashCode
+                && sql.equals(other.sql)
+                && Arrays.deepEquals(parameters, other.parameters);
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + Arrays.deepToString(parameters);
+    }
+}
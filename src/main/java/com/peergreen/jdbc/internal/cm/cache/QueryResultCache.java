@@ -0,0 +1,354 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.cache;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Per DataSource cache of query results.
+ * Results are stored as disconnected {@link CachedRowSet}s, each caller gets its own cursor on the shared rows.
+ * The cache is bounded in number of entries (least recently used entries are evicted first) and entries expire
+ * after a configurable time to live. Entries are invalidated when an update touching one of the watched tables
+ * is executed through the same DataSource.
+ */
+public class QueryResultCache {
+
+    /**
+     * Expiration value of entries that never expire.
+     */
+    private static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * Maximum number of cached results.
+     */
+    private final int maximumSize;
+
+    /**
+     * Time to live of an entry, in milliseconds (0 means no expiration).
+     */
+    private final long timeToLive;
+
+    /**
+     * Patterns of the cacheable queries.
+     */
+    private final List<Pattern> cacheable;
+
+    /**
+     * Watched tables, associated to the pattern used to find them in an SQL statement.
+     */
+    private final Map<String, Pattern> tables = new HashMap<>();
+
+    /**
+     * Cached results, in access order (eldest is the least recently used).
+     */
+    private final Map<QueryKey, CachedResult> entries;
+
+    /**
+     * Cached results keys, per referenced table.
+     */
+    private final Map<String, Set<QueryKey>> keysByTable = new HashMap<>();
+
+    /**
+     * Invalidation generation of the watched tables, incremented on every invalidation of the table.
+     */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /**
+     * Lazily created factory of disconnected row sets.
+     */
+    private RowSetFactory rowSetFactory;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * @param maximumSize maximum number of cached results
+     * @param timeToLive time to live of a cached result in milliseconds, 0 for no expiration
+     * @param cacheable patterns of cacheable queries
+     * @param tables watched table names
+     */
+    public QueryResultCache(final int maximumSize,
+                            final long timeToLive,
+                            final Collection<Pattern> cacheable,
+                            final Collection<String> tables) {
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+        this.cacheable = new ArrayList<>(cacheable);
+        for (String table : tables) {
+            this.tables.put(table, Pattern.compile("\\b" + Pattern.quote(table) + "\\b", Pattern.CASE_INSENSITIVE));
+        }
+        this.entries = new LinkedHashMap<QueryKey, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<QueryKey, CachedResult> eldest) {
+                if (size() > QueryResultCache.this.maximumSize) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param sql SQL of the query
+     * @return true if results of this query can be cached
+     */
+    public boolean isCacheable(final String sql) {
+        for (Pattern pattern : cacheable) {
+            if (pattern.matcher(sql).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a new cursor on a cached result.
+     * @param key query identity
+     * @return a cursor positioned before the first row, or null if the result is not cached
+     * @throws SQLException if the cursor cannot be created
+     */
+    public ResultSet get(final QueryKey key) throws SQLException {
+        CachedRowSet rows;
+        synchronized (this) {
+            CachedResult result = entries.get(key);
+            if (result != null && result.expiration < System.currentTimeMillis()) {
+                entries.remove(key);
+                unindex(key, result);
+                result = null;
+            }
+            if (result == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            rows = result.rows;
+        }
+        return rows.createShared();
+    }
+
+    /**
+     * To be called before executing a query whose result is then {@link #put(QueryKey, long, ResultSet) put}
+     * in the cache, so that an invalidation happening meanwhile is not lost.
+     * @param sql SQL of the query
+     * @return invalidation generation of the watched tables referenced by the query
+     */
+    public synchronized long getGeneration(final String sql) {
+        return getGeneration(referenced(sql));
+    }
+
+    /**
+     * Stores the given result in the cache, the given result set is consumed and closed.
+     * The query is assumed to have been executed after the last invalidation.
+     * @param key query identity
+     * @param results results of the query
+     * @return a cursor on the cached result (to be returned to the caller in place of the consumed result set)
+     * @throws SQLException if the result cannot be read
+     */
+    public ResultSet put(final QueryKey key, final ResultSet results) throws SQLException {
+        return put(key, getGeneration(key.getSql()), results);
+    }
+
+    /**
+     * Stores the given result in the cache, the given result set is consumed and closed.
+     * The result is not stored if one of the tables referenced by the query has been invalidated
+     * since the generation was taken.
+     * @param key query identity
+     * @param generation value of {@link #getGeneration(String)} before the query was executed
+     * @param results results of the query
+     * @return a cursor on the result (to be returned to the caller in place of the consumed result set)
+     * @throws SQLException if the result cannot be read
+     */
+    public ResultSet put(final QueryKey key, final long generation, final ResultSet results) throws SQLException {
+        CachedRowSet rows = createRowSet();
+        try {
+            rows.populate(results);
+        } finally {
+            results.close();
+        }
+
+        Set<String> referenced = referenced(key.getSql());
+        long expiration = (timeToLive > 0) ? System.currentTimeMillis() + timeToLive : NEVER;
+
+        CachedResult result = new CachedResult(rows, expiration, referenced);
+        synchronized (this) {
+            if (getGeneration(referenced) != generation) {
+                // Invalidated while the query was executed, the result may be outdated
+                return rows.createShared();
+            }
+            CachedResult previous = entries.put(key, result);
+            if (previous != null) {
+                unindex(key, previous);
+            }
+            for (String table : referenced) {
+                Set<QueryKey> keys = keysByTable.get(table);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    keysByTable.put(table, keys);
+                }
+                keys.add(key);
+            }
+        }
+        return rows.createShared();
+    }
+
+    /**
+     * An update has been executed: invalidate the results of the queries referencing the same watched tables.
+     * @param sql SQL of the update
+     */
+    public void invalidate(final String sql) {
+        for (Map.Entry<String, Pattern> table : tables.entrySet()) {
+            if (table.getValue().matcher(sql).find()) {
+                invalidateTable(table.getKey());
+            }
+        }
+    }
+
+    private synchronized void invalidateTable(final String table) {
+        Long generation = generations.get(table);
+        generations.put(table, (generation == null) ? 1 : generation + 1);
+        Set<QueryKey> keys = keysByTable.remove(table);
+        if (keys == null) {
+            return;
+        }
+        for (QueryKey key : keys) {
+            CachedResult result = entries.remove(key);
+            if (result != null) {
+                unindex(key, result);
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Remove all the cached results.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        keysByTable.clear();
+    }
+
+    /**
+     * @param sql SQL of a query
+     * @return the watched tables referenced by the query
+     */
+    private Set<String> referenced(final String sql) {
+        Set<String> referenced = new HashSet<>();
+        for (Map.Entry<String, Pattern> table : tables.entrySet()) {
+            if (table.getValue().matcher(sql).find()) {
+                referenced.add(table.getKey());
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * @param referenced watched tables
+     * @return sum of the tables generations (changes as soon as one of the tables is invalidated)
+     */
+    private long getGeneration(final Set<String> referenced) {
+        long sum = 0;
+        for (String table : referenced) {
+            Long generation = generations.get(table);
+            if (generation != null) {
+                sum += generation;
+            }
+        }
+        return sum;
+    }
+
+    private void unindex(final QueryKey key, final CachedResult result) {
+        for (String table : result.tables) {
+            Set<QueryKey> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTable.remove(table);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a new empty disconnected row set
+     * @throws SQLException if the row set implementation cannot be found
+     */
+    protected CachedRowSet createRowSet() throws SQLException {
+        RowSetFactory factory;
+        synchronized (this) {
+            if (rowSetFactory == null) {
+                rowSetFactory = RowSetProvider.newFactory();
+            }
+            factory = rowSetFactory;
+        }
+        return factory.createCachedRowSet();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class CachedResult {
+        private final CachedRowSet rows;
+        private final long expiration;
+        private final Set<String> tables;
+
+        public CachedResult(final CachedRowSet rows, final long expiration, final Set<String> tables) {
+            this.rows = rows;
+            this.expiration = expiration;
+            this.tables = tables;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.event;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Recorded event, only formatted when read.
+ */
+public final class Event {
+    private final long time;
+    private final EventType type;
+    private final int connection;
+    private final long duration;
+    private final String sql;
+    private final String thread;
+
+    public Event(final long time, final EventType type, final int connection, final long duration, final String sql, final String thread) {
+        this.time = time;
+        this.type = type;
+        this.connection = connection;
+        this.duration = duration;
+        this.sql = sql;
+        this.thread = thread;
+    }
+
+    /**
+     * @return time of the event, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    /**
+     * @return identifier of the managed connection, -1 if unknown
+     */
+    public int getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return duration of the event, in nanoseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return SQL of the statement events, null for the other events
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(format("%tFT%<tT.%<tL %s connection=%d duration=%.3fms thread=%s",
+                         time,
+                         type,
+                         connection,
+                         duration / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                         thread));
+        if (sql != null) {
+            sb.append(" sql=").append(sql);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.event;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the latest pool and statement events in a bounded buffer, to diagnose latencies
+ * without enabling the FINE logs.
+ * <p>
+ * Events are disabled by default: a disabled event only costs a volatile read. Timed events are
+ * only recorded when they last at least the threshold.
+ */
+public class EventRecorder {
+
+    public static final int DEFAULT_SIZE = 1000;
+
+    /**
+     * Enabled events, one bit per {@link EventType} ordinal.
+     */
+    private volatile int enabled = 0;
+
+    /**
+     * Minimum duration of the recorded timed events, in nanoseconds.
+     */
+    private volatile long threshold = 0;
+
+    private final Event[] events;
+    private int next = 0;
+    private long recorded = 0;
+
+    public EventRecorder() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size number of kept events
+     */
+    public EventRecorder(final int size) {
+        this.events = new Event[Math.max(size, 1)];
+    }
+
+    /**
+     * Callers check this before measuring anything only needed by the event.
+     */
+    public boolean isEnabled(final EventType type) {
+        return (enabled & (1 << type.ordinal())) != 0;
+    }
+
+    public Set<EventType> getEnabledEvents() {
+        Set<EventType> types = EnumSet.noneOf(EventType.class);
+        for (EventType type : EventType.values()) {
+            if (isEnabled(type)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @param types comma separated event types (case insensitive), {@code all} for every type
+     * @return the parsed types
+     * @throws IllegalArgumentException if a type is unknown
+     */
+    public static Set<EventType> parse(final String types) {
+        Set<EventType> set = EnumSet.noneOf(EventType.class);
+        if (types == null) {
+            return set;
+        }
+        for (String type : types.split(",")) {
+            String name = type.trim().toUpperCase(Locale.ENGLISH);
+            if ("ALL".equals(name)) {
+                set.addAll(EnumSet.allOf(EventType.class));
+            } else if (!name.isEmpty()) {
+                set.add(EventType.valueOf(name));
+            }
+        }
+        return set;
+    }
+
+    public void setEnabledEvents(final Set<EventType> types) {
+        int bits = 0;
+        for (EventType type : types) {
+            bits |= 1 << type.ordinal();
+        }
+        this.enabled = bits;
+    }
+
+    public long getThreshold(final TimeUnit unit) {
+        return unit.convert(threshold, TimeUnit.NANOSECONDS);
+    }
+
+    public void setThreshold(final long threshold, final TimeUnit unit) {
+        this.threshold = unit.toNanos(threshold);
+    }
+
+    /**
+     * @param type kind of event
+     * @param connection identifier of the managed connection, -1 if unknown
+     * @param duration duration of the event, in nanoseconds
+     * @param sql SQL of the statement events, null for the other events
+     */
+    public void record(final EventType type, final int connection, final long duration, final String sql) {
+        if (!isEnabled(type) || (type.isTimed() && duration < threshold)) {
+            return;
+        }
+        Event event = new Event(System.currentTimeMillis(), type, connection, duration, sql, Thread.currentThread().getName());
+        synchronized (this) {
+            events[next] = event;
+            next = (next + 1) % events.length;
+            recorded++;
+        }
+    }
+
+    /**
+     * @return number of events recorded since the creation (including the ones no longer kept)
+     */
+    public synchronized long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * @return kept events, oldest first
+     */
+    public synchronized List<Event> getEvents() {
+        List<Event> list = new ArrayList<>(events.length);
+        for (int i = 0; i < events.length; i++) {
+            Event event = events[(next + i) % events.length];
+            if (event != null) {
+                list.add(event);
+            }
+        }
+        return list;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < events.length; i++) {
+            events[i] = null;
+        }
+        next = 0;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.event;
+
+/**
+ * Kinds of recorded events.
+ */
+public enum EventType {
+    CONNECTION_CREATED(true),
+    CONNECTION_VALIDATED(true),
+    CONNECTION_DESTROYED(false),
+    CONNECTION_WAITED(true),
+    CONNECTION_ACQUIRED(true),
+    CONNECTION_LEAKED(false),
+    STATEMENT_EXECUTED(true),
+    STATEMENT_FAILED(false);
+
+    private final boolean timed;
+
+    private EventType(final boolean timed) {
+        this.timed = timed;
+    }
+
+    /**
+     * @return true if the events are only recorded when they last longer than the threshold
+     */
+    public boolean isTimed() {
+        return timed;
+    }
+}
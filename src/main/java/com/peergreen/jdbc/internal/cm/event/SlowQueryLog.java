@@ -0,0 +1,272 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.cm.event;
+
+import com.peergreen.jdbc.internal.cm.statement.SqlNormalizer;
+import com.peergreen.jdbc.internal.log.Log;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs the statements executed in more than a threshold.
+ * <p>
+ * Executing threads only check the duration and queue the entry: the message is formatted and written
+ * by a background thread. When the queue is full, entries are dropped (and counted) rather than slowing
+ * down the statements. With a sampling of N, the first slow execution of a statement is logged, then
+ * one out of N.
+ */
+public class SlowQueryLog {
+
+    /**
+     * What is logged of the bound parameters.
+     */
+    public enum Parameters {
+        /**
+         * Nothing.
+         */
+        NONE,
+
+        /**
+         * Types only: values are redacted.
+         */
+        TYPES,
+
+        /**
+         * Types and values, literals of the plain statements are kept too.
+         */
+        VALUES
+    }
+
+    public static final int CAPACITY = 1024;
+
+    /**
+     * Above this number of distinct statements, the sampling counts start again.
+     */
+    private static final int MAXIMUM_SAMPLED_STATEMENTS = 1000;
+
+    private final Log logger;
+
+    /**
+     * Minimum duration of the logged executions, in nanoseconds (0 disables the log).
+     */
+    private volatile long threshold = 0;
+
+    private volatile int sampling = 1;
+
+    private volatile Parameters parameters = Parameters.TYPES;
+
+    /**
+     * Number of slow executions per SQL, used for the sampling.
+     */
+    private final ConcurrentMap<String, AtomicLong> occurrences = new ConcurrentHashMap<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private ThreadPoolExecutor writer;
+
+    /**
+     * Once stopped, executions are no more logged (the writer thread is not created again).
+     */
+    private boolean stopped = false;
+
+    public SlowQueryLog(final Log logger) {
+        this.logger = logger;
+    }
+
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * @param elapsed execution time, in nanoseconds
+     * @return true if the execution has to be logged
+     */
+    public boolean isSlow(final long elapsed) {
+        long t = threshold;
+        return t > 0 && elapsed >= t;
+    }
+
+    public long getThreshold(final TimeUnit unit) {
+        return unit.convert(threshold, TimeUnit.NANOSECONDS);
+    }
+
+    public void setThreshold(final long threshold, final TimeUnit unit) {
+        this.threshold = unit.toNanos(threshold);
+    }
+
+    public int getSampling() {
+        return sampling;
+    }
+
+    /**
+     * @param sampling log one out of {@code sampling} slow executions of a statement (1 logs them all)
+     */
+    public void setSampling(final int sampling) {
+        this.sampling = Math.max(sampling, 1);
+        occurrences.clear();
+    }
+
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(final Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * @param parameters {@code none}, {@code types} or {@code values} (case insensitive)
+     * @return the parsed mode
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    public static Parameters parse(final String parameters) {
+        return Parameters.valueOf(parameters.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return number of slow executions not logged because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Queues a slow execution, if sampled.
+     * @param sql SQL of the statement
+     * @param elapsed execution time, in nanoseconds
+     * @param values summary of the bound parameters, null if not recorded
+     * @param connection identifier of the managed connection
+     * @param transaction transaction of the connection, null if none
+     */
+    public void log(final String sql,
+                    final long elapsed,
+                    final String values,
+                    final int connection,
+                    final Object transaction) {
+        if (!isSampled(sql)) {
+            return;
+        }
+        ThreadPoolExecutor executor = getWriter();
+        if (executor == null) {
+            // Stopped with its DataSource
+            return;
+        }
+        executor.execute(new Entry(sql, elapsed, values, connection, transaction, parameters != Parameters.VALUES));
+    }
+
+    /**
+     * @param sql SQL of the statement, executions differing only by their literals are counted together
+     * @return true if the execution has to be logged
+     */
+    private boolean isSampled(final String sql) {
+        int n = sampling;
+        if (n <= 1) {
+            return true;
+        }
+        String key = SqlNormalizer.normalize(sql);
+        AtomicLong count = occurrences.get(key);
+        if (count == null) {
+            if (occurrences.size() >= MAXIMUM_SAMPLED_STATEMENTS) {
+                occurrences.clear();
+            }
+            AtomicLong created = new AtomicLong();
+            count = occurrences.putIfAbsent(key, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        return count.getAndIncrement() % n == 0;
+    }
+
+    /**
+     * @return the background writer, created on first use, null once stopped
+     */
+    private synchronized ThreadPoolExecutor getWriter() {
+        if (writer == null && !stopped) {
+            writer = new ThreadPoolExecutor(1, 1,
+                                            0, TimeUnit.MILLISECONDS,
+                                            new ArrayBlockingQueue<Runnable>(CAPACITY),
+                                            new ThreadFactory() {
+                                                @Override
+                                                public Thread newThread(final Runnable runnable) {
+                                                    Thread thread = new Thread(runnable, "JDBC slow query log");
+                                                    thread.setDaemon(true);
+                                                    return thread;
+                                                }
+                                            },
+                                            new RejectedExecutionHandler() {
+                                                @Override
+                                                public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+                                                    dropped.incrementAndGet();
+                                                }
+                                            });
+        }
+        return writer;
+    }
+
+    /**
+     * Writes the queued entries, then stops the background thread. Later executions are ignored.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (writer != null) {
+            writer.shutdown();
+            writer = null;
+        }
+        occurrences.clear();
+    }
+
+    /**
+     * A slow execution, formatted by the background thread.
+     */
+    private class Entry implements Runnable {
+        private final String sql;
+        private final long elapsed;
+        private final String values;
+        private final int connection;
+        private final Object transaction;
+        private final boolean redacted;
+
+        public Entry(final String sql,
+                     final long elapsed,
+                     final String values,
+                     final int connection,
+                     final Object transaction,
+                     final boolean redacted) {
+            this.sql = sql;
+            this.elapsed = elapsed;
+            this.values = values;
+            this.connection = connection;
+            this.transaction = transaction;
+            this.redacted = redacted;
+        }
+
+        @Override
+        public void run() {
+            logger.warn("Slow statement: %.3f ms on connection %d%s: %s%s",
+                        elapsed / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                        connection,
+                        (transaction == null) ? "" : " in transaction " + transaction,
+                        redacted ? SqlNormalizer.normalize(sql) : sql,
+                        (values == null) ? "" : " with parameters " + values);
+        }
+    }
+}
@@ -13,6 +13,8 @@ package com.peergreen.jdbc.internal.cm.handle;
 
 import com.peergreen.jdbc.internal.cm.ConnectionProxy;
 import com.peergreen.jdbc.internal.cm.IManagedConnection;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import com.peergreen.jdbc.internal.cm.statement.TrackedStatement;
 
 import java.sql.Array;
 import java.sql.Blob;
@@ -52,6 +54,11 @@ public class DefaultConnectionProxy implements ConnectionProxy {
      */
     private IManagedConnection xaConnection = null;
 
+    /**
+     * Auto-commit mode set through this proxy (JDBC connections start in auto-commit mode).
+     */
+    private volatile boolean autoCommit = true;
+
     /**
      * Buils a Connection (viewed by the user) which rely on a Managed
      * connection and a physical connection.
@@ -84,10 +91,16 @@ public class DefaultConnectionProxy implements ConnectionProxy {
 
     @Override
     public PreparedStatement prepareStatement(final String sql) throws SQLException {
-        // Use the xaConnection Object (which allow to have the PreparedStatement pool) but only for method with SQL
+        // Use the xaConnection Object (which allow to have the PreparedStatement pool)
+        // All prepareStatement() and prepareCall() overloads go through it
         return xaConnection.prepareStatement(sql);
     }
 
+    @Override
+    public CallableStatement prepareCall(final String sql) throws SQLException {
+        return xaConnection.prepareCall(StatementKey.callable(sql));
+    }
+
     @Override
     public void close() throws SQLException {
         xaConnection.notifyClose();
@@ -95,11 +108,6 @@ public class DefaultConnectionProxy implements ConnectionProxy {
 
     // Simple method delegation to the physical connection
 
-    @Override
-    public CallableStatement prepareCall(final String sql) throws SQLException {
-        return physicalConnection.prepareCall(sql);
-    }
-
     @Override
     public String nativeSQL(final String sql) throws SQLException {
         return physicalConnection.nativeSQL(sql);
@@ -108,6 +116,11 @@ public class DefaultConnectionProxy implements ConnectionProxy {
     @Override
     public void setAutoCommit(final boolean autoCommit) throws SQLException {
         physicalConnection.setAutoCommit(autoCommit);
+        this.autoCommit = autoCommit;
+        if (autoCommit) {
+            // Commits the pending transaction
+            xaConnection.notifyTransactionCompleted();
+        }
     }
 
     @Override
@@ -115,14 +128,23 @@ public class DefaultConnectionProxy implements ConnectionProxy {
         return physicalConnection.getAutoCommit();
     }
 
+    /**
+     * @return the auto-commit mode set through this proxy, without asking the database
+     */
+    public boolean isAutoCommit() {
+        return autoCommit;
+    }
+
     @Override
     public void commit() throws SQLException {
         physicalConnection.commit();
+        xaConnection.notifyTransactionCompleted();
     }
 
     @Override
     public void rollback() throws SQLException {
         physicalConnection.rollback();
+        xaConnection.notifyTransactionCompleted();
     }
 
     @Override
@@ -177,17 +199,18 @@ public class DefaultConnectionProxy implements ConnectionProxy {
 
     @Override
     public Statement createStatement(final int resultSetType, final int resultSetConcurrency) throws SQLException {
-        return physicalConnection.createStatement(resultSetType, resultSetConcurrency);
+        return track(physicalConnection.createStatement(resultSetType, resultSetConcurrency),
+                     StatementKey.isStreamable(resultSetType, resultSetConcurrency));
     }
 
     @Override
     public PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency) throws SQLException {
-        return physicalConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        return xaConnection.prepareStatement(StatementKey.prepared(sql, resultSetType, resultSetConcurrency));
     }
 
     @Override
     public CallableStatement prepareCall(final String sql, final int resultSetType, final int resultSetConcurrency) throws SQLException {
-        return physicalConnection.prepareCall(sql, resultSetType, resultSetConcurrency);
+        return xaConnection.prepareCall(StatementKey.callable(sql, resultSetType, resultSetConcurrency));
     }
 
     @Override
@@ -232,32 +255,33 @@ public class DefaultConnectionProxy implements ConnectionProxy {
 
     @Override
     public Statement createStatement(final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
-        return physicalConnection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+        return track(physicalConnection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability),
+                     StatementKey.isStreamable(resultSetType, resultSetConcurrency));
     }
 
     @Override
     public PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
-        return physicalConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        return xaConnection.prepareStatement(StatementKey.prepared(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
     }
 
     @Override
     public CallableStatement prepareCall(final String sql, final int resultSetType, final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
-        return physicalConnection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        return xaConnection.prepareCall(StatementKey.callable(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
     }
 
     @Override
     public PreparedStatement prepareStatement(final String sql, final int autoGeneratedKeys) throws SQLException {
-        return physicalConnection.prepareStatement(sql, autoGeneratedKeys);
+        return xaConnection.prepareStatement(StatementKey.prepared(sql, autoGeneratedKeys));
     }
 
     @Override
     public PreparedStatement prepareStatement(final String sql, final int[] columnIndexes) throws SQLException {
-        return physicalConnection.prepareStatement(sql, columnIndexes);
+        return xaConnection.prepareStatement(StatementKey.prepared(sql, columnIndexes));
     }
 
     @Override
     public PreparedStatement prepareStatement(final String sql, final String[] columnNames) throws SQLException {
-        return physicalConnection.prepareStatement(sql, columnNames);
+        return xaConnection.prepareStatement(StatementKey.prepared(sql, columnNames));
     }
 
     @Override
@@ -342,16 +366,45 @@ public class DefaultConnectionProxy implements ConnectionProxy {
 
     @Override
     public <T> T unwrap(final Class<T> iface) throws SQLException {
-        return physicalConnection.unwrap(iface);
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        T unwrapped;
+        if (iface.isInstance(physicalConnection)) {
+            unwrapped = iface.cast(physicalConnection);
+        } else {
+            unwrapped = physicalConnection.unwrap(iface);
+        }
+        // The application may use the physical connection until it closes this one
+        xaConnection.notifyUnwrapped();
+        return unwrapped;
     }
 
     @Override
     public boolean isWrapperFor(final Class<?> iface) throws SQLException {
-        return physicalConnection.isWrapperFor(iface);
+        return iface.isInstance(this)
+                || iface.isInstance(physicalConnection)
+                || physicalConnection.isWrapperFor(iface);
     }
 
     @Override
     public Statement createStatement() throws SQLException {
-        return physicalConnection.createStatement();
+        return track(physicalConnection.createStatement(), true);
+    }
+
+    /**
+     * @param statement physical statement
+     * @param streamable true for forward only, read only statements
+     * @return a statement closed by the managed connection if the application forgets to
+     * @throws SQLException if the default fetch size cannot be set
+     */
+    private Statement track(final Statement statement, final boolean streamable) throws SQLException {
+        int fetchSize = xaConnection.getDefaultFetchSize(streamable);
+        if (fetchSize != 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        Statement tracked = new TrackedStatement(statement, xaConnection, xaConnection.getResultCache());
+        xaConnection.notifyStatementOpened(tracked);
+        return tracked;
     }
 }
\ No newline at end of file
@@ -584,6 +584,9 @@ public class ErrorNotifierConnectionProxy implements ConnectionProxy {
 
     @Override
     public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
         try {
             return delegate.unwrap(iface);
         } catch (SQLException e) {
@@ -594,6 +597,9 @@ public class ErrorNotifierConnectionProxy implements ConnectionProxy {
 
     @Override
     public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return true;
+        }
         try {
             return delegate.isWrapperFor(iface);
         } catch (SQLException e) {
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.managed;
+
+import com.peergreen.jdbc.internal.cm.StatementKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool wide ranking of the most used statements, used to prepare them on new connections.
+ * The ranking is bounded: when full, the least used statement is replaced and the newcomer inherits
+ * its count (space-saving algorithm) so that frequently used statements are never lost.
+ * Recording a known statement is lock free, only new statements are added under lock.
+ */
+public class HotStatements {
+
+    /**
+     * Default maximum number of ranked statements.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private static final Comparator<Map.Entry<StatementKey, Long>> BY_USES = new Comparator<Map.Entry<StatementKey, Long>>() {
+        @Override
+        public int compare(final Map.Entry<StatementKey, Long> o1, final Map.Entry<StatementKey, Long> o2) {
+            return o2.getValue().compareTo(o1.getValue());
+        }
+    };
+
+    private final int maximumSize;
+    private final ConcurrentMap<StatementKey, AtomicLong> uses = new ConcurrentHashMap<>();
+
+    public HotStatements() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize maximum number of ranked statements
+     */
+    public HotStatements(final int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * A statement has been requested on a connection.
+     * @param key statement identity
+     */
+    public void record(final StatementKey key) {
+        AtomicLong counter = uses.get(key);
+        if (counter == null) {
+            counter = add(key);
+        }
+        counter.incrementAndGet();
+    }
+
+    private synchronized AtomicLong add(final StatementKey key) {
+        AtomicLong counter = uses.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        long inherited = 0;
+        if (uses.size() >= maximumSize) {
+            Map.Entry<StatementKey, AtomicLong> minimum = null;
+            for (Map.Entry<StatementKey, AtomicLong> candidate : uses.entrySet()) {
+                if (minimum == null || candidate.getValue().get() < minimum.getValue().get()) {
+                    minimum = candidate;
+                }
+            }
+            uses.remove(minimum.getKey());
+            inherited = minimum.getValue().get();
+        }
+        counter = new AtomicLong(inherited);
+        uses.put(key, counter);
+        return counter;
+    }
+
+    /**
+     * @param count maximum number of returned statements
+     * @return the most used statements, the most used first
+     */
+    public List<StatementKey> getTop(final int count) {
+        List<Map.Entry<StatementKey, Long>> all = new ArrayList<>(uses.size());
+        for (Map.Entry<StatementKey, AtomicLong> entry : uses.entrySet()) {
+            all.add(new Entry(entry.getKey(), entry.getValue().get()));
+        }
+        Collections.sort(all, BY_USES);
+        List<StatementKey> top = new ArrayList<>(Math.min(count, all.size()));
+        for (Map.Entry<StatementKey, Long> entry : all) {
+            if (top.size() >= count) {
+                break;
+            }
+            top.add(entry.getKey());
+        }
+        return top;
+    }
+
+    /**
+     * @return number of ranked statements
+     */
+    public int getSize() {
+        return uses.size();
+    }
+
+    /**
+     * Forget the ranking.
+     */
+    public synchronized void clear() {
+        uses.clear();
+    }
+
+    /**
+     * Snapshot of a ranked statement.
+     */
+    private static class Entry implements Map.Entry<StatementKey, Long> {
+        private final StatementKey key;
+        private final Long value;
+
+        public Entry(final StatementKey key, final long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public StatementKey getKey() {
+            return key;
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public Long setValue(final Long value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -14,9 +14,14 @@ package com.peergreen.jdbc.internal.cm.managed;
 import com.peergreen.jdbc.internal.cm.ConnectionProxy;
 import com.peergreen.jdbc.internal.cm.IManagedConnection;
 import com.peergreen.jdbc.internal.cm.IPreparedStatement;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import com.peergreen.jdbc.internal.cm.event.EventType;
+import com.peergreen.jdbc.internal.cm.event.SlowQueryLog;
 import com.peergreen.jdbc.internal.cm.handle.DefaultConnectionProxy;
 import com.peergreen.jdbc.internal.cm.handle.ErrorNotifierConnectionProxy;
 import com.peergreen.jdbc.internal.cm.pool.internal.ManagedConnectionFactory;
+import com.peergreen.jdbc.internal.cm.statement.ReusableCallableStatement;
 import com.peergreen.jdbc.internal.cm.statement.ReusablePreparedStatement;
 import com.peergreen.jdbc.internal.log.Log;
 
@@ -27,14 +32,19 @@ import javax.transaction.Transaction;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.Vector;
 
 /**
@@ -67,6 +77,11 @@ public class JManagedConnection implements IManagedConnection {
      */
     private ConnectionProxy m_connectionProxy = null;
 
+    /**
+     * Proxy wrapped by m_connectionProxy, it tracks the auto-commit mode.
+     */
+    private DefaultConnectionProxy defaultProxy = null;
+
     /**
      * Maximum of prepared statements.
      */
@@ -87,6 +102,16 @@ public class JManagedConnection implements IManagedConnection {
      */
     private int open = 0;
 
+    /**
+     * Time at which the application got this connection (while open &gt; 0).
+     */
+    private long heldSince = 0;
+
+    /**
+     * Time spent executing statements since this connection was held.
+     */
+    private long jdbcTime = 0;
+
     /**
      * Transaction timeout value.
      */
@@ -107,15 +132,46 @@ public class JManagedConnection implements IManagedConnection {
      */
     private final int identifier;
 
+    /**
+     * Creation time, in milliseconds.
+     */
+    private final long creationTime = System.currentTimeMillis();
+
+    /**
+     * The physical connection has been handed out through unwrap().
+     */
+    private volatile boolean unwrapped = false;
+
+    /**
+     * The hot statements have been prepared on this connection before it entered the pool.
+     */
+    private volatile boolean warmedUp = false;
+
     /**
      * Prepared statements that were reused.
      */
     private int reUsedPreparedStatements = 0;
 
     /**
-     * List of PreparedStatement in the pool.
+     * PreparedStatements in the pool, idle ones are evicted in LRU order.
+     */
+    private final StatementCache<StatementKey> psList = new StatementCache<>(DEFAULT_STATEMENT_CACHE_SIZE);
+
+    /**
+     * Statements that are not in the statement cache, not closed yet by the application.
+     * Compared by identity: cached statements are equal when they share the same SQL.
      */
-    private final Map<String, IPreparedStatement> psList = Collections.synchronizedMap(new HashMap<String, IPreparedStatement>());
+    private final Set<Statement> openedStatements = Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+
+    /**
+     * Result sets not closed yet by the application.
+     */
+    private final Set<ResultSet> openedResultSets = Collections.newSetFromMap(new IdentityHashMap<ResultSet, Boolean>());
+
+    /**
+     * Updates executed in the current transaction, invalidated again in the result cache when it completes.
+     */
+    private final Set<String> transactionalUpdates = new LinkedHashSet<>();
 
     private final ManagedConnectionFactory factory;
 
@@ -140,8 +196,10 @@ public class JManagedConnection implements IManagedConnection {
         this.physicalConnection = physicalConnection;
         this.factory = factory;
 
-        this.m_connectionProxy = new ErrorNotifierConnectionProxy(new DefaultConnectionProxy(this, physicalConnection), this);
+        this.defaultProxy = new DefaultConnectionProxy(this, physicalConnection);
+        this.m_connectionProxy = new ErrorNotifierConnectionProxy(defaultProxy, this);
         deathTime = System.currentTimeMillis() + factory.getMaxAge();
+        psList.setMaximumInstances(factory.getPreparedStatementInstances());
 
         identifier = objcount++;
     }
@@ -161,6 +219,9 @@ public class JManagedConnection implements IManagedConnection {
     @Override
     public void setPstmtMax(final int max) {
         pstmtmax = max;
+        synchronized (psList) {
+            psList.setMaximumSize(max);
+        }
     }
 
     /**
@@ -195,6 +256,21 @@ public class JManagedConnection implements IManagedConnection {
         return open;
     }
 
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public long getHeldTime() {
+        return System.nanoTime() - heldSince;
+    }
+
+    @Override
+    public long getJdbcTime() {
+        return jdbcTime;
+    }
+
     /**
      * Check if the connection has been unused for too long time. This occurs
      * usually when the caller forgot to call close().
@@ -218,6 +294,10 @@ public class JManagedConnection implements IManagedConnection {
      */
     @Override
     public void hold() {
+        if (open == 0) {
+            heldSince = System.nanoTime();
+            jdbcTime = 0;
+        }
         open++;
         closeTime = System.currentTimeMillis() + factory.getMaxOpenTime();
     }
@@ -287,46 +367,158 @@ public class JManagedConnection implements IManagedConnection {
      */
     @Override
     public PreparedStatement prepareStatement(final String sql) throws SQLException {
-        return prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        return prepareStatement(StatementKey.prepared(sql));
     }
 
     /**
      * Try to find a PreparedStatement in the pool for the given options.
-     * @param sql the sql of the prepared statement
-     * @param resultSetType the type of resultset
-     * @param resultSetConcurrency the concurrency of this resultset
+     * @param key the sql of the prepared statement and its options
      * @return a preparestatement object
      * @throws SQLException if an errors occurs on the database.
      */
-    private PreparedStatement prepareStatement(final String sql, final int resultSetType, final int resultSetConcurrency)
-            throws SQLException {
+    @Override
+    public PreparedStatement prepareStatement(final StatementKey key) throws SQLException {
+        return lookup(key);
+    }
 
-        logger.fine("sql = %s", sql);
-        // No PreparedStatement pooling
+    /**
+     * Try to find a CallableStatement in the pool for the given options.
+     * @param key the sql of the callable statement and its options
+     * @return a callable statement object
+     * @throws SQLException if an errors occurs on the database.
+     */
+    @Override
+    public CallableStatement prepareCall(final StatementKey key) throws SQLException {
+        return (CallableStatement) lookup(key);
+    }
+
+    /**
+     * Try to find a statement in the pool, prepare a new one if not found.
+     * @param key the sql of the statement and its options
+     * @return a statement (a {@link CallableStatement} for {@link StatementKey.Kind#CALLABLE} keys)
+     * @throws SQLException if an errors occurs on the database.
+     */
+    private PreparedStatement lookup(final StatementKey key) throws SQLException {
+
+        logger.fine("sql = %s", key.getSql());
+        // No PreparedStatement pooling: statements are only wrapped to be monitored
+        // they are not found in the cache when closed and thus physically closed
         if (pstmtmax == NO_CACHE) {
-            return physicalConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+            IPreparedStatement ps = wrap(key, key.prepare(physicalConnection));
+            notifyStatementOpened(ps);
+            return ps;
         }
+        factory.getHotStatements().record(key);
         IPreparedStatement ps = null;
         synchronized (psList) {
-            ps = psList.get(sql);
+            // Only idle instances are returned, an opened statement is never shared
+            ps = psList.get(key);
             if (ps != null) {
-                if (!ps.isClosed()) {
-                    logger.warn("reuse an open pstmt");
-                }
                 ps.reuse();
                 reUsedPreparedStatements++;
+                factory.getStatementCacheListener().statementCacheHit(key.getKind());
             } else {
+                if (psList.getInstances(key) == 0) {
+                    factory.getStatementCacheListener().statementCacheMiss(key.getKind());
+                } else {
+                    // All the instances of this statement are in use
+                    factory.getStatementCacheListener().statementCacheBusy(key.getKind());
+                }
+
                 // Not found in cache. Create a new one.
-                PreparedStatement aps = physicalConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
-                ps = new ReusablePreparedStatement(aps, this, sql);
+                ps = wrap(key, key.prepare(physicalConnection));
 
-                psList.put(sql, ps);
+                if (!psList.put(key, ps)) {
+                    // Too many instances of this statement: not pooled, physically closed when closed
+                    logger.fine("Too many instances of %s, not pooled", key.getSql());
+                    notifyStatementOpened(ps);
+                    return ps;
+                }
             }
             psOpenNb++;
         }
         return ps;
     }
 
+    /**
+     * Prepare the given statements in the cache, they are immediately idle.
+     * Statements already cached are skipped, preparation stops when the cache is full or
+     * when the timeout is elapsed.
+     * @param keys statements to prepare, the most important first
+     * @param timeout maximum time spent preparing statements, in milliseconds
+     * @return the number of prepared statements
+     */
+    @Override
+    public int warmUp(final List<StatementKey> keys, final long timeout) {
+        if (pstmtmax == NO_CACHE) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        int prepared = 0;
+        for (StatementKey key : keys) {
+            if (System.nanoTime() - deadline >= 0) {
+                logger.fine("Warm up of connection %d interrupted after %d statements", identifier, prepared);
+                break;
+            }
+            synchronized (psList) {
+                if (psList.size() >= pstmtmax) {
+                    break;
+                }
+                if (psList.getInstances(key) > 0) {
+                    continue;
+                }
+                try {
+                    IPreparedStatement ps = wrap(key, key.prepare(physicalConnection));
+                    psList.put(key, ps);
+                    psList.release(key, ps);
+                    prepared++;
+                } catch (SQLException e) {
+                    logger.fine("Cannot prepare %s on connection %d: %s", key.getSql(), identifier, e.getMessage());
+                }
+            }
+        }
+        return prepared;
+    }
+
+    @Override
+    public void notifyWarmedUp() {
+        warmedUp = true;
+    }
+
+    @Override
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    @Override
+    public int getCachedStatements() {
+        synchronized (psList) {
+            return psList.size();
+        }
+    }
+
+    /**
+     * @param key statement identity
+     * @param statement physical statement
+     * @return a wrapper on the physical statement
+     * @throws SQLException if the default fetch size cannot be set
+     */
+    private IPreparedStatement wrap(final StatementKey key, final PreparedStatement statement) throws SQLException {
+        ReusablePreparedStatement ps;
+        if (key.getKind() == StatementKey.Kind.CALLABLE) {
+            ps = new ReusableCallableStatement((CallableStatement) statement, this, key);
+        } else {
+            ps = new ReusablePreparedStatement(statement, this, key, getResultCache());
+        }
+        ps.setDefaultFetchSize(getDefaultFetchSize(key.isStreamable()));
+        return ps;
+    }
+
+    @Override
+    public int getDefaultFetchSize(final boolean streamable) {
+        return factory.getFetchSize(streamable);
+    }
+
     /**
      * A PreparedStatement has been logically closed.
      * @param ps a prepared statement.
@@ -335,29 +527,74 @@ public class JManagedConnection implements IManagedConnection {
     public void notifyPsClose(final IPreparedStatement ps) {
         logger.fine(ps.getSql());
         synchronized (psList) {
-            psOpenNb--;
-            if (psList.size() >= pstmtmax) {
-                // Choose a closed element to remove.
-                IPreparedStatement lru = null;
-                Iterator<IPreparedStatement> i = psList.values().iterator();
-                while (i.hasNext()) {
-                    lru = i.next();
-                    if (lru.isClosed()) {
-                        // actually, remove the first closed element.
-                        i.remove();
-                        lru.forget();
-                        break;
-                    }
+            if (ps.isUnwrapped()) {
+                // The application used the physical statement, do not reuse it
+                if (psList.remove(ps.getKey(), ps)) {
+                    psOpenNb--;
                 }
+                ps.forget();
+                notifyStatementClosed(ps);
+            } else if (psList.release(ps.getKey(), ps)) {
+                // Became the most recently used idle statement, LRU ones are evicted if needed
+                psOpenNb--;
+            } else {
+                // Statement was not pooled
+                ps.forget();
+                notifyStatementClosed(ps);
             }
         }
     }
 
+    @Override
+    public QueryResultCache getResultCache() {
+        return factory.getResultCache();
+    }
+
     @Override
     public ConnectionProxy getConnectionProxy() {
         return m_connectionProxy;
     }
 
+    @Override
+    public void notifyUnwrapped() {
+        unwrapped = true;
+    }
+
+    @Override
+    public void clearUnwrapped() {
+        unwrapped = false;
+    }
+
+    @Override
+    public void notifyTransactionCompleted() {
+        List<String> updates;
+        synchronized (transactionalUpdates) {
+            if (transactionalUpdates.isEmpty()) {
+                return;
+            }
+            updates = new ArrayList<>(transactionalUpdates);
+            transactionalUpdates.clear();
+        }
+        QueryResultCache cache = getResultCache();
+        if (cache != null) {
+            for (String sql : updates) {
+                cache.invalidate(sql);
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosedByApplication() {
+        if (!unwrapped) {
+            return false;
+        }
+        try {
+            return physicalConnection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
     // XAResource
     // ---------------------------------------------------------------------------------
 
@@ -372,6 +609,8 @@ public class JManagedConnection implements IManagedConnection {
             logger.error("Cannot commit transaction", e);
             notifyError(e);
             throw new XAException("Error on commit");
+        } finally {
+            notifyTransactionCompleted();
         }
     }
 
@@ -428,6 +667,8 @@ public class JManagedConnection implements IManagedConnection {
             logger.error("Cannot rollback transaction", e);
             notifyError(e);
             throw (new XAException("Error on rollback"));
+        } finally {
+            notifyTransactionCompleted();
         }
 
     }
@@ -625,22 +866,25 @@ public class JManagedConnection implements IManagedConnection {
         // Close all PreparedStatement not already closed
         // When a Connection has been closed, no PreparedStatement should
         // remain open. This can avoids lack of cursor on some databases.
+        // Result sets first, as closing their statement would close them silently
+        int resultSets = closeAll(openedResultSets);
+        int statements = closeAll(openedStatements);
         synchronized (psList) {
             if (psOpenNb > 0) {
-                IPreparedStatement jst = null;
-                Iterator<IPreparedStatement> i = psList.values().iterator();
-                while (i.hasNext()) {
-                    jst = i.next();
-                    if (jst.forceClose()) {
-                        psOpenNb--;
-                    }
-                }
+                int closed = psList.forceCloseAll();
+                statements += closed;
+                psOpenNb -= closed;
                 if (psOpenNb != 0) {
                     logger.warn("Bad psOpenNb value = %d", psOpenNb);
                     psOpenNb = 0;
                 }
             }
         }
+        if (statements > 0 || resultSets > 0) {
+            logger.fine("Connection %d released with %d statements and %d result sets not closed",
+                        identifier, statements, resultSets);
+            factory.getResourceListener().resourcesAutoClosed(statements, resultSets);
+        }
 
         // Notify event to listeners
         for (int i = 0; i < eventListeners.size(); i++) {
@@ -663,6 +907,106 @@ public class JManagedConnection implements IManagedConnection {
         }
     }
 
+    @Override
+    public void notifyStatementExecuted(final String sql, final long elapsed, final long updatedRows) {
+        jdbcTime += elapsed;
+        factory.getStatementListener().statementExecuted(sql, elapsed, updatedRows);
+        factory.getEventRecorder().record(EventType.STATEMENT_EXECUTED, identifier, elapsed, sql);
+    }
+
+    @Override
+    public void notifyStatementFailed(final String sql, final long elapsed) {
+        jdbcTime += elapsed;
+        factory.getStatementListener().statementFailed(sql, elapsed);
+        factory.getEventRecorder().record(EventType.STATEMENT_FAILED, identifier, elapsed, sql);
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return transaction != null || !defaultProxy.isAutoCommit();
+    }
+
+    @Override
+    public void notifyTransactionalUpdate(final String sql) {
+        synchronized (transactionalUpdates) {
+            transactionalUpdates.add(sql);
+        }
+    }
+
+    @Override
+    public boolean isSlow(final long elapsed) {
+        return factory.getSlowQueryLog().isSlow(elapsed);
+    }
+
+    @Override
+    public SlowQueryLog.Parameters getSlowParameters() {
+        SlowQueryLog slowQueryLog = factory.getSlowQueryLog();
+        return slowQueryLog.isEnabled() ? slowQueryLog.getParameters() : SlowQueryLog.Parameters.NONE;
+    }
+
+    @Override
+    public void notifySlowStatement(final String sql, final long elapsed, final String parameters) {
+        factory.getSlowQueryLog().log(sql, elapsed, parameters, identifier, transaction);
+    }
+
+    @Override
+    public void notifyRowsFetched(final String sql, final long rows) {
+        factory.getStatementListener().rowsFetched(sql, rows);
+    }
+
+    @Override
+    public void notifyStatementOpened(final Statement statement) {
+        synchronized (openedStatements) {
+            openedStatements.add(statement);
+        }
+    }
+
+    @Override
+    public void notifyStatementClosed(final Statement statement) {
+        synchronized (openedStatements) {
+            openedStatements.remove(statement);
+        }
+    }
+
+    @Override
+    public void notifyResultSetOpened(final ResultSet resultSet) {
+        synchronized (openedResultSets) {
+            openedResultSets.add(resultSet);
+        }
+    }
+
+    @Override
+    public void notifyResultSetClosed(final ResultSet resultSet) {
+        synchronized (openedResultSets) {
+            openedResultSets.remove(resultSet);
+        }
+    }
+
+    /**
+     * Close the given resources, ignoring errors. Resources are closed outside of the lock
+     * as they notify their closing.
+     * @param resources opened resources, cleared
+     * @return number of closed resources
+     */
+    private <T extends AutoCloseable> int closeAll(final Set<T> resources) {
+        List<T> opened;
+        synchronized (resources) {
+            if (resources.isEmpty()) {
+                return 0;
+            }
+            opened = new ArrayList<>(resources);
+            resources.clear();
+        }
+        for (T resource : opened) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                logger.fine("Cannot close %s: %s", resource, e.getMessage());
+            }
+        }
+        return opened.size();
+    }
+
     // ---------------------------------------------------------------------
     // ConnectionNotifier
 
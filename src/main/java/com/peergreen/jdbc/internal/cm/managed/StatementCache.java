@@ -0,0 +1,291 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.managed;
+
+import com.peergreen.jdbc.internal.cm.IPreparedStatement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepared statements cache of a managed connection.
+ * Several instances of the same statement may be cached (up to a per key limit) so that an opened
+ * statement is never handed out twice. Statements currently used by the application are only indexed.
+ * Idle (logically closed) statements are also linked in a doubly linked list ordered from the least to
+ * the most recently used, so that touch and eviction are O(1). Only idle statements can be evicted.
+ * This class is not thread safe, callers have to synchronize on the cache instance.
+ * @param <K> type of the statement identity
+ */
+public class StatementCache<K> {
+
+    /**
+     * Default maximum number of cached instances of the same statement.
+     */
+    public static final int DEFAULT_MAXIMUM_INSTANCES = 4;
+
+    /**
+     * Cached statements instances, per key.
+     */
+    private final Map<K, List<Node<K>>> buckets = new HashMap<>();
+
+    /**
+     * Sentinel of the idle list: {@code idle.next} is the least recently used statement,
+     * {@code idle.previous} the most recently used.
+     */
+    private final Node<K> idle = new Node<>(null, null);
+
+    /**
+     * Maximum number of cached statements.
+     */
+    private int maximumSize;
+
+    /**
+     * Maximum number of cached instances of the same statement.
+     */
+    private int maximumInstances = DEFAULT_MAXIMUM_INSTANCES;
+
+    /**
+     * Number of cached statements (used or idle).
+     */
+    private int size = 0;
+
+    /**
+     * Number of idle statements.
+     */
+    private int idleSize = 0;
+
+    public StatementCache(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        idle.next = idle;
+        idle.previous = idle;
+    }
+
+    /**
+     * Changes the maximum size of the cache, exceeding idle statements are evicted.
+     * @param maximumSize new maximum number of cached statements
+     */
+    public void setMaximumSize(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        trim();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Changes the maximum number of cached instances of the same statement.
+     * Already cached instances are kept until evicted.
+     * @param maximumInstances new per key limit
+     */
+    public void setMaximumInstances(final int maximumInstances) {
+        this.maximumInstances = maximumInstances;
+    }
+
+    public int getMaximumInstances() {
+        return maximumInstances;
+    }
+
+    /**
+     * Lookup an idle instance of a cached statement, this instance becomes used.
+     * @param key statement identity
+     * @return an idle statement or null if none is available (use {@link #getInstances(Object)} to know if
+     * this is because all the instances are used)
+     */
+    public IPreparedStatement get(final K key) {
+        List<Node<K>> bucket = buckets.get(key);
+        if (bucket == null) {
+            return null;
+        }
+        for (Node<K> node : bucket) {
+            if (node.isIdle()) {
+                node.unlink();
+                idleSize--;
+                return node.statement;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param key statement identity
+     * @return the number of cached instances (used or idle) of the statement
+     */
+    public int getInstances(final K key) {
+        List<Node<K>> bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0;
+        }
+        return bucket.size();
+    }
+
+    /**
+     * Add a new statement instance, currently used by the application.
+     * @param key statement identity
+     * @param statement new statement
+     * @return false if the statement has not been cached because the per key limit has been reached
+     */
+    public boolean put(final K key, final IPreparedStatement statement) {
+        List<Node<K>> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            buckets.put(key, bucket);
+        } else if (bucket.size() >= maximumInstances) {
+            return false;
+        }
+        bucket.add(new Node<>(key, statement));
+        size++;
+        return true;
+    }
+
+    /**
+     * The given statement has been logically closed, it becomes the most recently used idle statement.
+     * The least recently used idle statements are then evicted if the cache is too large.
+     * @param key statement identity
+     * @param statement closed statement
+     * @return false if the statement is not cached
+     */
+    public boolean release(final K key, final IPreparedStatement statement) {
+        Node<K> node = find(key, statement);
+        if (node == null) {
+            return false;
+        }
+        if (!node.isIdle()) {
+            node.linkBefore(idle);
+            idleSize++;
+        }
+        trim();
+        return true;
+    }
+
+    /**
+     * Remove a statement (used or idle) from the cache, it is not closed.
+     * @param key statement identity
+     * @param statement cached statement
+     * @return false if the statement is not cached
+     */
+    public boolean remove(final K key, final IPreparedStatement statement) {
+        Node<K> node = find(key, statement);
+        if (node == null) {
+            return false;
+        }
+        if (node.isIdle()) {
+            node.unlink();
+            idleSize--;
+        }
+        List<Node<K>> bucket = buckets.get(key);
+        bucket.remove(node);
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Force the close of all the statements still used.
+     * @return the number of statements that were still opened
+     */
+    public int forceCloseAll() {
+        int closed = 0;
+        for (List<Node<K>> bucket : buckets.values()) {
+            for (Node<K> node : bucket) {
+                if (!node.isIdle() && node.statement.forceClose()) {
+                    node.linkBefore(idle);
+                    idleSize++;
+                    closed++;
+                }
+            }
+        }
+        trim();
+        return closed;
+    }
+
+    /**
+     * @return number of cached statements (used or idle).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of idle statements.
+     */
+    public int getIdleSize() {
+        return idleSize;
+    }
+
+    private Node<K> find(final K key, final IPreparedStatement statement) {
+        List<Node<K>> bucket = buckets.get(key);
+        if (bucket != null) {
+            for (Node<K> node : bucket) {
+                if (node.statement == statement) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evict the least recently used idle statements while the cache is too large.
+     */
+    private void trim() {
+        while (size > maximumSize && idle.next != idle) {
+            Node<K> lru = idle.next;
+            lru.unlink();
+            idleSize--;
+            List<Node<K>> bucket = buckets.get(lru.key);
+            bucket.remove(lru);
+            if (bucket.isEmpty()) {
+                buckets.remove(lru.key);
+            }
+            size--;
+            lru.statement.forget();
+        }
+    }
+
+    /**
+     * Cache entry, linked in the idle list when the statement is not used.
+     */
+    private static class Node<K> {
+        private final K key;
+        private final IPreparedStatement statement;
+        private Node<K> previous;
+        private Node<K> next;
+
+        public Node(final K key, final IPreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        public boolean isIdle() {
+            return next != null;
+        }
+
+        public void linkBefore(final Node<K> successor) {
+            next = successor;
+            previous = successor.previous;
+            previous.next = this;
+            successor.previous = this;
+        }
+
+        public void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+        }
+    }
+}
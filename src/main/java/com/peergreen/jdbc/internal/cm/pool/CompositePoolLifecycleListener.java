@@ -0,0 +1,127 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.pool;
+
+import com.peergreen.jdbc.listener.PoolLifecycleListener;
+
+import java.util.Arrays;
+
+/**
+ * Dispatches the pool events to several listeners.
+ * The listeners array is copied on write, notifications iterate it without lock nor allocation:
+ * without listener, a notification is an empty loop.
+ */
+public class CompositePoolLifecycleListener implements PoolLifecycleListener {
+
+    private static final PoolLifecycleListener[] NONE = new PoolLifecycleListener[0];
+
+    private volatile PoolLifecycleListener[] listeners = NONE;
+
+    public synchronized void addListener(final PoolLifecycleListener listener) {
+        PoolLifecycleListener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+        copy[listeners.length] = listener;
+        listeners = copy;
+    }
+
+    public synchronized void removeListener(final PoolLifecycleListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                PoolLifecycleListener[] copy = new PoolLifecycleListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, copy, 0, i);
+                System.arraycopy(listeners, i + 1, copy, i, copy.length - i);
+                listeners = copy;
+                return;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    @Override
+    public void connectionCreated() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.connectionCreated();
+        }
+    }
+
+    @Override
+    public void connectionDestroyed() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.connectionDestroyed();
+        }
+    }
+
+    @Override
+    public void connectionValidated() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.connectionValidated();
+        }
+    }
+
+    @Override
+    public void connectionBorrowed(final boolean warm) {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.connectionBorrowed(warm);
+        }
+    }
+
+    @Override
+    public void waiterStartWaiting() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.waiterStartWaiting();
+        }
+    }
+
+    @Override
+    public void waiterStopWaiting(final long waitedTime, final boolean timedOut) {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.waiterStopWaiting(waitedTime, timedOut);
+        }
+    }
+
+    @Override
+    public void waiterRejectedTimeout() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.waiterRejectedTimeout();
+        }
+    }
+
+    @Override
+    public void waiterRejectedOverflow() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.waiterRejectedOverflow();
+        }
+    }
+
+    @Override
+    public void waiterRejectedFailure() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.waiterRejectedFailure();
+        }
+    }
+
+    @Override
+    public void waiterRejectedDrain() {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.waiterRejectedDrain();
+        }
+    }
+
+    @Override
+    public void busyConnections(final int current) {
+        for (PoolLifecycleListener listener : listeners) {
+            listener.busyConnections(current);
+        }
+    }
+}
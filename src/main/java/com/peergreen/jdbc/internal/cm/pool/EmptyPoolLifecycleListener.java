@@ -11,6 +11,8 @@
 
 package com.peergreen.jdbc.internal.cm.pool;
 
+import com.peergreen.jdbc.listener.PoolLifecycleListener;
+
 /**
  * User: guillaume
  * Date: 21/10/13
@@ -32,6 +34,11 @@ public class EmptyPoolLifecycleListener implements PoolLifecycleListener {
 
     }
 
+    @Override
+    public void connectionBorrowed(final boolean warm) {
+
+    }
+
     @Override
     public void waiterStartWaiting() {
 
@@ -57,6 +64,11 @@ public class EmptyPoolLifecycleListener implements PoolLifecycleListener {
 
     }
 
+    @Override
+    public void waiterRejectedDrain() {
+
+    }
+
     @Override
     public void busyConnections(final int current) {
 
@@ -12,9 +12,21 @@
 package com.peergreen.jdbc.internal.cm.pool.internal;
 
 import com.peergreen.jdbc.internal.cm.ConnectionProxy;
+import com.peergreen.jdbc.internal.cm.EmptyStatementCacheListener;
+import com.peergreen.jdbc.internal.cm.EmptyResourceListener;
+import com.peergreen.jdbc.internal.cm.EmptyStatementListener;
 import com.peergreen.jdbc.internal.cm.IManagedConnection;
+import com.peergreen.jdbc.internal.cm.StatementCacheListener;
+import com.peergreen.jdbc.internal.cm.ResourceListener;
+import com.peergreen.jdbc.internal.cm.StatementListener;
 import com.peergreen.jdbc.internal.cm.TransactionIsolation;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import com.peergreen.jdbc.internal.cm.event.EventRecorder;
+import com.peergreen.jdbc.internal.cm.event.SlowQueryLog;
+import com.peergreen.jdbc.internal.cm.event.EventType;
+import com.peergreen.jdbc.internal.cm.managed.HotStatements;
 import com.peergreen.jdbc.internal.cm.managed.JManagedConnection;
+import com.peergreen.jdbc.internal.cm.managed.StatementCache;
 import com.peergreen.jdbc.internal.cm.pool.PoolFactory;
 import com.peergreen.jdbc.internal.log.Log;
 
@@ -69,6 +81,61 @@ public class ManagedConnectionFactory implements PoolFactory<IManagedConnection,
      */
     private String testStatement;
 
+    /**
+     * Query result cache shared by all the connections (null if disabled).
+     */
+    private QueryResultCache resultCache;
+
+    /**
+     * Maximum number of cached instances of the same statement in a connection.
+     */
+    private int preparedStatementInstances = StatementCache.DEFAULT_MAXIMUM_INSTANCES;
+
+    /**
+     * Fetch size of the statements when streaming is enabled and no fetch size is given.
+     */
+    public static final int DEFAULT_STREAMING_FETCH_SIZE = 100;
+
+    /**
+     * Fetch size given to the statements, 0 for the driver's default.
+     */
+    private int fetchSize = 0;
+
+    /**
+     * Are the results of forward only, read only statements streamed ?
+     */
+    private boolean streaming = false;
+
+    /**
+     * Notified of the prepared statements cache activity of the connections.
+     */
+    private StatementCacheListener statementCacheListener = new EmptyStatementCacheListener();
+
+    /**
+     * Notified of the statements executions on the connections.
+     */
+    private StatementListener statementListener = new EmptyStatementListener();
+
+    /**
+     * Notified of the statements and result sets closed when their connection was released.
+     */
+    private ResourceListener resourceListener = new EmptyResourceListener();
+
+    /**
+     * Records the diagnostic events of the connections (all disabled by default).
+     */
+    private EventRecorder eventRecorder = new EventRecorder();
+
+    /**
+     * Logs the slow statements of the connections (disabled by default).
+     */
+    private SlowQueryLog slowQueryLog;
+
+    /**
+     * Ranking of the most used statements over all the connections.
+     */
+    private HotStatements hotStatements = new HotStatements();
+
     private final NativeConnectionBuilder builder;
     private Log mcLogger;
 
@@ -77,6 +144,7 @@ public class ManagedConnectionFactory implements PoolFactory<IManagedConnection,
         this.listener = listener;
         this.builder = builder;
         mcLogger = logger.create("ManagedConnection");
+        slowQueryLog = new SlowQueryLog(logger.create("SlowQueries"));
     }
 
     /**
@@ -138,9 +206,116 @@ public class ManagedConnectionFactory implements PoolFactory<IManagedConnection,
         this.maxAge = age;
     }
 
+    /**
+     * @return the query result cache shared by the connections (may be null).
+     */
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * @param resultCache query result cache shared by the connections (null to disable).
+     */
+    public void setResultCache(final QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * @return maximum number of cached instances of the same statement in a connection.
+     */
+    public int getPreparedStatementInstances() {
+        return preparedStatementInstances;
+    }
+
+    /**
+     * Only applies to the connections created after the change.
+     * @param preparedStatementInstances maximum number of cached instances of the same statement in a connection.
+     */
+    public void setPreparedStatementInstances(final int preparedStatementInstances) {
+        this.preparedStatementInstances = preparedStatementInstances;
+    }
+
+    /**
+     * @param streamable true for forward only, read only statements
+     * @return fetch size given to the new statements, 0 for the driver's default
+     */
+    public int getFetchSize(final boolean streamable) {
+        if (streaming && streamable && fetchSize == 0) {
+            return DEFAULT_STREAMING_FETCH_SIZE;
+        }
+        return fetchSize;
+    }
+
+    /**
+     * Only applies to the statements prepared after the change.
+     * @param fetchSize fetch size given to the statements, 0 for the driver's default
+     */
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Only applies to the statements prepared after the change.
+     * @param streaming stream the results of forward only, read only statements
+     */
+    public void setStreaming(final boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public StatementCacheListener getStatementCacheListener() {
+        return statementCacheListener;
+    }
+
+    public void setStatementCacheListener(final StatementCacheListener statementCacheListener) {
+        this.statementCacheListener = statementCacheListener;
+    }
+
+    public StatementListener getStatementListener() {
+        return statementListener;
+    }
+
+    public void setStatementListener(final StatementListener statementListener) {
+        this.statementListener = statementListener;
+    }
+
+    public ResourceListener getResourceListener() {
+        return resourceListener;
+    }
+
+    public void setResourceListener(final ResourceListener resourceListener) {
+        this.resourceListener = resourceListener;
+    }
+
+    public EventRecorder getEventRecorder() {
+        return eventRecorder;
+    }
+
+    public void setEventRecorder(final EventRecorder eventRecorder) {
+        this.eventRecorder = eventRecorder;
+    }
+
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    public void setSlowQueryLog(final SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * @return ranking of the most used statements over all the connections.
+     */
+    public HotStatements getHotStatements() {
+        return hotStatements;
+    }
+
+    public void setHotStatements(final HotStatements hotStatements) {
+        this.hotStatements = hotStatements;
+    }
 
 
     public IManagedConnection create(final UsernamePasswordInfo info) throws SQLException {
+        long start = System.nanoTime();
         // Create the native connection in the builder
         Connection connection = builder.build(info);
 
@@ -160,11 +335,21 @@ public class ManagedConnectionFactory implements PoolFactory<IManagedConnection,
         // return the XAConnection
         JManagedConnection mc = new JManagedConnection(mcLogger, connection, this);
         mc.addConnectionEventListener(listener);
+        eventRecorder.record(EventType.CONNECTION_CREATED, mc.getIdentifier(), System.nanoTime() - start, null);
         return mc;
     }
 
     @Override
     public boolean validate(final IManagedConnection mc) {
+        long start = System.nanoTime();
+        try {
+            return check(mc);
+        } finally {
+            eventRecorder.record(EventType.CONNECTION_VALIDATED, mc.getIdentifier(), System.nanoTime() - start, null);
+        }
+    }
+
+    private boolean check(final IManagedConnection mc) {
         if (this.checkLevel > 0) {
             try {
                 ConnectionProxy handle = mc.getConnectionProxy();
@@ -188,6 +373,7 @@ public class ManagedConnectionFactory implements PoolFactory<IManagedConnection,
 
     @Override
     public void destroy(final IManagedConnection mc) {
+        eventRecorder.record(EventType.CONNECTION_DESTROYED, mc.getIdentifier(), 0, null);
         mc.remove();
     }
 }
\ No newline at end of file
@@ -12,19 +12,34 @@
 package com.peergreen.jdbc.internal.cm.pool.internal;
 
 import com.peergreen.jdbc.internal.cm.IManagedConnection;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import com.peergreen.jdbc.internal.cm.event.EventRecorder;
+import com.peergreen.jdbc.internal.cm.event.EventType;
+import com.peergreen.jdbc.internal.cm.managed.HotStatements;
 import com.peergreen.jdbc.internal.cm.pool.AdjustablePool;
 import com.peergreen.jdbc.internal.cm.pool.EmptyPoolLifecycleListener;
 import com.peergreen.jdbc.internal.cm.pool.PoolFactory;
-import com.peergreen.jdbc.internal.cm.pool.PoolLifecycleListener;
 import com.peergreen.jdbc.internal.log.Log;
+import com.peergreen.jdbc.listener.PoolLifecycleListener;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public class ManagedConnectionPool implements AdjustablePool<IManagedConnection, UsernamePasswordInfo> {
 
@@ -60,6 +75,16 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
     private static final int MAX_REMOVE_FREELIST = 10;
     public static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE = 12;
 
+    /**
+     * Default maximum time spent preparing statements on a new connection (1s).
+     */
+    public static final long DEFAULT_WARM_UP_TIMEOUT = SECOND;
+
+    /**
+     * Maximum number of idle connections validated at the same time.
+     */
+    private static final int MAX_VALIDATION_THREADS = 4;
+
     private final PoolFactory<IManagedConnection, UsernamePasswordInfo> factory;
 
     /**
@@ -74,6 +99,16 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
      */
     private List<IManagedConnection> connections = new LinkedList<>();
 
+    /**
+     * Copy of the connections, replaced on every change (connections are rarely created or destroyed).
+     */
+    private volatile IManagedConnection[] snapshot = new IManagedConnection[0];
+
+    /**
+     * Connections in use that are destroyed instead of being returned to the free list.
+     */
+    private Set<IManagedConnection> evicted = Collections.newSetFromMap(new IdentityHashMap<IManagedConnection, Boolean>());
+
     /**
      * default user.
      */
@@ -89,6 +124,21 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
      */
     private int poolMin = 0;
 
+    /**
+     * The pool is only filled up to poolMin once started.
+     */
+    private boolean started = false;
+
+    /**
+     * Once draining, the pool gives no more connections and destroys the released ones.
+     */
+    private boolean draining = false;
+
+    /**
+     * Why the background activation could not create the initial connections (null if it did).
+     */
+    private volatile Exception activationFailure = null;
+
     /**
      * maximum size of the connection pool. default value is "NO LIMIT".
      */
@@ -114,8 +164,33 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
      */
     private int preparedStatementCacheSize = DEFAULT_PREPARED_STATEMENT_CACHE_SIZE;
 
+    /**
+     * Number of hot statements prepared on the connections created to fill the pool (0 disables warm up).
+     */
+    private int warmUpSize = 0;
+
+    /**
+     * Maximum time spent preparing statements on a new connection, in milliseconds.
+     */
+    private long warmUpTimeout = DEFAULT_WARM_UP_TIMEOUT;
+
+    /**
+     * Ranking of the statements to prepare on new connections.
+     */
+    private HotStatements hotStatements;
+
+    /**
+     * Thread preparing the statements of new connections (lazily created).
+     */
+    private ExecutorService warmer;
+
     private PoolLifecycleListener listener = new EmptyPoolLifecycleListener();
 
+    /**
+     * Records the waits and the leaked connections (all disabled by default).
+     */
+    private EventRecorder eventRecorder = new EventRecorder();
+
     public ManagedConnectionPool(final Log logger, final PoolFactory<IManagedConnection, UsernamePasswordInfo> factory) {
         this.logger = logger;
         this.factory = factory;
@@ -125,6 +200,10 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
         this.listener = listener;
     }
 
+    public void setEventRecorder(final EventRecorder eventRecorder) {
+        this.eventRecorder = eventRecorder;
+    }
+
     /**
      * @param max max pool size.
      */
@@ -158,11 +237,11 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
         }
     }
 
-    public void setUserName(final String userName) {
+    public synchronized void setUserName(final String userName) {
         this.userName = userName;
     }
 
-    public void setPassword(final String password) {
+    public synchronized void setPassword(final String password) {
         this.password = password;
     }
 
@@ -181,6 +260,35 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
         return preparedStatementCacheSize;
     }
 
+    /**
+     * @param hotStatements ranking of the statements to prepare on new connections
+     */
+    public void setHotStatements(final HotStatements hotStatements) {
+        this.hotStatements = hotStatements;
+    }
+
+    /**
+     * @param warmUpSize number of hot statements prepared on the connections created to fill the pool (0 disables warm up)
+     */
+    public void setWarmUpSize(final int warmUpSize) {
+        this.warmUpSize = warmUpSize;
+    }
+
+    public int getWarmUpSize() {
+        return warmUpSize;
+    }
+
+    /**
+     * @param warmUpTimeout maximum time spent preparing statements on a new connection, in milliseconds
+     */
+    public void setWarmUpTimeoutMillis(final long warmUpTimeout) {
+        this.warmUpTimeout = warmUpTimeout;
+    }
+
+    public long getWarmUpTimeout() {
+        return warmUpTimeout;
+    }
+
     public String getUserName() {
         return userName;
     }
@@ -218,7 +326,7 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
     }
 
     public int getCurrentOpened() {
-        return connections.size();
+        return snapshot.length;
     }
 
     /**
@@ -229,11 +337,103 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
     }
 
     public void start() {
+        synchronized (this) {
+            started = true;
+        }
         // Create initial set of managed connections
         adjust();
     }
 
+    /**
+     * Start the pool without waiting for the initial connections: they are created one by one
+     * by a background thread, the pool can be used meanwhile.
+     */
+    public void startInBackground() {
+        synchronized (this) {
+            started = true;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (fillOne()) {
+                        // Lock released between each connection
+                    }
+                    activationFailure = null;
+                } catch (IllegalStateException e) {
+                    activationFailure = e;
+                    logger.error("Cannot create the initial connections, check the URL and the credentials."
+                            + " They will be created on demand", e);
+                }
+            }
+        }, "JDBC pool activation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return why the background activation could not create the initial connections, null if it did
+     */
+    public Exception getActivationFailure() {
+        return activationFailure;
+    }
+
+    /**
+     * @return true if the pool has been started (its connections may still be created in the background)
+     */
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Creates one of the initial connections, the physical connection is opened outside the lock
+     * so that the pool can serve connections meanwhile.
+     * @return true if a connection has been added, false once poolMin is reached (or the pool stopped)
+     */
+    private boolean fillOne() {
+        UsernamePasswordInfo info;
+        synchronized (this) {
+            if (!isFilling()) {
+                return false;
+            }
+            info = new UsernamePasswordInfo(userName, password);
+        }
+        IManagedConnection mc = create(info);
+        synchronized (this) {
+            if (isFilling()) {
+                addAvailable(mc);
+                return true;
+            }
+        }
+        // Stopped, drained or filled by the application meanwhile
+        factory.destroy(mc);
+        listener.connectionDestroyed();
+        return false;
+    }
+
+    /**
+     * @return true if connections have to be created to reach poolMin (without exceeding poolMax)
+     */
+    private boolean isFilling() {
+        return started && !draining && getKeptConnections() < this.poolMin && !isMaximumSizeReached();
+    }
+
+    /**
+     * @return number of connections that will return to the free list (the evicted ones will be destroyed)
+     */
+    private int getKeptConnections() {
+        return this.connections.size() - this.evicted.size();
+    }
+
     public void stop() {
+        synchronized (this) {
+            started = false;
+            if (warmer != null) {
+                warmer.shutdownNow();
+                warmer = null;
+            }
+        }
+
         // Remove available elements first
         List<IManagedConnection> available = new ArrayList<>(availables);
         for (IManagedConnection connection : available) {
@@ -267,7 +467,7 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
         // Remove max aged elements in freelist
         // - Not more than MAX_REMOVE_FREELIST
         // - Don't reduce pool size less than poolMin
-        int count = this.connections.size() - this.poolMin;
+        int count = getKeptConnections() - this.poolMin;
         // In case count is null, a new connection will be
         // recreated just after
         if (count >= 0) {
@@ -296,7 +496,10 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
             IManagedConnection mc = i.next();
             if (mc.inactive()) {
                 logger.warn("close a timed out open connection %d", mc.getIdentifier());
+                eventRecorder.record(EventType.CONNECTION_LEAKED, mc.getIdentifier(), mc.getHeldTime(), null);
                 i.remove();
+                connectionsChanged();
+                evicted.remove(mc);
                 // destroy mc
                 factory.destroy(mc);
                 listener.connectionDestroyed();
@@ -321,25 +524,195 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
         recomputeBusy();
 
         // Recreate more Connections while poolMin is not reached
-        while (this.connections.size() < this.poolMin) {
-            IManagedConnection mc = null;
+        while (isFilling()) {
+            addAvailable(create(new UsernamePasswordInfo(userName, password)));
+        }
+    }
+
+    private IManagedConnection create(final UsernamePasswordInfo info) {
+        try {
+            IManagedConnection mc = factory.create(info);
+            listener.connectionCreated();
+            return mc;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create " + this.poolMin + " mcs in the pool : ", e);
+        }
+    }
+
+    /**
+     * Adds a new connection to the pool, available once its statements are prepared.
+     * @param mc created connection
+     */
+    private void addAvailable(final IManagedConnection mc) {
+        // tx = null. Assumes maxage already configured.
+        this.connections.add(mc);
+        connectionsChanged();
+        if (!warmUp(mc)) {
+            this.availables.add(mc);
+        }
+
+        // Notify 1 thread waiting for a Connection.
+        if (this.currentWaiters > 0) {
+            notify();
+        }
+    }
+
+    /**
+     * Stop giving connections and wait for the borrowed ones to be released, they are then destroyed.
+     * Idle connections are destroyed immediately and the waiters are rejected.
+     * @param timeoutMillis maximum time to wait for the borrowed connections
+     * @return number of connections still borrowed when the deadline expired
+     */
+    public synchronized int drain(final long timeoutMillis) {
+        draining = true;
+        destroyAvailables();
+        // Waiters are rejected
+        notifyAll();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long report = start;
+        while (!this.connections.isEmpty()) {
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                break;
+            }
+            if (now - report >= TimeUnit.MILLISECONDS.toNanos(SECOND)) {
+                logger.info("Draining: %d connection(s) still in use", this.connections.size());
+                report = now;
+            }
             try {
-                mc = factory.create(new UsernamePasswordInfo(userName, password));
-                listener.connectionCreated();
-            } catch (Exception e) {
-                throw new IllegalStateException("Could not create " + this.poolMin + " mcs in the pool : ", e);
+                wait(Math.max(1, Math.min(SECOND, TimeUnit.NANOSECONDS.toMillis(deadline - now))));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
-            // tx = null. Assumes maxage already configured.
-            this.availables.add(mc);
-            this.connections.add(mc);
+        }
+        int remaining = this.connections.size();
+        logger.info("Drained in %d ms, %d connection(s) still in use",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), remaining);
+        return remaining;
+    }
+
+    /**
+     * @return true once {@link #drain(long)} has been called
+     */
+    public synchronized boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Destroy the connections of the free list, the pool is then filled up to poolMin.
+     * @return number of destroyed connections
+     */
+    public synchronized int flush() {
+        int count = destroyAvailables();
+        adjust();
+        return count;
+    }
+
+    /**
+     * Destroy the connections of the free list, and the connections in use when they are released.
+     * New connections are created to fill the pool up to poolMin.
+     * @return number of evicted connections (destroyed now or on release)
+     */
+    public synchronized int evict() {
+        int count = destroyAvailables();
+        evicted.addAll(connections);
+        count += connections.size();
+        adjust();
+        return count;
+    }
 
-            // Notify 1 thread waiting for a Connection.
-            if (this.currentWaiters > 0) {
-                notify();
+    private int destroyAvailables() {
+        List<IManagedConnection> available = new ArrayList<>(availables);
+        availables.clear();
+        for (IManagedConnection mc : available) {
+            discard(mc, false);
+        }
+        return available.size();
+    }
+
+    /**
+     * Validate the connections of the free list in parallel. They are unavailable during
+     * the validation, the invalid ones are destroyed and replaced if needed to keep poolMin.
+     * @return number of destroyed connections
+     */
+    public int validateAvailables() {
+        final List<IManagedConnection> idle;
+        synchronized (this) {
+            idle = new ArrayList<>(availables);
+            availables.clear();
+            recomputeBusy();
+        }
+        if (idle.isEmpty()) {
+            return 0;
+        }
+        ExecutorService validators = Executors.newFixedThreadPool(Math.min(idle.size(), MAX_VALIDATION_THREADS), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "JDBC connections validation");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Boolean>> validations = new ArrayList<>(idle.size());
+            for (final IManagedConnection mc : idle) {
+                validations.add(validators.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return factory.validate(mc);
+                    }
+                }));
             }
+            int invalid = 0;
+            for (int i = 0; i < idle.size(); i++) {
+                IManagedConnection mc = idle.get(i);
+                if (isValid(validations.get(i))) {
+                    listener.connectionValidated();
+                    release(mc);
+                } else {
+                    logger.fine("remove invalid connection %d", mc.getIdentifier());
+                    discard(mc);
+                    invalid++;
+                }
+            }
+            if (invalid > 0) {
+                adjust();
+            }
+            return invalid;
+        } finally {
+            validators.shutdown();
+        }
+    }
+
+    private static boolean isValid(final Future<Boolean> validation) {
+        try {
+            return validation.get();
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            // Keep the connection, it is validated anyway before being reused
+            Thread.currentThread().interrupt();
+            return true;
         }
     }
 
+    /**
+     * @return the connections physically opened (available or not), read without the pool lock
+     */
+    public List<IManagedConnection> getConnections() {
+        return Collections.unmodifiableList(Arrays.asList(snapshot));
+    }
+
+    /**
+     * Publish a copy of the connections for the readers that must not take the pool lock.
+     */
+    private void connectionsChanged() {
+        snapshot = connections.toArray(new IManagedConnection[connections.size()]);
+    }
+
     public IManagedConnection get() throws Exception {
         return get(null);
     }
@@ -352,11 +725,26 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
             info = new UsernamePasswordInfo(userName, password);
         }
 
+        if (draining) {
+            listener.waiterRejectedDrain();
+            throw new SQLException("The pool is drained, no more connections");
+        }
+
         IManagedConnection mc = null;
         // Loop until a valid mc is found
         long timeout = this.waiterTimeout;
+        // Monotonic time of the beginning of the wait, the whole wait is reported once
         long before = 0;
+        boolean waiting = false;
         while (mc == null) {
+            if (draining) {
+                // Drain started during the wait
+                if (waiting) {
+                    listener.waiterStopWaiting(System.nanoTime() - before, true);
+                }
+                listener.waiterRejectedDrain();
+                throw new SQLException("The pool is drained, no more connections");
+            }
             // try to find an mc in the free list
             if (this.availables.isEmpty()) {
                 // In case we have reached the maximum limit of the pool,
@@ -369,13 +757,13 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
                         if (isWaitPossible()) {
                             this.currentWaiters++;
 
-                            if (before == 0) {
-                                before = System.currentTimeMillis();
+                            if (!waiting) {
+                                waiting = true;
+                                before = System.nanoTime();
                                 logger.fine("Wait for a free Connection, %d", this.connections.size());
+                                listener.waiterStartWaiting();
                             }
 
-                            listener.waiterStartWaiting();
-
                             try {
                                 wait(timeout);
                             } catch (InterruptedException ign) {
@@ -383,13 +771,10 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
                             } finally {
                                 this.currentWaiters--;
                             }
-                            long after = System.currentTimeMillis();
-                            long waited = after - before;
+                            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before);
                             timeout = this.waiterTimeout - waited;
                             expired = (timeout <= 0);
 
-                            listener.waiterStopWaiting(timeout, expired);
-
                             if (!expired) {
                                 // I'm really not sure that we should test connection pseudo availability here
                                 // We have been notified by a released connection
@@ -402,7 +787,9 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
                         }
                     }
                     if (expired && this.availables.isEmpty() && isMaximumSizeReached()) {
-                        if (before > 0) {
+                        if (waiting) {
+                            listener.waiterStopWaiting(System.nanoTime() - before, true);
+                            eventRecorder.record(EventType.CONNECTION_WAITED, -1, System.nanoTime() - before, null);
                             listener.waiterRejectedTimeout();
                             logger.warn("Cannot create a Connection - timeout");
                         } else {
@@ -419,19 +806,21 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
                     mc = factory.create(info);
                     listener.connectionCreated();
                 } catch (Exception e) {
+                    if (waiting) {
+                        listener.waiterStopWaiting(System.nanoTime() - before, false);
+                    }
                     listener.waiterRejectedFailure();
                     logger.warn("Cannot create new Connection for transaction", e);
                     throw e;
                 }
                 this.connections.add(mc);
+                connectionsChanged();
             } else {
                 mc = this.availables.iterator().next();
                 this.availables.remove(mc);
                 // Check the connection before reusing it
                 if (!factory.validate(mc)) {
-                    factory.destroy(mc);
-                    listener.connectionDestroyed();
-                    before = 0;
+                    discard(mc, false);
                     mc = null;
                 } else {
                     listener.connectionValidated();
@@ -439,12 +828,72 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
             }
         }
 
+        if (waiting) {
+            listener.waiterStopWaiting(System.nanoTime() - before, false);
+            eventRecorder.record(EventType.CONNECTION_WAITED, mc.getIdentifier(), System.nanoTime() - before, null);
+        }
+
         // Update PreparedStatement cache size value
         mc.setPstmtMax(preparedStatementCacheSize);
+        listener.connectionBorrowed(mc.isWarmedUp());
         recomputeBusy();
         return mc;
     }
 
+    /**
+     * Prepare the hot statements on a new connection in the background. The connection
+     * only enters the free list once its statements have been prepared.
+     * @param mc new connection (not yet available)
+     * @return false if the connection does not need to be warmed up
+     */
+    private boolean warmUp(final IManagedConnection mc) {
+        if (warmUpSize <= 0 || hotStatements == null || preparedStatementCacheSize <= 0) {
+            return false;
+        }
+        final List<StatementKey> keys = hotStatements.getTop(Math.min(warmUpSize, preparedStatementCacheSize));
+        if (keys.isEmpty()) {
+            return false;
+        }
+        if (warmer == null) {
+            warmer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(runnable, "JDBC connections warm up");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        try {
+            warmer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mc.setPstmtMax(preparedStatementCacheSize);
+                    int prepared = mc.warmUp(keys, warmUpTimeout);
+                    logger.fine("%d statements prepared on connection %d", prepared, mc.getIdentifier());
+                    if (prepared > 0) {
+                        mc.notifyWarmedUp();
+                    }
+                    warmedUp(mc);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The statements of a new connection have been prepared, the connection becomes available
+     * (unless it has been discarded in the meantime).
+     * @param mc warmed up connection
+     */
+    private synchronized void warmedUp(final IManagedConnection mc) {
+        if (this.connections.contains(mc)) {
+            release(mc);
+        }
+    }
+
     private boolean isWaitPossible() {
         return this.currentWaiters < this.maxWaiters;
     }
@@ -460,6 +909,25 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
      */
     @Override
     public synchronized void release(final IManagedConnection item) {
+        if (draining) {
+            logger.fine("item destroyed while draining: %d", item.getIdentifier());
+            discard(item, false);
+            return;
+        }
+        if (evicted.contains(item)) {
+            logger.fine("evicted item destroyed: %d", item.getIdentifier());
+            discard(item);
+            // A replacement may be needed to keep poolMin
+            adjust();
+            return;
+        }
+        if (item.isClosedByApplication()) {
+            logger.warn("Connection %d closed through its unwrapped physical connection, destroyed", item.getIdentifier());
+            discard(item);
+            return;
+        }
+        item.clearUnwrapped();
+
         // Add it to the free list
         // Even if maxage is reached, because we avoids going under min pool
         // size.
@@ -494,12 +962,18 @@ public class ManagedConnectionPool implements AdjustablePool<IManagedConnection,
      */
     public synchronized void discard(final IManagedConnection mc, boolean notify) {
         this.connections.remove(mc);
+        connectionsChanged();
+        this.evicted.remove(mc);
         factory.destroy(mc);
         listener.connectionDestroyed();
         // Notify 1 thread waiting for a Connection.
         if (notify && (this.currentWaiters > 0)) {
             notify();
         }
+        if (draining) {
+            // Wake up the drain
+            notifyAll();
+        }
         recomputeBusy();
     }
 
@@ -31,14 +31,20 @@ public class DataSourceNativeConnectionBuilder implements NativeConnectionBuilde
     /**
      * Factory for native connection.
      */
-    private final DataSource source;
-
+    private volatile DataSource source;
 
     public DataSourceNativeConnectionBuilder(final com.peergreen.jdbc.internal.log.Log logger, final DataSource source) {
         this.logger = logger;
         this.source = source;
     }
 
+    /**
+     * Replace the factory, only the connections built afterward are affected.
+     */
+    public void setDataSource(final DataSource source) {
+        this.source = source;
+    }
+
     public void setLoginTimeout(int timeout) {
         try {
             source.setLoginTimeout(timeout);
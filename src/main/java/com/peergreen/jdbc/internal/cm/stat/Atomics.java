@@ -0,0 +1,37 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free minimum and maximum updates, the value is only written when it changes.
+ */
+final class Atomics {
+
+    private Atomics() {
+    }
+
+    static void updateMinimum(final AtomicLong minimum, final long value) {
+        long current = minimum.get();
+        while (value < current && !minimum.compareAndSet(current, value)) {
+            current = minimum.get();
+        }
+    }
+
+    static void updateMaximum(final AtomicLong maximum, final long value) {
+        long current = maximum.get();
+        while (value > current && !maximum.compareAndSet(current, value)) {
+            current = maximum.get();
+        }
+    }
+}
@@ -11,46 +11,95 @@
 
 package com.peergreen.jdbc.internal.cm.stat;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.peergreen.jdbc.internal.cm.stat.Atomics.updateMaximum;
+import static com.peergreen.jdbc.internal.cm.stat.Atomics.updateMinimum;
+
 /**
  * Counter represents a counter that is incremented/decremented
  * when a new value is provided.
+ * Safe for concurrent updates.
  */
-public class Counter implements Updatable {
-    private long latest;
-    private long minimum = Long.MAX_VALUE;
-    private long maximum = Long.MIN_VALUE;
+public class Counter implements Updatable, Sampler {
+    private final AtomicLong latest;
+    private final AtomicLong minimum = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximum = new AtomicLong(Long.MIN_VALUE);
+
+    // Extremes of the current period and of the completed ones
+    private final AtomicLong periodMinimum;
+    private final AtomicLong periodMaximum;
+    private final Ring<Long> minima = new Ring<>();
+    private final Ring<Long> maxima = new Ring<>();
 
     public Counter() {
         this(0);
     }
 
     public Counter(final long initial) {
-        this.latest = initial;
+        this.latest = new AtomicLong(initial);
+        this.periodMinimum = new AtomicLong(initial);
+        this.periodMaximum = new AtomicLong(initial);
     }
 
     public long getLatest() {
-        return latest;
+        return latest.get();
     }
 
     public long getMinimum() {
-        return minimum;
+        return minimum.get();
     }
 
     public long getMaximum() {
-        return maximum;
+        return maximum.get();
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return lowest value during the given window, Long.MAX_VALUE if no period is completed
+     */
+    public synchronized long getMinimum(final int window) {
+        return Ring.minimum(minima, window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return highest value during the given window, Long.MIN_VALUE if no period is completed
+     */
+    public synchronized long getMaximum(final int window) {
+        return Ring.maximum(maxima, window);
     }
 
     @Override
     public void update(final long value) {
         // increment or decrement counter
-        latest += value;
+        long current = latest.addAndGet(value);
 
         // Update minimum and maximum values
-        if (latest < minimum) {
-            minimum = latest;
-        }
-        if (latest > maximum) {
-            maximum = latest;
-        }
+        updateMinimum(minimum, current);
+        updateMaximum(maximum, current);
+        updateMinimum(periodMinimum, current);
+        updateMaximum(periodMaximum, current);
+    }
+
+    @Override
+    public synchronized void sample() {
+        // The next period starts at the current value
+        long current = latest.get();
+        minima.add(periodMinimum.getAndSet(current));
+        maxima.add(periodMaximum.getAndSet(current));
+    }
+
+    /**
+     * Minimum and maximum restart from the current value, the windows restart.
+     */
+    public synchronized void reset() {
+        long current = latest.get();
+        minimum.set(current);
+        maximum.set(current);
+        periodMinimum.set(current);
+        periodMaximum.set(current);
+        minima.clear();
+        maxima.clear();
     }
 }
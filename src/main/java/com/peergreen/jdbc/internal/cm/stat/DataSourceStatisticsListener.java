@@ -11,37 +11,62 @@
 
 package com.peergreen.jdbc.internal.cm.stat;
 
-import com.peergreen.jdbc.internal.cm.ConnectionManagerListener;
-import com.peergreen.jdbc.internal.cm.pool.PoolLifecycleListener;
+import com.peergreen.jdbc.internal.cm.ResourceListener;
+import com.peergreen.jdbc.internal.cm.StatementCacheListener;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import com.peergreen.jdbc.listener.ConnectionManagerListener;
+import com.peergreen.jdbc.listener.PoolLifecycleListener;
 
 import javax.transaction.Transaction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * User: guillaume
  * Date: 08/10/13
  * Time: 16:48
  */
-public class DataSourceStatisticsListener implements PoolLifecycleListener, ConnectionManagerListener {
+public class DataSourceStatisticsListener implements PoolLifecycleListener, ConnectionManagerListener, StatementCacheListener, ResourceListener, Sampler {
 
     // Boundaries
     private final long from;
-    private long to;
+    private volatile long to;
+    private final Ring<Long> samples = new Ring<>();
 
     // Counters
-    private Duration waitedTime = new Duration();
-    private Value busy = new Value();
-    private Counter waiters = new Counter();
-    private Increment createdConnections = new Increment();
-    private Increment destroyedConnections = new Increment();
-    private Increment reuseOfConnections = new Increment();
-    private Increment timeoutRejection = new Increment();
-    private Increment overflowRejection = new Increment();
-    private Increment failureRejection = new Increment();
-    private Increment servedConnections = new Increment();
-    private Counter inTransaction = new Counter();
-    private Increment completedConnections = new Increment();
-    private PartitionIncrement perTransactionConnections = new PartitionIncrement();
-    private Increment enlistmentFailures = new Increment();
+    private final Duration waitedTime = new Duration();
+    private final Histogram waitedTimeHistogram = new Histogram();
+    private final Value busy = new Value();
+    private final Counter waiters = new Counter();
+    private final Increment createdConnections = new Increment();
+    private final Increment destroyedConnections = new Increment();
+    private final Increment reuseOfConnections = new Increment();
+    private final Increment timeoutRejection = new Increment();
+    private final Increment overflowRejection = new Increment();
+    private final Increment failureRejection = new Increment();
+    private final Increment drainRejection = new Increment();
+    private final Increment servedConnections = new Increment();
+    private final Counter inTransaction = new Counter();
+    private final Increment completedConnections = new Increment();
+    private final Distribution perTransactionConnections = new Distribution();
+    private final Increment enlistmentFailures = new Increment();
+    private final Increment preparedStatementHits = new Increment();
+    private final Increment preparedStatementMisses = new Increment();
+    private final Increment callableStatementHits = new Increment();
+    private final Increment callableStatementMisses = new Increment();
+    private final Increment preparedStatementBusy = new Increment();
+    private final Increment callableStatementBusy = new Increment();
+    private final Increment warmBorrows = new Increment();
+    private final Increment coldBorrows = new Increment();
+    private final Increment autoClosedStatements = new Increment();
+    private final Increment autoClosedResultSets = new Increment();
+    private final Duration heldTime = new Duration();
+    private final Histogram heldTimeHistogram = new Histogram();
+    private final Duration idleHeldTime = new Duration();
+    private final Histogram idleHeldTimeHistogram = new Histogram();
+    private final Distribution transactionHeldTime = new Distribution();
+    private final Distribution transactionIdleHeldTime = new Distribution();
 
     public DataSourceStatisticsListener() {
         this(System.currentTimeMillis());
@@ -49,12 +74,20 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
 
     public DataSourceStatisticsListener(final long from) {
         this.from = from;
+        samples.add(from);
     }
 
     public Duration getWaitedTime() {
         return waitedTime;
     }
 
+    /**
+     * Distribution of the time waited for a connection, in nanoseconds.
+     */
+    public Histogram getWaitedTimeHistogram() {
+        return waitedTimeHistogram;
+    }
+
     public Value getBusy() {
         return busy;
     }
@@ -94,6 +127,13 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
         return failureRejection;
     }
 
+    /**
+     * Connections refused while the pool is drained, not an overflow of the pool.
+     */
+    public Increment getDrainRejection() {
+        return drainRejection;
+    }
+
     public Increment getServedConnections() {
         return servedConnections;
     }
@@ -106,7 +146,10 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
         return completedConnections;
     }
 
-    public PartitionIncrement getPerTransactionConnections() {
+    /**
+     * Number of times a connection has been served again in the same transaction, per completed transaction.
+     */
+    public Distribution getPerTransactionConnections() {
         return perTransactionConnections;
     }
 
@@ -114,6 +157,101 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
         return enlistmentFailures;
     }
 
+    public Increment getPreparedStatementHits() {
+        return preparedStatementHits;
+    }
+
+    public Increment getPreparedStatementMisses() {
+        return preparedStatementMisses;
+    }
+
+    public Increment getCallableStatementHits() {
+        return callableStatementHits;
+    }
+
+    public Increment getCallableStatementMisses() {
+        return callableStatementMisses;
+    }
+
+    public Increment getPreparedStatementBusy() {
+        return preparedStatementBusy;
+    }
+
+    public Increment getCallableStatementBusy() {
+        return callableStatementBusy;
+    }
+
+    /**
+     * Connections borrowed with prepared statements already cached.
+     */
+    public Increment getWarmBorrows() {
+        return warmBorrows;
+    }
+
+    /**
+     * Connections borrowed with an empty statement cache.
+     */
+    public Increment getColdBorrows() {
+        return coldBorrows;
+    }
+
+    /**
+     * Statements left opened by the application, closed when their connection was released.
+     */
+    public Increment getAutoClosedStatements() {
+        return autoClosedStatements;
+    }
+
+    /**
+     * Result sets left opened by the application, closed when their connection was released.
+     */
+    public Increment getAutoClosedResultSets() {
+        return autoClosedResultSets;
+    }
+
+    /**
+     * Time connections are kept by the application, in milliseconds.
+     */
+    public Duration getHeldTime() {
+        return heldTime;
+    }
+
+    /**
+     * Distribution of the time connections are kept by the application, in nanoseconds.
+     */
+    public Histogram getHeldTimeHistogram() {
+        return heldTimeHistogram;
+    }
+
+    /**
+     * Time connections are kept by the application without executing statements, in milliseconds.
+     */
+    public Duration getIdleHeldTime() {
+        return idleHeldTime;
+    }
+
+    /**
+     * Distribution of the time connections are kept by the application without executing statements,
+     * in nanoseconds.
+     */
+    public Histogram getIdleHeldTimeHistogram() {
+        return idleHeldTimeHistogram;
+    }
+
+    /**
+     * Time a connection is kept by the application per transaction, in nanoseconds.
+     */
+    public Distribution getTransactionHeldTime() {
+        return transactionHeldTime;
+    }
+
+    /**
+     * Time a connection is kept by the application without executing statements per transaction, in nanoseconds.
+     */
+    public Distribution getTransactionIdleHeldTime() {
+        return transactionIdleHeldTime;
+    }
+
     public long getFrom() {
         return from;
     }
@@ -122,6 +260,106 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
         return to;
     }
 
+    /**
+     * @param window number of completed periods
+     * @return time covered by the given window, in seconds (0 when no period is completed)
+     */
+    public synchronized double getPeriodSeconds(final int window) {
+        return (samples.get(0) - samples.get(window)) / 1000d;
+    }
+
+    @Override
+    public synchronized void sample() {
+        waitedTime.sample();
+        waitedTimeHistogram.sample();
+        busy.sample();
+        waiters.sample();
+        createdConnections.sample();
+        destroyedConnections.sample();
+        reuseOfConnections.sample();
+        timeoutRejection.sample();
+        overflowRejection.sample();
+        failureRejection.sample();
+        drainRejection.sample();
+        servedConnections.sample();
+        inTransaction.sample();
+        completedConnections.sample();
+        perTransactionConnections.sample();
+        enlistmentFailures.sample();
+        preparedStatementHits.sample();
+        preparedStatementMisses.sample();
+        callableStatementHits.sample();
+        callableStatementMisses.sample();
+        preparedStatementBusy.sample();
+        callableStatementBusy.sample();
+        warmBorrows.sample();
+        coldBorrows.sample();
+        autoClosedStatements.sample();
+        autoClosedResultSets.sample();
+        heldTime.sample();
+        heldTimeHistogram.sample();
+        idleHeldTime.sample();
+        idleHeldTimeHistogram.sample();
+        transactionHeldTime.sample();
+        transactionIdleHeldTime.sample();
+        samples.add(System.currentTimeMillis());
+    }
+
+    /**
+     * Restarts the counters from 0 (the gauges keep their current level), the windows too.
+     * Each counter is atomically read and reset, the snapshot is not consistent across counters.
+     * @return values before the reset
+     */
+    public synchronized Map<String, Long> reset() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        Duration waited = waitedTime.reset();
+        snapshot.put("waitedTimeTotal", waited.getTotal());
+        snapshot.put("waitedTimeMaximum", waited.getMaximum());
+        waitedTimeHistogram.reset();
+        snapshot.put("waitersMaximum", waiters.getMaximum());
+        waiters.reset();
+        snapshot.put("busyMaximum", busy.getMaximum());
+        busy.reset();
+        snapshot.put("createdConnections", createdConnections.reset());
+        snapshot.put("destroyedConnections", destroyedConnections.reset());
+        snapshot.put("reusedConnections", reuseOfConnections.reset());
+        snapshot.put("timeoutRejections", timeoutRejection.reset());
+        snapshot.put("overflowRejections", overflowRejection.reset());
+        snapshot.put("failureRejections", failureRejection.reset());
+        snapshot.put("drainRejections", drainRejection.reset());
+        snapshot.put("servedConnections", servedConnections.reset());
+        snapshot.put("inTransactionMaximum", inTransaction.getMaximum());
+        inTransaction.reset();
+        snapshot.put("completedConnections", completedConnections.reset());
+        Duration reuses = perTransactionConnections.reset();
+        snapshot.put("perTransactionReusesTotal", reuses.getTotal());
+        snapshot.put("perTransactionReusesMaximum", Math.max(reuses.getMaximum(), 0));
+        snapshot.put("enlistmentFailures", enlistmentFailures.reset());
+        snapshot.put("preparedStatementHits", preparedStatementHits.reset());
+        snapshot.put("preparedStatementMisses", preparedStatementMisses.reset());
+        snapshot.put("callableStatementHits", callableStatementHits.reset());
+        snapshot.put("callableStatementMisses", callableStatementMisses.reset());
+        snapshot.put("preparedStatementBusy", preparedStatementBusy.reset());
+        snapshot.put("callableStatementBusy", callableStatementBusy.reset());
+        snapshot.put("warmBorrows", warmBorrows.reset());
+        snapshot.put("coldBorrows", coldBorrows.reset());
+        snapshot.put("autoClosedStatements", autoClosedStatements.reset());
+        snapshot.put("autoClosedResultSets", autoClosedResultSets.reset());
+        Duration held = heldTime.reset();
+        snapshot.put("heldTimeTotal", held.getTotal());
+        snapshot.put("heldTimeMaximum", held.getMaximum());
+        heldTimeHistogram.reset();
+        Duration idle = idleHeldTime.reset();
+        snapshot.put("idleHeldTimeTotal", idle.getTotal());
+        snapshot.put("idleHeldTimeMaximum", idle.getMaximum());
+        idleHeldTimeHistogram.reset();
+        transactionHeldTime.reset();
+        transactionIdleHeldTime.reset();
+        samples.clear();
+        samples.add(System.currentTimeMillis());
+        return snapshot;
+    }
+
     @Override
     public void connectionCreated() {
         createdConnections.update(1);
@@ -129,8 +367,11 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
     }
 
     private void update() {
-        // Update top boundary
-        to = System.currentTimeMillis();
+        // Update top boundary, only written when it changes to limit the contention
+        long now = System.currentTimeMillis();
+        if (now != to) {
+            to = now;
+        }
     }
 
     @Override
@@ -145,6 +386,16 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
         update();
     }
 
+    @Override
+    public void connectionBorrowed(final boolean warm) {
+        if (warm) {
+            warmBorrows.update(1);
+        } else {
+            coldBorrows.update(1);
+        }
+        update();
+    }
+
     @Override
     public void waiterStartWaiting() {
         waiters.update(1);
@@ -154,7 +405,8 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
     @Override
     public void waiterStopWaiting(final long elapsed, final boolean timedOut) {
         waiters.update(-1);
-        waitedTime.update(elapsed);
+        waitedTime.update(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        waitedTimeHistogram.update(elapsed);
         update();
     }
 
@@ -176,6 +428,12 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
         update();
     }
 
+    @Override
+    public void waiterRejectedDrain() {
+        drainRejection.update(1);
+        update();
+    }
+
     @Override
     public void busyConnections(final int current) {
         busy.update(current);
@@ -208,14 +466,66 @@ public class DataSourceStatisticsListener implements PoolLifecycleListener, Conn
 
     @Override
     public void connectionReusedInSameTransaction(final Transaction transaction) {
-        perTransactionConnections.increment(transaction);
+        // Counted on the transaction association, reported when the transaction completes
         update();
     }
 
     @Override
-    public void connectionFreedAfterTransactionCompletion(final Transaction transaction) {
+    public void connectionFreedAfterTransactionCompletion(final Transaction transaction,
+                                                         final int reuses,
+                                                         final long heldTime,
+                                                         final long idleHeldTime) {
         completedConnections.update(1);
-        perTransactionConnections.forget(transaction);
+        perTransactionConnections.update(reuses);
+        transactionHeldTime.update(heldTime);
+        transactionIdleHeldTime.update(idleHeldTime);
+        update();
+    }
+
+    @Override
+    public void connectionReleased(final Transaction transaction, final long held, final long jdbc) {
+        long idle = Math.max(held - jdbc, 0);
+        heldTime.update(TimeUnit.NANOSECONDS.toMillis(held));
+        heldTimeHistogram.update(held);
+        idleHeldTime.update(TimeUnit.NANOSECONDS.toMillis(idle));
+        idleHeldTimeHistogram.update(idle);
+        update();
+    }
+
+    @Override
+    public void statementCacheHit(final StatementKey.Kind kind) {
+        if (kind == StatementKey.Kind.CALLABLE) {
+            callableStatementHits.update(1);
+        } else {
+            preparedStatementHits.update(1);
+        }
+        update();
+    }
+
+    @Override
+    public void statementCacheMiss(final StatementKey.Kind kind) {
+        if (kind == StatementKey.Kind.CALLABLE) {
+            callableStatementMisses.update(1);
+        } else {
+            preparedStatementMisses.update(1);
+        }
+        update();
+    }
+
+    @Override
+    public void statementCacheBusy(final StatementKey.Kind kind) {
+        if (kind == StatementKey.Kind.CALLABLE) {
+            callableStatementBusy.update(1);
+        } else {
+            preparedStatementBusy.update(1);
+        }
+        update();
+    }
+
+    @Override
+    public void resourcesAutoClosed(final int statements, final int resultSets) {
+        autoClosedStatements.add(statements);
+        autoClosedResultSets.add(resultSets);
         update();
     }
 }
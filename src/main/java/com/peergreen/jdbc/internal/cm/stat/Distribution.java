@@ -0,0 +1,81 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+/**
+ * Streaming aggregate of values: count, average, maximum and percentiles,
+ * without keeping the values themselves. Reads do not depend on the number of values.
+ */
+public class Distribution implements Updatable, Sampler {
+    private final Duration values = new Duration();
+    private final Histogram histogram = new Histogram();
+
+    @Override
+    public void update(final long value) {
+        values.update(value);
+        histogram.update(value);
+    }
+
+    public long getCount() {
+        return values.getCount();
+    }
+
+    public double getAverage() {
+        return values.getAverage();
+    }
+
+    /**
+     * @return highest value, 0 if none
+     */
+    public long getMaximum() {
+        return Math.max(values.getMaximum(), 0);
+    }
+
+    /**
+     * @param percentile requested percentile, between 0 and 100
+     * @return upper bound of the given percentile, 0 if none
+     */
+    public long getPercentile(final double percentile) {
+        return histogram.getPercentile(percentile);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return average of the values during the given window
+     */
+    public double getAverage(final int window) {
+        return values.getAverage(window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return highest value during the given window, 0 if none
+     */
+    public long getMaximum(final int window) {
+        return Math.max(values.getMaximum(window), 0);
+    }
+
+    @Override
+    public void sample() {
+        values.sample();
+        histogram.sample();
+    }
+
+    /**
+     * Restarts from no value, the windows too.
+     * @return the count, total and extremes before the reset
+     */
+    public Duration reset() {
+        histogram.reset();
+        return values.reset();
+    }
+}
@@ -12,44 +12,147 @@
 package com.peergreen.jdbc.internal.cm.stat;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.peergreen.jdbc.internal.cm.stat.Atomics.updateMaximum;
+import static com.peergreen.jdbc.internal.cm.stat.Atomics.updateMinimum;
 
 /**
  * User: guillaume
  * Date: 08/10/13
  * Time: 16:43
  */
-public class Duration implements Updatable {
-    private long values = 0;
-    private long total = 0;
-    private long minimum = Long.MAX_VALUE;
-    private long maximum = Long.MIN_VALUE;
-    private double average = 0;
+public class Duration implements Updatable, Sampler {
+    private final AtomicLong values = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong minimum = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximum = new AtomicLong(Long.MIN_VALUE);
+
+    // Extremes of the current period, samples of the completed ones
+    private final AtomicLong periodMinimum = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong periodMaximum = new AtomicLong(Long.MIN_VALUE);
+    private final Ring<Long> counts = new Ring<>();
+    private final Ring<Long> totals = new Ring<>();
+    private final Ring<Long> minima = new Ring<>();
+    private final Ring<Long> maxima = new Ring<>();
+
+    public Duration() {
+        counts.add(0L);
+        totals.add(0L);
+    }
 
     public void update(long value) {
-        total += value;
-        average = total / ++values;
-        if (value < minimum) {
-            minimum = value;
-        }
-        if (value > maximum) {
-            maximum = value;
-        }
+        // Count first: a concurrent reader never sees a total without its count
+        values.incrementAndGet();
+        total.addAndGet(value);
+        updateMinimum(minimum, value);
+        updateMaximum(maximum, value);
+        updateMinimum(periodMinimum, value);
+        updateMaximum(periodMaximum, value);
     }
 
     public long getTotal() {
-        return total;
+        return total.get();
+    }
+
+    /**
+     * @return number of values
+     */
+    public long getCount() {
+        return values.get();
     }
 
     public long getMinimum() {
-        return minimum;
+        return minimum.get();
     }
 
     public long getMaximum() {
-        return maximum;
+        return maximum.get();
     }
 
+    /**
+     * Computed when read, not on each update.
+     */
     public double getAverage() {
-        return average;
+        long sum = total.get();
+        long count = values.get();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return number of values during the given window
+     */
+    public synchronized long getCount(final int window) {
+        return counts.get(0) - counts.get(window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return sum of the values during the given window
+     */
+    public synchronized long getTotal(final int window) {
+        return totals.get(0) - totals.get(window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return lowest value during the given window, Long.MAX_VALUE if none
+     */
+    public synchronized long getMinimum(final int window) {
+        return Ring.minimum(minima, window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return highest value during the given window, Long.MIN_VALUE if none
+     */
+    public synchronized long getMaximum(final int window) {
+        return Ring.maximum(maxima, window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return average of the values during the given window
+     */
+    public synchronized double getAverage(final int window) {
+        long count = getCount(window);
+        if (count == 0) {
+            return 0;
+        }
+        return (double) getTotal(window) / count;
+    }
+
+    @Override
+    public synchronized void sample() {
+        counts.add(values.get());
+        totals.add(total.get());
+        minima.add(periodMinimum.getAndSet(Long.MAX_VALUE));
+        maxima.add(periodMaximum.getAndSet(Long.MIN_VALUE));
+    }
+
+    /**
+     * Restarts from no value, the windows too.
+     * @return the values before the reset
+     */
+    public synchronized Duration reset() {
+        Duration previous = new Duration();
+        previous.values.set(values.getAndSet(0));
+        previous.total.set(total.getAndSet(0));
+        previous.minimum.set(minimum.getAndSet(Long.MAX_VALUE));
+        previous.maximum.set(maximum.getAndSet(Long.MIN_VALUE));
+        periodMinimum.set(Long.MAX_VALUE);
+        periodMaximum.set(Long.MIN_VALUE);
+        counts.clear();
+        counts.add(0L);
+        totals.clear();
+        totals.add(0L);
+        minima.clear();
+        maxima.clear();
+        return previous;
     }
 
     public TimeUnit getUnit() {
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of positive values with a fixed memory footprint: each power of two range
+ * is divided in 32 buckets, so a value is known with a relative error below 3.2%.
+ * Recording is lock-free, percentiles are computed when read.
+ * Only the used buckets are kept in the samples of the completed periods.
+ */
+public class Histogram implements Updatable, Sampler {
+
+    /**
+     * Bits of the value kept to find its bucket in a power of two range.
+     */
+    private static final int PRECISION = 6;
+
+    /**
+     * Enough buckets for any positive long.
+     */
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private static final Snapshot EMPTY = new Snapshot(0, new long[0]);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Counts at the end of the completed periods.
+     */
+    private final Ring<Snapshot> samples = new Ring<>();
+
+    public Histogram() {
+        samples.add(EMPTY);
+    }
+
+    @Override
+    public void update(final long value) {
+        counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return number of values recorded during the given window
+     */
+    public long getCount(final int window) {
+        long count = 0;
+        for (long value : getCounts(window)) {
+            count += value;
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile requested percentile, between 0 and 100 (99.9 for the 999th per thousand)
+     * @return highest value of the bucket holding the given percentile, 0 when nothing was recorded
+     */
+    public long getPercentile(final double percentile) {
+        return percentile(getCounts(), percentile);
+    }
+
+    /**
+     * @param percentile requested percentile, between 0 and 100
+     * @param window number of completed periods
+     * @return highest value of the bucket holding the given percentile of the values recorded
+     *         during the given window, 0 when nothing was recorded
+     */
+    public long getPercentile(final double percentile, final int window) {
+        return percentile(getCounts(window), percentile);
+    }
+
+    /**
+     * @return the current counts, to read later the percentiles of the values recorded since
+     */
+    public long[] getCounts() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param percentile requested percentile, between 0 and 100
+     * @param since counts previously returned by {@link #getCounts()}
+     * @return highest value of the bucket holding the given percentile of the values recorded
+     *         since the given counts, 0 when nothing was recorded
+     */
+    public long getPercentile(final double percentile, final long[] since) {
+        long[] snapshot = getCounts();
+        for (int i = 0; i < BUCKETS; i++) {
+            // Counts are lower after a reset
+            snapshot[i] = Math.max(snapshot[i] - since[i], 0);
+        }
+        return percentile(snapshot, percentile);
+    }
+
+    @Override
+    public synchronized void sample() {
+        long[] snapshot = new long[BUCKETS];
+        int first = BUCKETS;
+        int last = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            if (snapshot[i] != 0) {
+                first = Math.min(first, i);
+                last = i;
+            }
+        }
+        // Only keep the used buckets
+        if (last == -1) {
+            samples.add(EMPTY);
+        } else {
+            samples.add(new Snapshot(first, Arrays.copyOfRange(snapshot, first, last + 1)));
+        }
+    }
+
+    /**
+     * Restarts from no value, the windows too.
+     * @return the values before the reset
+     */
+    public synchronized Histogram reset() {
+        Histogram previous = new Histogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            previous.counts.set(i, counts.getAndSet(i, 0));
+        }
+        samples.clear();
+        samples.add(EMPTY);
+        return previous;
+    }
+
+    private synchronized long[] getCounts(final int window) {
+        Snapshot latest = samples.get(0);
+        Snapshot oldest = samples.get(window);
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = latest.get(i) - oldest.get(i);
+        }
+        return result;
+    }
+
+    private static long percentile(final long[] counts, final double percentile) {
+        long count = 0;
+        for (long value : counts) {
+            count += value;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                return highest(i);
+            }
+        }
+        return highest(counts.length - 1);
+    }
+
+    /**
+     * Values lower than 2^PRECISION have their own bucket, other values are bucketed
+     * by their highest PRECISION bits.
+     */
+    static int index(final long value) {
+        if (value < (1 << PRECISION)) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - PRECISION;
+        return (shift << (PRECISION - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return highest value recorded in the given bucket
+     */
+    static long highest(final int index) {
+        if (index < (1 << PRECISION)) {
+            return index;
+        }
+        int shift = (index >> (PRECISION - 1)) - 1;
+        long lowest = (long) (index - (shift << (PRECISION - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Counts of the used buckets.
+     */
+    private static final class Snapshot {
+        private final int offset;
+        private final long[] counts;
+
+        Snapshot(final int offset, final long[] counts) {
+            this.offset = offset;
+            this.counts = counts;
+        }
+
+        long get(final int index) {
+            int i = index - offset;
+            return (i < 0 || i >= counts.length) ? 0 : counts[i];
+        }
+    }
+}
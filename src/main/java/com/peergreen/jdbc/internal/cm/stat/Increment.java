@@ -11,27 +11,64 @@
 
 package com.peergreen.jdbc.internal.cm.stat;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Increment represents a counter that is only incremented when a new value is provided.
+ * Safe for concurrent updates.
  */
-public class Increment implements Updatable {
-    private long value;
+public class Increment implements Updatable, Sampler {
+    private final AtomicLong value;
+    private final Ring<Long> samples = new Ring<>();
 
     public Increment() {
         this(0);
     }
 
     public Increment(final long initial) {
-        this.value = initial;
+        this.value = new AtomicLong(initial);
+        samples.add(initial);
     }
 
     public long getValue() {
-        return value;
+        return value.get();
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return increments during the given window
+     */
+    public synchronized long getValue(final int window) {
+        return samples.get(0) - samples.get(window);
     }
 
     @Override
     public void update(final long value) {
         // increment counter
-        this.value++;
+        this.value.incrementAndGet();
+    }
+
+    /**
+     * Counts several events at once ({@link #update(long)} counts a single event, whatever the value).
+     * @param count number of events
+     */
+    public void add(final long count) {
+        this.value.addAndGet(count);
+    }
+
+    @Override
+    public synchronized void sample() {
+        samples.add(value.get());
+    }
+
+    /**
+     * Restarts from 0, the windows too.
+     * @return value before the reset
+     */
+    public synchronized long reset() {
+        long previous = value.getAndSet(0);
+        samples.clear();
+        samples.add(0L);
+        return previous;
     }
 }
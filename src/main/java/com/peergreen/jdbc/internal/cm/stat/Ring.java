@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+/**
+ * Values sampled at the end of each period, the oldest ones are overwritten.
+ * Not thread safe, guarded by its owner.
+ * @param <T> type of the sampled values
+ */
+final class Ring<T> {
+
+    /**
+     * Number of periods the windows can cover (plus the value at the beginning of the first one).
+     */
+    static final int CAPACITY = Sampler.MAXIMUM_WINDOW + 1;
+
+    private final Object[] values = new Object[CAPACITY];
+    private int latest = -1;
+    private int size = 0;
+
+    void add(final T value) {
+        latest = (latest + 1) % CAPACITY;
+        values[latest] = value;
+        if (size < CAPACITY) {
+            size++;
+        }
+    }
+
+    /**
+     * @param ago 0 for the latest value
+     * @return the value sampled the given number of periods ago, the oldest one if not available
+     */
+    @SuppressWarnings("unchecked")
+    T get(final int ago) {
+        int index = Math.min(ago, size - 1);
+        return (T) values[(latest - index + CAPACITY) % CAPACITY];
+    }
+
+    /**
+     * @return number of values
+     */
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            values[i] = null;
+        }
+        latest = -1;
+        size = 0;
+    }
+
+    /**
+     * @param ring sampled values
+     * @param periods number of latest values
+     * @return the highest of the latest values, Long.MIN_VALUE if none
+     */
+    static long maximum(final Ring<Long> ring, final int periods) {
+        long maximum = Long.MIN_VALUE;
+        for (int i = 0; i < Math.min(periods, ring.size); i++) {
+            maximum = Math.max(maximum, ring.get(i));
+        }
+        return maximum;
+    }
+
+    /**
+     * @param ring sampled values
+     * @param periods number of latest values
+     * @return the lowest of the latest values, Long.MAX_VALUE if none
+     */
+    static long minimum(final Ring<Long> ring, final int periods) {
+        long minimum = Long.MAX_VALUE;
+        for (int i = 0; i < Math.min(periods, ring.size); i++) {
+            minimum = Math.min(minimum, ring.get(i));
+        }
+        return minimum;
+    }
+}
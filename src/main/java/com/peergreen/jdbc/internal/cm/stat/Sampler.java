@@ -17,5 +17,19 @@ package com.peergreen.jdbc.internal.cm.stat;
  * Time: 16:06
  */
 public interface Sampler {
+
+    /**
+     * Period between two samples, in seconds.
+     */
+    int PERIOD = 60;
+
+    /**
+     * Largest window, in periods.
+     */
+    int MAXIMUM_WINDOW = 15;
+
+    /**
+     * Ends the current period: windowed values are computed over completed periods.
+     */
     void sample();
 }
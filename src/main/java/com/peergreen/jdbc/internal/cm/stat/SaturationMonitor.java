@@ -0,0 +1,175 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the pool statistics against saturation thresholds. A crossed threshold raises an alarm,
+ * raised again at most once per period while the threshold stays crossed.
+ * <p>
+ * Checks only read the lock-free counters of the statistics, they are meant to be run every second.
+ */
+public class SaturationMonitor {
+
+    public enum Alarm {
+        WAITERS("jdbc.pool.waiters", "Threads waiting for a connection"),
+        BUSY("jdbc.pool.busy", "Busy connections (percent of the maximum pool size)"),
+        WAIT_TIME("jdbc.pool.wait", "99th percentile of the wait time since the previous check (ms)"),
+        OVERFLOW_REJECTION("jdbc.pool.rejected.overflow", "Connection requests rejected (too many waiters)"),
+        TIMEOUT_REJECTION("jdbc.pool.rejected.timeout", "Connection requests rejected (wait timeout)");
+
+        private final String type;
+        private final String description;
+
+        Alarm(final String type, final String description) {
+            this.type = type;
+            this.description = description;
+        }
+
+        /**
+         * @return JMX notification type
+         */
+        public String getType() {
+            return type;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Receives the raised alarms.
+     */
+    public interface AlarmListener {
+        /**
+         * @param alarm crossed threshold
+         * @param value measured value
+         * @param threshold configured threshold
+         */
+        void alarmRaised(Alarm alarm, long value, long threshold);
+    }
+
+    public static final long DEFAULT_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    private final DataSourceStatisticsListener statistics;
+
+    /**
+     * Thresholds, 0 disables the alarm.
+     */
+    private volatile long waiters = 0;
+    private volatile long busyPercent = 0;
+    private volatile long waitTime = 0;
+    private volatile boolean rejections = true;
+
+    /**
+     * Minimum time between two alarms of the same kind, in milliseconds.
+     */
+    private volatile long period = DEFAULT_PERIOD;
+
+    private final long[] raised = new long[Alarm.values().length];
+    /**
+     * Waited time counts at the previous check, null while the wait time alarm is disabled.
+     */
+    private long[] waits;
+    private long overflows;
+    private long timeouts;
+
+    public SaturationMonitor(final DataSourceStatisticsListener statistics) {
+        this.statistics = statistics;
+        this.waits = statistics.getWaitedTimeHistogram().getCounts();
+        this.overflows = statistics.getOverflowRejection().getValue();
+        this.timeouts = statistics.getTimeoutRejection().getValue();
+    }
+
+    public void setWaitersThreshold(final long waiters) {
+        this.waiters = waiters;
+    }
+
+    /**
+     * @param busyPercent percent of the maximum pool size
+     */
+    public void setBusyThreshold(final long busyPercent) {
+        this.busyPercent = busyPercent;
+    }
+
+    public void setWaitTimeThreshold(final long waitTime, final TimeUnit unit) {
+        this.waitTime = unit.toNanos(waitTime);
+    }
+
+    public void setRejectionsEnabled(final boolean rejections) {
+        this.rejections = rejections;
+    }
+
+    public void setPeriod(final long period, final TimeUnit unit) {
+        this.period = unit.toMillis(period);
+    }
+
+    /**
+     * @param poolMax maximum size of the pool
+     * @param now current time, in milliseconds
+     * @param listener receives the raised alarms
+     */
+    public synchronized void check(final int poolMax, final long now, final AlarmListener listener) {
+        if (waiters > 0) {
+            long current = statistics.getWaiters().getLatest();
+            if (current > waiters) {
+                raise(Alarm.WAITERS, current, waiters, now, listener);
+            }
+        }
+        if (busyPercent > 0 && poolMax > 0) {
+            long current = statistics.getBusy().getValue() * 100 / poolMax;
+            if (current > busyPercent) {
+                raise(Alarm.BUSY, current, busyPercent, now, listener);
+            }
+        }
+
+        if (waitTime > 0) {
+            Histogram histogram = statistics.getWaitedTimeHistogram();
+            if (waits != null) {
+                long current = histogram.getPercentile(99, waits);
+                if (current > waitTime) {
+                    raise(Alarm.WAIT_TIME, TimeUnit.NANOSECONDS.toMillis(current), TimeUnit.NANOSECONDS.toMillis(waitTime), now, listener);
+                }
+            }
+            waits = histogram.getCounts();
+        } else {
+            // No snapshot while disabled, the waits are considered again from the next check once enabled
+            waits = null;
+        }
+
+        long overflow = statistics.getOverflowRejection().getValue();
+        long timeout = statistics.getTimeoutRejection().getValue();
+        if (rejections) {
+            if (overflow > overflows) {
+                raise(Alarm.OVERFLOW_REJECTION, overflow - overflows, 0, now, listener);
+            }
+            if (timeout > timeouts) {
+                raise(Alarm.TIMEOUT_REJECTION, timeout - timeouts, 0, now, listener);
+            }
+        }
+        // Rejections silenced by the period are not reported later
+        overflows = overflow;
+        timeouts = timeout;
+    }
+
+    private void raise(final Alarm alarm, final long value, final long threshold, final long now, final AlarmListener listener) {
+        int index = alarm.ordinal();
+        if (raised[index] != 0 && now - raised[index] < period) {
+            return;
+        }
+        raised[index] = now;
+        listener.alarmRaised(alarm, value, threshold);
+    }
+}
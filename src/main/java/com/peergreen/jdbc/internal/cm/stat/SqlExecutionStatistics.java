@@ -0,0 +1,120 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the execution statistics of a normalized SQL statement.
+ * Times are in milliseconds.
+ */
+public class SqlExecutionStatistics {
+    private final String sql;
+    private final long executions;
+    private final long errors;
+    private final double totalTime;
+    private final double maximumTime;
+    private final long updatedRows;
+    private final long fetchedRows;
+    private final double totalTimeError;
+
+    @ConstructorProperties({"sql", "executions", "errors", "totalTime", "maximumTime", "updatedRows", "fetchedRows", "totalTimeError"})
+    public SqlExecutionStatistics(final String sql,
+                                  final long executions,
+                                  final long errors,
+                                  final double totalTime,
+                                  final double maximumTime,
+                                  final long updatedRows,
+                                  final long fetchedRows,
+                                  final double totalTimeError) {
+        this.sql = sql;
+        this.executions = executions;
+        this.errors = errors;
+        this.totalTime = totalTime;
+        this.maximumTime = maximumTime;
+        this.updatedRows = updatedRows;
+        this.fetchedRows = fetchedRows;
+        this.totalTimeError = totalTimeError;
+    }
+
+    /**
+     * Normalized SQL (literals replaced by parameter markers).
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Number of executions, including the failed ones.
+     */
+    public long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * Number of failed executions.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Cumulated execution time.
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Longest execution time.
+     */
+    public double getMaximumTime() {
+        return maximumTime;
+    }
+
+    /**
+     * Average execution time.
+     */
+    public double getAverageTime() {
+        if (executions == 0) {
+            return 0;
+        }
+        return totalTime / executions;
+    }
+
+    /**
+     * Number of rows updated by the executions.
+     */
+    public long getUpdatedRows() {
+        return updatedRows;
+    }
+
+    /**
+     * Number of rows fetched from the results of the executions.
+     */
+    public long getFetchedRows() {
+        return fetchedRows;
+    }
+
+    /**
+     * Maximum over-estimation of the total time: time inherited from the statement that was evicted
+     * when this one has been recorded (0 when the statistics of this statement are exact).
+     */
+    public double getTotalTimeError() {
+        return totalTimeError;
+    }
+
+    @Override
+    public String toString() {
+        return sql + " [executions=" + executions + ", errors=" + errors + ", total=" + totalTime + "ms]";
+    }
+}
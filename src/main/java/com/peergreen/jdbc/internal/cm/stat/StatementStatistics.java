@@ -0,0 +1,241 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import com.peergreen.jdbc.internal.cm.StatementListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution statistics per normalized SQL statement.
+ * The table is bounded: it is split in lock-striped segments, each holding a fixed number of statements.
+ * When a segment is full, the statement with the smallest total time is evicted and the new statement
+ * inherits its total time (space-saving algorithm): the heaviest statements are always kept, their
+ * total time being over-estimated by at most the inherited value.
+ */
+public class StatementStatistics implements StatementListener {
+
+    /**
+     * Number of segments (power of 2).
+     */
+    private static final int STRIPES = 16;
+
+    private static final Comparator<SqlExecutionStatistics> BY_TOTAL_TIME = new Comparator<SqlExecutionStatistics>() {
+        @Override
+        public int compare(final SqlExecutionStatistics o1, final SqlExecutionStatistics o2) {
+            return Double.compare(o2.getTotalTime(), o1.getTotalTime());
+        }
+    };
+
+    private final int maximumSize;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param maximumSize maximum number of recorded statements
+     */
+    public StatementStatistics(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        int capacity = Math.max(1, (maximumSize + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    private Stripe stripe(final String sql) {
+        int hash = sql.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (STRIPES - 1)];
+    }
+
+    @Override
+    public void statementExecuted(final String sql, final long elapsed, final long updatedRows) {
+        Stripe stripe = stripe(sql);
+        synchronized (stripe) {
+            Entry entry = stripe.acquire(sql);
+            entry.record(elapsed);
+            entry.updatedRows += updatedRows;
+        }
+    }
+
+    @Override
+    public void statementFailed(final String sql, final long elapsed) {
+        Stripe stripe = stripe(sql);
+        synchronized (stripe) {
+            Entry entry = stripe.acquire(sql);
+            entry.record(elapsed);
+            entry.errors++;
+        }
+    }
+
+    @Override
+    public void rowsFetched(final String sql, final long rows) {
+        Stripe stripe = stripe(sql);
+        synchronized (stripe) {
+            // Do not record a statement evicted since its execution
+            Entry entry = stripe.entries.get(sql);
+            if (entry != null) {
+                entry.fetchedRows += rows;
+            }
+        }
+    }
+
+    /**
+     * @param count maximum number of returned statements
+     * @return the statistics of the statements with the highest total time, sorted by decreasing total time
+     */
+    public List<SqlExecutionStatistics> getTopByTotalTime(final int count) {
+        List<SqlExecutionStatistics> all = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Entry entry : stripe.entries.values()) {
+                    all.add(entry.snapshot());
+                }
+            }
+        }
+        Collections.sort(all, BY_TOTAL_TIME);
+        if (all.size() > count) {
+            return new ArrayList<>(all.subList(0, count));
+        }
+        return all;
+    }
+
+    /**
+     * @return number of recorded statements
+     */
+    public int getSize() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of statements evicted to make room for others
+     */
+    public long getEvictions() {
+        long evictions = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evictions += stripe.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Forget all the recorded statements.
+     */
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+                stripe.evictions = 0;
+            }
+        }
+    }
+
+    private static double toMillis(final long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * A segment of the table, guarded by its own lock.
+     */
+    private static class Stripe {
+        private final int capacity;
+        private final Map<String, Entry> entries;
+        private long evictions = 0;
+
+        public Stripe(final int capacity) {
+            this.capacity = capacity;
+            this.entries = new HashMap<>(capacity * 2);
+        }
+
+        /**
+         * Gets the entry of the given statement, creating it (possibly in place of the entry with
+         * the smallest total time) if needed.
+         */
+        public Entry acquire(final String sql) {
+            Entry entry = entries.get(sql);
+            if (entry != null) {
+                return entry;
+            }
+            long inherited = 0;
+            if (entries.size() >= capacity) {
+                Entry minimum = null;
+                for (Entry candidate : entries.values()) {
+                    if (minimum == null || candidate.totalTime < minimum.totalTime) {
+                        minimum = candidate;
+                    }
+                }
+                entries.remove(minimum.sql);
+                evictions++;
+                inherited = minimum.totalTime;
+            }
+            entry = new Entry(sql, inherited);
+            entries.put(sql, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Statistics of a statement, times are in nanoseconds.
+     */
+    private static class Entry {
+        private final String sql;
+        private final long totalTimeError;
+        private long executions = 0;
+        private long errors = 0;
+        private long totalTime;
+        private long maximumTime = 0;
+        private long updatedRows = 0;
+        private long fetchedRows = 0;
+
+        public Entry(final String sql, final long totalTimeError) {
+            this.sql = sql;
+            this.totalTimeError = totalTimeError;
+            this.totalTime = totalTimeError;
+        }
+
+        public void record(final long elapsed) {
+            executions++;
+            totalTime += elapsed;
+            if (elapsed > maximumTime) {
+                maximumTime = elapsed;
+            }
+        }
+
+        public SqlExecutionStatistics snapshot() {
+            return new SqlExecutionStatistics(sql,
+                                              executions,
+                                              errors,
+                                              toMillis(totalTime),
+                                              toMillis(maximumTime),
+                                              updatedRows,
+                                              fetchedRows,
+                                              toMillis(totalTimeError));
+        }
+    }
+}
@@ -11,35 +11,81 @@
 
 package com.peergreen.jdbc.internal.cm.stat;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.peergreen.jdbc.internal.cm.stat.Atomics.updateMaximum;
+import static com.peergreen.jdbc.internal.cm.stat.Atomics.updateMinimum;
+
 /**
  * User: guillaume
  * Date: 08/10/13
  * Time: 16:43
  */
-public class Value implements Updatable {
-    private long value;
-    private long minimum = Long.MAX_VALUE;
-    private long maximum = Long.MIN_VALUE;
+public class Value implements Updatable, Sampler {
+    private final AtomicLong value = new AtomicLong();
+    private final AtomicLong minimum = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximum = new AtomicLong(Long.MIN_VALUE);
+
+    // Extremes of the current period and of the completed ones
+    private final AtomicLong periodMinimum = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong periodMaximum = new AtomicLong(Long.MIN_VALUE);
+    private final Ring<Long> minima = new Ring<>();
+    private final Ring<Long> maxima = new Ring<>();
 
     public void update(long value) {
-        this.value = value;
-        if (value < minimum) {
-            minimum = value;
-        }
-        if (value > maximum) {
-            maximum = value;
-        }
+        this.value.set(value);
+        updateMinimum(minimum, value);
+        updateMaximum(maximum, value);
+        updateMinimum(periodMinimum, value);
+        updateMaximum(periodMaximum, value);
     }
 
     public long getValue() {
-        return value;
+        return value.get();
     }
 
     public long getMinimum() {
-        return minimum;
+        return minimum.get();
     }
 
     public long getMaximum() {
-        return maximum;
+        return maximum.get();
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return lowest value during the given window, Long.MAX_VALUE if unknown
+     */
+    public synchronized long getMinimum(final int window) {
+        return Ring.minimum(minima, window);
+    }
+
+    /**
+     * @param window number of completed periods
+     * @return highest value during the given window, Long.MIN_VALUE if unknown
+     */
+    public synchronized long getMaximum(final int window) {
+        return Ring.maximum(maxima, window);
+    }
+
+    @Override
+    public synchronized void sample() {
+        // The next period starts at the current value
+        long current = value.get();
+        minima.add(periodMinimum.getAndSet(current));
+        maxima.add(periodMaximum.getAndSet(current));
+    }
+
+    /**
+     * Minimum and maximum restart from the current value, the windows restart.
+     */
+    public synchronized void reset() {
+        long current = value.get();
+        minimum.set(current);
+        maximum.set(current);
+        periodMinimum.set(current);
+        periodMaximum.set(current);
+        minima.clear();
+        maxima.clear();
     }
 }
@@ -0,0 +1,713 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.statement;
+
+import com.peergreen.jdbc.internal.cm.ConnectionNotifier;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Wrapper on a CallableStatement, pooled like a {@link ReusablePreparedStatement}.
+ * Out parameters registered by a previous user are reset when the statement is reused.
+ */
+public class ReusableCallableStatement extends ReusablePreparedStatement implements CallableStatement {
+
+    /**
+     * Physical CallableStatement object on which the wrapper is.
+     */
+    private final CallableStatement cs;
+
+    /**
+     * Have out parameters been registered since the statement was (re)used ?
+     */
+    private boolean outParameters = false;
+
+    /**
+     * Have parameters been bound by name since the statement was (re)used ?
+     */
+    private boolean namedParameters = false;
+
+    /**
+     * Builds a new callable statement with the given wrapped statement of given
+     * connection, identified in the statement cache with the given key.
+     * @param cs the callable statement.
+     * @param notifier managed connection
+     * @param key statement identity (SQL and preparation options).
+     */
+    public ReusableCallableStatement(final CallableStatement cs, final ConnectionNotifier notifier, final StatementKey key) {
+        // Results of stored procedures are never cached
+        super(cs, notifier, key, null);
+        this.cs = cs;
+    }
+
+    /**
+     * Out parameters registrations and parameters bound by name are not tracked per index.
+     * @return true if the parameters have to be cleared before the statement is reused
+     */
+    @Override
+    protected boolean isParametersClearNeeded() {
+        return outParameters || namedParameters || super.isParametersClearNeeded();
+    }
+
+    /**
+     * Reuses this statement so reset properties and out parameters registrations.
+     * @throws SQLException if reset fails
+     */
+    @Override
+    public void reuse() throws SQLException {
+        // Values and out parameters of the previous user are released by clearParameters()
+        super.reuse();
+        outParameters = false;
+        namedParameters = false;
+    }
+
+    /**
+     * @return true if out parameters have been registered since the statement was (re)used.
+     */
+    public boolean hasOutParameters() {
+        return outParameters;
+    }
+
+    @Override
+    public void registerOutParameter(final int parameterIndex, final int sqlType) throws SQLException {
+        outParameters = true;
+        cs.registerOutParameter(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void registerOutParameter(final int parameterIndex, final int sqlType, final String typeName) throws SQLException {
+        outParameters = true;
+        cs.registerOutParameter(parameterIndex, sqlType, typeName);
+    }
+
+    @Override
+    public void registerOutParameter(final int parameterIndex, final int sqlType, final int scale) throws SQLException {
+        outParameters = true;
+        cs.registerOutParameter(parameterIndex, sqlType, scale);
+    }
+
+    @Override
+    public void registerOutParameter(final String parameterName, final int sqlType) throws SQLException {
+        outParameters = true;
+        cs.registerOutParameter(parameterName, sqlType);
+    }
+
+    @Override
+    public void registerOutParameter(final String parameterName, final int sqlType, final String typeName) throws SQLException {
+        outParameters = true;
+        cs.registerOutParameter(parameterName, sqlType, typeName);
+    }
+
+    @Override
+    public void registerOutParameter(final String parameterName, final int sqlType, final int scale) throws SQLException {
+        outParameters = true;
+        cs.registerOutParameter(parameterName, sqlType, scale);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return cs.wasNull();
+    }
+
+    @Override
+    public Array getArray(final int parameterIndex) throws SQLException {
+        return cs.getArray(parameterIndex);
+    }
+
+    @Override
+    public Array getArray(final String parameterName) throws SQLException {
+        return cs.getArray(parameterName);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(final int parameterIndex) throws SQLException {
+        return cs.getBigDecimal(parameterIndex);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(final int parameterIndex, final int scale) throws SQLException {
+        return cs.getBigDecimal(parameterIndex, scale);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(final String parameterName) throws SQLException {
+        return cs.getBigDecimal(parameterName);
+    }
+
+    @Override
+    public Blob getBlob(final int parameterIndex) throws SQLException {
+        return cs.getBlob(parameterIndex);
+    }
+
+    @Override
+    public Blob getBlob(final String parameterName) throws SQLException {
+        return cs.getBlob(parameterName);
+    }
+
+    @Override
+    public boolean getBoolean(final int parameterIndex) throws SQLException {
+        return cs.getBoolean(parameterIndex);
+    }
+
+    @Override
+    public boolean getBoolean(final String parameterName) throws SQLException {
+        return cs.getBoolean(parameterName);
+    }
+
+    @Override
+    public byte getByte(final int parameterIndex) throws SQLException {
+        return cs.getByte(parameterIndex);
+    }
+
+    @Override
+    public byte getByte(final String parameterName) throws SQLException {
+        return cs.getByte(parameterName);
+    }
+
+    @Override
+    public byte[] getBytes(final int parameterIndex) throws SQLException {
+        return cs.getBytes(parameterIndex);
+    }
+
+    @Override
+    public byte[] getBytes(final String parameterName) throws SQLException {
+        return cs.getBytes(parameterName);
+    }
+
+    @Override
+    public Reader getCharacterStream(final int parameterIndex) throws SQLException {
+        return cs.getCharacterStream(parameterIndex);
+    }
+
+    @Override
+    public Reader getCharacterStream(final String parameterName) throws SQLException {
+        return cs.getCharacterStream(parameterName);
+    }
+
+    @Override
+    public Clob getClob(final int parameterIndex) throws SQLException {
+        return cs.getClob(parameterIndex);
+    }
+
+    @Override
+    public Clob getClob(final String parameterName) throws SQLException {
+        return cs.getClob(parameterName);
+    }
+
+    @Override
+    public Date getDate(final int parameterIndex) throws SQLException {
+        return cs.getDate(parameterIndex);
+    }
+
+    @Override
+    public Date getDate(final int parameterIndex, final Calendar cal) throws SQLException {
+        return cs.getDate(parameterIndex, cal);
+    }
+
+    @Override
+    public Date getDate(final String parameterName) throws SQLException {
+        return cs.getDate(parameterName);
+    }
+
+    @Override
+    public Date getDate(final String parameterName, final Calendar cal) throws SQLException {
+        return cs.getDate(parameterName, cal);
+    }
+
+    @Override
+    public double getDouble(final int parameterIndex) throws SQLException {
+        return cs.getDouble(parameterIndex);
+    }
+
+    @Override
+    public double getDouble(final String parameterName) throws SQLException {
+        return cs.getDouble(parameterName);
+    }
+
+    @Override
+    public float getFloat(final int parameterIndex) throws SQLException {
+        return cs.getFloat(parameterIndex);
+    }
+
+    @Override
+    public float getFloat(final String parameterName) throws SQLException {
+        return cs.getFloat(parameterName);
+    }
+
+    @Override
+    public int getInt(final int parameterIndex) throws SQLException {
+        return cs.getInt(parameterIndex);
+    }
+
+    @Override
+    public int getInt(final String parameterName) throws SQLException {
+        return cs.getInt(parameterName);
+    }
+
+    @Override
+    public long getLong(final int parameterIndex) throws SQLException {
+        return cs.getLong(parameterIndex);
+    }
+
+    @Override
+    public long getLong(final String parameterName) throws SQLException {
+        return cs.getLong(parameterName);
+    }
+
+    @Override
+    public Reader getNCharacterStream(final int parameterIndex) throws SQLException {
+        return cs.getNCharacterStream(parameterIndex);
+    }
+
+    @Override
+    public Reader getNCharacterStream(final String parameterName) throws SQLException {
+        return cs.getNCharacterStream(parameterName);
+    }
+
+    @Override
+    public NClob getNClob(final int parameterIndex) throws SQLException {
+        return cs.getNClob(parameterIndex);
+    }
+
+    @Override
+    public NClob getNClob(final String parameterName) throws SQLException {
+        return cs.getNClob(parameterName);
+    }
+
+    @Override
+    public String getNString(final int parameterIndex) throws SQLException {
+        return cs.getNString(parameterIndex);
+    }
+
+    @Override
+    public String getNString(final String parameterName) throws SQLException {
+        return cs.getNString(parameterName);
+    }
+
+    @Override
+    public Object getObject(final int parameterIndex) throws SQLException {
+        return cs.getObject(parameterIndex);
+    }
+
+    @Override
+    public <T> T getObject(final int parameterIndex, final Class<T> type) throws SQLException {
+        return cs.getObject(parameterIndex, type);
+    }
+
+    @Override
+    public Object getObject(final int parameterIndex, final Map<String, Class<?>> map) throws SQLException {
+        return cs.getObject(parameterIndex, map);
+    }
+
+    @Override
+    public Object getObject(final String parameterName) throws SQLException {
+        return cs.getObject(parameterName);
+    }
+
+    @Override
+    public <T> T getObject(final String parameterName, final Class<T> type) throws SQLException {
+        return cs.getObject(parameterName, type);
+    }
+
+    @Override
+    public Object getObject(final String parameterName, final Map<String, Class<?>> map) throws SQLException {
+        return cs.getObject(parameterName, map);
+    }
+
+    @Override
+    public Ref getRef(final int parameterIndex) throws SQLException {
+        return cs.getRef(parameterIndex);
+    }
+
+    @Override
+    public Ref getRef(final String parameterName) throws SQLException {
+        return cs.getRef(parameterName);
+    }
+
+    @Override
+    public RowId getRowId(final int parameterIndex) throws SQLException {
+        return cs.getRowId(parameterIndex);
+    }
+
+    @Override
+    public RowId getRowId(final String parameterName) throws SQLException {
+        return cs.getRowId(parameterName);
+    }
+
+    @Override
+    public SQLXML getSQLXML(final int parameterIndex) throws SQLException {
+        return cs.getSQLXML(parameterIndex);
+    }
+
+    @Override
+    public SQLXML getSQLXML(final String parameterName) throws SQLException {
+        return cs.getSQLXML(parameterName);
+    }
+
+    @Override
+    public short getShort(final int parameterIndex) throws SQLException {
+        return cs.getShort(parameterIndex);
+    }
+
+    @Override
+    public short getShort(final String parameterName) throws SQLException {
+        return cs.getShort(parameterName);
+    }
+
+    @Override
+    public String getString(final int parameterIndex) throws SQLException {
+        return cs.getString(parameterIndex);
+    }
+
+    @Override
+    public String getString(final String parameterName) throws SQLException {
+        return cs.getString(parameterName);
+    }
+
+    @Override
+    public Time getTime(final int parameterIndex) throws SQLException {
+        return cs.getTime(parameterIndex);
+    }
+
+    @Override
+    public Time getTime(final int parameterIndex, final Calendar cal) throws SQLException {
+        return cs.getTime(parameterIndex, cal);
+    }
+
+    @Override
+    public Time getTime(final String parameterName) throws SQLException {
+        return cs.getTime(parameterName);
+    }
+
+    @Override
+    public Time getTime(final String parameterName, final Calendar cal) throws SQLException {
+        return cs.getTime(parameterName, cal);
+    }
+
+    @Override
+    public Timestamp getTimestamp(final int parameterIndex) throws SQLException {
+        return cs.getTimestamp(parameterIndex);
+    }
+
+    @Override
+    public Timestamp getTimestamp(final int parameterIndex, final Calendar cal) throws SQLException {
+        return cs.getTimestamp(parameterIndex, cal);
+    }
+
+    @Override
+    public Timestamp getTimestamp(final String parameterName) throws SQLException {
+        return cs.getTimestamp(parameterName);
+    }
+
+    @Override
+    public Timestamp getTimestamp(final String parameterName, final Calendar cal) throws SQLException {
+        return cs.getTimestamp(parameterName, cal);
+    }
+
+    @Override
+    public URL getURL(final int parameterIndex) throws SQLException {
+        return cs.getURL(parameterIndex);
+    }
+
+    @Override
+    public URL getURL(final String parameterName) throws SQLException {
+        return cs.getURL(parameterName);
+    }
+
+    @Override
+    public void setAsciiStream(final String parameterName, final InputStream x) throws SQLException {
+        namedParameters = true;
+        cs.setAsciiStream(parameterName, x);
+    }
+
+    @Override
+    public void setAsciiStream(final String parameterName, final InputStream x, final int length) throws SQLException {
+        namedParameters = true;
+        cs.setAsciiStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setAsciiStream(final String parameterName, final InputStream x, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setAsciiStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setBigDecimal(final String parameterName, final BigDecimal x) throws SQLException {
+        namedParameters = true;
+        cs.setBigDecimal(parameterName, x);
+    }
+
+    @Override
+    public void setBinaryStream(final String parameterName, final InputStream x) throws SQLException {
+        namedParameters = true;
+        cs.setBinaryStream(parameterName, x);
+    }
+
+    @Override
+    public void setBinaryStream(final String parameterName, final InputStream x, final int length) throws SQLException {
+        namedParameters = true;
+        cs.setBinaryStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setBinaryStream(final String parameterName, final InputStream x, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setBinaryStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setBlob(final String parameterName, final Blob x) throws SQLException {
+        namedParameters = true;
+        cs.setBlob(parameterName, x);
+    }
+
+    @Override
+    public void setBlob(final String parameterName, final InputStream inputStream) throws SQLException {
+        namedParameters = true;
+        cs.setBlob(parameterName, inputStream);
+    }
+
+    @Override
+    public void setBlob(final String parameterName, final InputStream inputStream, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setBlob(parameterName, inputStream, length);
+    }
+
+    @Override
+    public void setBoolean(final String parameterName, final boolean x) throws SQLException {
+        namedParameters = true;
+        cs.setBoolean(parameterName, x);
+    }
+
+    @Override
+    public void setByte(final String parameterName, final byte x) throws SQLException {
+        namedParameters = true;
+        cs.setByte(parameterName, x);
+    }
+
+    @Override
+    public void setBytes(final String parameterName, final byte[] x) throws SQLException {
+        namedParameters = true;
+        cs.setBytes(parameterName, x);
+    }
+
+    @Override
+    public void setCharacterStream(final String parameterName, final Reader reader) throws SQLException {
+        namedParameters = true;
+        cs.setCharacterStream(parameterName, reader);
+    }
+
+    @Override
+    public void setCharacterStream(final String parameterName, final Reader reader, final int length) throws SQLException {
+        namedParameters = true;
+        cs.setCharacterStream(parameterName, reader, length);
+    }
+
+    @Override
+    public void setCharacterStream(final String parameterName, final Reader reader, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setCharacterStream(parameterName, reader, length);
+    }
+
+    @Override
+    public void setClob(final String parameterName, final Clob x) throws SQLException {
+        namedParameters = true;
+        cs.setClob(parameterName, x);
+    }
+
+    @Override
+    public void setClob(final String parameterName, final Reader reader) throws SQLException {
+        namedParameters = true;
+        cs.setClob(parameterName, reader);
+    }
+
+    @Override
+    public void setClob(final String parameterName, final Reader reader, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setClob(parameterName, reader, length);
+    }
+
+    @Override
+    public void setDate(final String parameterName, final Date x) throws SQLException {
+        namedParameters = true;
+        cs.setDate(parameterName, x);
+    }
+
+    @Override
+    public void setDate(final String parameterName, final Date x, final Calendar cal) throws SQLException {
+        namedParameters = true;
+        cs.setDate(parameterName, x, cal);
+    }
+
+    @Override
+    public void setDouble(final String parameterName, final double x) throws SQLException {
+        namedParameters = true;
+        cs.setDouble(parameterName, x);
+    }
+
+    @Override
+    public void setFloat(final String parameterName, final float x) throws SQLException {
+        namedParameters = true;
+        cs.setFloat(parameterName, x);
+    }
+
+    @Override
+    public void setInt(final String parameterName, final int x) throws SQLException {
+        namedParameters = true;
+        cs.setInt(parameterName, x);
+    }
+
+    @Override
+    public void setLong(final String parameterName, final long x) throws SQLException {
+        namedParameters = true;
+        cs.setLong(parameterName, x);
+    }
+
+    @Override
+    public void setNCharacterStream(final String parameterName, final Reader reader) throws SQLException {
+        namedParameters = true;
+        cs.setNCharacterStream(parameterName, reader);
+    }
+
+    @Override
+    public void setNCharacterStream(final String parameterName, final Reader reader, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setNCharacterStream(parameterName, reader, length);
+    }
+
+    @Override
+    public void setNClob(final String parameterName, final NClob value) throws SQLException {
+        namedParameters = true;
+        cs.setNClob(parameterName, value);
+    }
+
+    @Override
+    public void setNClob(final String parameterName, final Reader reader) throws SQLException {
+        namedParameters = true;
+        cs.setNClob(parameterName, reader);
+    }
+
+    @Override
+    public void setNClob(final String parameterName, final Reader reader, final long length) throws SQLException {
+        namedParameters = true;
+        cs.setNClob(parameterName, reader, length);
+    }
+
+    @Override
+    public void setNString(final String parameterName, final String value) throws SQLException {
+        namedParameters = true;
+        cs.setNString(parameterName, value);
+    }
+
+    @Override
+    public void setNull(final String parameterName, final int sqlType) throws SQLException {
+        namedParameters = true;
+        cs.setNull(parameterName, sqlType);
+    }
+
+    @Override
+    public void setNull(final String parameterName, final int sqlType, final String typeName) throws SQLException {
+        namedParameters = true;
+        cs.setNull(parameterName, sqlType, typeName);
+    }
+
+    @Override
+    public void setObject(final String parameterName, final Object x) throws SQLException {
+        namedParameters = true;
+        cs.setObject(parameterName, x);
+    }
+
+    @Override
+    public void setObject(final String parameterName, final Object x, final int targetSqlType) throws SQLException {
+        namedParameters = true;
+        cs.setObject(parameterName, x, targetSqlType);
+    }
+
+    @Override
+    public void setObject(final String parameterName, final Object x, final int targetSqlType, final int scale) throws SQLException {
+        namedParameters = true;
+        cs.setObject(parameterName, x, targetSqlType, scale);
+    }
+
+    @Override
+    public void setRowId(final String parameterName, final RowId x) throws SQLException {
+        namedParameters = true;
+        cs.setRowId(parameterName, x);
+    }
+
+    @Override
+    public void setSQLXML(final String parameterName, final SQLXML xmlObject) throws SQLException {
+        namedParameters = true;
+        cs.setSQLXML(parameterName, xmlObject);
+    }
+
+    @Override
+    public void setShort(final String parameterName, final short x) throws SQLException {
+        namedParameters = true;
+        cs.setShort(parameterName, x);
+    }
+
+    @Override
+    public void setString(final String parameterName, final String x) throws SQLException {
+        namedParameters = true;
+        cs.setString(parameterName, x);
+    }
+
+    @Override
+    public void setTime(final String parameterName, final Time x) throws SQLException {
+        namedParameters = true;
+        cs.setTime(parameterName, x);
+    }
+
+    @Override
+    public void setTime(final String parameterName, final Time x, final Calendar cal) throws SQLException {
+        namedParameters = true;
+        cs.setTime(parameterName, x, cal);
+    }
+
+    @Override
+    public void setTimestamp(final String parameterName, final Timestamp x) throws SQLException {
+        namedParameters = true;
+        cs.setTimestamp(parameterName, x);
+    }
+
+    @Override
+    public void setTimestamp(final String parameterName, final Timestamp x, final Calendar cal) throws SQLException {
+        namedParameters = true;
+        cs.setTimestamp(parameterName, x, cal);
+    }
+
+    @Override
+    public void setURL(final String parameterName, final URL x) throws SQLException {
+        namedParameters = true;
+        cs.setURL(parameterName, x);
+    }
+}
@@ -13,6 +13,10 @@ package com.peergreen.jdbc.internal.cm.statement;
 
 import com.peergreen.jdbc.internal.cm.ConnectionNotifier;
 import com.peergreen.jdbc.internal.cm.IPreparedStatement;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import com.peergreen.jdbc.internal.cm.cache.QueryKey;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import com.peergreen.jdbc.internal.cm.event.SlowQueryLog;
 import org.ow2.util.log.Log;
 import org.ow2.util.log.LogFactory;
 
@@ -37,6 +41,8 @@ import java.sql.SQLWarning;
 import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 
 /**
@@ -48,11 +54,51 @@ import java.util.Calendar;
 public class ReusablePreparedStatement implements IPreparedStatement {
 
     public static final int NO_LIMIT = 0;
+
+    /**
+     * Marker of a parameter explicitly set to SQL NULL (only equal to itself, unlike any bound value).
+     */
+    private static final Object NULL_PARAMETER = new Object();
+
     /**
-     * Properties of this statement has been changed ? Needs to be be cleared
+     * Parameters of a statement without parameters.
+     */
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    /**
+     * Properties that can be changed on the statement, each one is reset only if it
+     * has been changed by the previous user.
+     */
+    private static final int BATCH = 1;
+    private static final int WARNINGS = 1 << 1;
+    private static final int FETCH_DIRECTION = 1 << 2;
+    private static final int FETCH_SIZE = 1 << 3;
+    private static final int MAX_FIELD_SIZE = 1 << 4;
+    private static final int MAX_ROWS = 1 << 5;
+    private static final int QUERY_TIMEOUT = 1 << 6;
+    private static final int POOLABLE = 1 << 7;
+    private static final int ESCAPE_PROCESSING = 1 << 8;
+
+    /**
+     * Properties of this statement that have been changed, they need to be reset
      * when reused.
      */
-    private boolean changed = false;
+    private int changed = 0;
+
+    /**
+     * Fetch size given by the DataSource, restored when reused.
+     */
+    private int defaultFetchSize = NO_LIMIT;
+
+    /**
+     * Indexes of the parameters bound since the last clear.
+     */
+    private final BitSet bound = new BitSet();
+
+    /**
+     * Number of parameter markers in the SQL (lazily computed).
+     */
+    private int parameterCount = -1;
 
     /**
      * Is that this statement is opened ?
@@ -64,6 +110,11 @@ public class ReusablePreparedStatement implements IPreparedStatement {
      */
     private boolean closing = false;
 
+    /**
+     * The physical statement has been handed out through unwrap().
+     */
+    private boolean unwrapped = false;
+
     /**
      * Physical PreparedStatement object on which the wrapper is.
      */
@@ -84,6 +135,47 @@ public class ReusablePreparedStatement implements IPreparedStatement {
      */
     private String sql;
 
+    /**
+     * Identity of this statement in the connection's statement cache.
+     */
+    private final StatementKey key;
+
+    /**
+     * Query result cache of the DataSource (null if disabled).
+     */
+    private final QueryResultCache resultCache;
+
+    /**
+     * Are the results of this statement's queries cacheable ?
+     */
+    private final boolean cacheable;
+
+    /**
+     * Parameters bound since the last clear, only recorded when results are cacheable
+     * or when the slow query log reports them.
+     */
+    private Object[] parameters;
+
+    /**
+     * False as soon as a parameter that cannot be part of a cache key (stream, LOB, ...) has been bound.
+     */
+    private boolean cacheableParameters = true;
+
+    /**
+     * SQL of this statement with literals replaced by parameter markers (lazily computed).
+     */
+    private String normalizedSql;
+
+    /**
+     * Normalized SQL of the last execution, results are reported against it.
+     */
+    private String lastSql;
+
+    /**
+     * Current result set, counting the fetched rows.
+     */
+    private FetchCountingResultSet results;
+
     /**
      * Logger.
      */
@@ -97,10 +189,43 @@ public class ReusablePreparedStatement implements IPreparedStatement {
      * @param sql query.
      */
     public ReusablePreparedStatement(final PreparedStatement ps, final ConnectionNotifier notifier, final String sql) {
+        this(ps, notifier, sql, null);
+    }
+
+    /**
+     * Builds a new statement with the given wrapped statement of given
+     * connection and given sql query, results of queries may be cached.
+     * @param ps the prepared statement.
+     * @param notifier managed connection
+     * @param sql query.
+     * @param resultCache query result cache of the DataSource (may be null)
+     */
+    public ReusablePreparedStatement(final PreparedStatement ps,
+                                     final ConnectionNotifier notifier,
+                                     final String sql,
+                                     final QueryResultCache resultCache) {
+        this(ps, notifier, StatementKey.prepared(sql), resultCache);
+    }
+
+    /**
+     * Builds a new statement with the given wrapped statement of given
+     * connection, identified in the statement cache with the given key.
+     * @param ps the prepared statement.
+     * @param notifier managed connection
+     * @param key statement identity (SQL and preparation options).
+     * @param resultCache query result cache of the DataSource (may be null)
+     */
+    public ReusablePreparedStatement(final PreparedStatement ps,
+                                     final ConnectionNotifier notifier,
+                                     final StatementKey key,
+                                     final QueryResultCache resultCache) {
         this.ps = ps;
         this.notifier = notifier;
-        this.sql = sql;
-        hashCode = sql.hashCode();
+        this.key = key;
+        this.sql = key.getSql();
+        this.resultCache = resultCache;
+        this.cacheable = (resultCache != null) && resultCache.isCacheable(this.sql);
+        hashCode = this.sql.hashCode();
         opened = true;
     }
 
@@ -112,6 +237,14 @@ public class ReusablePreparedStatement implements IPreparedStatement {
         return sql;
     }
 
+    /**
+     * @return identity of this statement in the statement cache.
+     */
+    @Override
+    public StatementKey getKey() {
+        return key;
+    }
+
     /**
      * Gets the preparedstatement used by this wrapper.
      * @return the internal prepared statement
@@ -180,6 +313,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     public boolean forceClose() {
         if (opened) {
             logger.debug("Statements should be closed explicitly.");
+            closeResults();
             opened = false;
             return true;
         }
@@ -192,18 +326,287 @@ public class ReusablePreparedStatement implements IPreparedStatement {
      */
     @Override
     public void reuse() throws SQLException {
-        ps.clearParameters();
-        ps.clearWarnings();
+        if (isParametersClearNeeded()) {
+            ps.clearParameters();
+        }
+        // Recorded values must not end up in the next user's cache keys
+        clearBindings();
         opened = true;
-        if (changed) {
+        if (changed != 0) {
             logger.debug("Properties statement have been changed, reset default properties");
+            reset();
+        }
+    }
+
+    /**
+     * Reset the changed properties to their default value.
+     * @throws SQLException if reset fails
+     */
+    private void reset() throws SQLException {
+        if (isChanged(WARNINGS)) {
+            ps.clearWarnings();
+        }
+        if (isChanged(BATCH)) {
             ps.clearBatch();
+        }
+        if (isChanged(FETCH_DIRECTION)) {
             ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+        }
+        if (isChanged(FETCH_SIZE)) {
+            ps.setFetchSize(defaultFetchSize);
+        }
+        if (isChanged(MAX_FIELD_SIZE)) {
             ps.setMaxFieldSize(NO_LIMIT);
+        }
+        if (isChanged(MAX_ROWS)) {
             ps.setMaxRows(NO_LIMIT);
+        }
+        if (isChanged(QUERY_TIMEOUT)) {
             ps.setQueryTimeout(NO_LIMIT);
-            changed = false;
         }
+        if (isChanged(POOLABLE)) {
+            ps.setPoolable(true);
+        }
+        if (isChanged(ESCAPE_PROCESSING)) {
+            ps.setEscapeProcessing(true);
+        }
+        changed = 0;
+    }
+
+    /**
+     * Nothing to clear when no parameter has been bound since the last clear, or when
+     * all the parameters have been bound (the next user has to bind them again).
+     * @return true if the parameters have to be cleared before the statement is reused
+     */
+    protected boolean isParametersClearNeeded() {
+        return !bound.isEmpty() && bound.cardinality() != getParameterCount();
+    }
+
+    private boolean isChanged(final int property) {
+        return (changed & property) != 0;
+    }
+
+    /**
+     * @return number of parameter markers in the SQL.
+     */
+    private int getParameterCount() {
+        if (parameterCount == -1) {
+            parameterCount = SqlNormalizer.countParameters(sql);
+        }
+        return parameterCount;
+    }
+
+    /**
+     * Record that a parameter is bound, and its value (only when results may be cached
+     * or reported by the slow query log).
+     * @param parameterIndex index of the parameter (starting at 1)
+     * @param value bound value
+     */
+    private void bind(final int parameterIndex, final Object value) {
+        bound.set(parameterIndex);
+        if (cacheable || notifier.getSlowParameters() != SlowQueryLog.Parameters.NONE) {
+            if (parameters == null) {
+                // Sized to the parameter markers: the array is part of the result cache key
+                parameters = new Object[Math.max(parameterIndex, getParameterCount())];
+            } else if (parameterIndex > parameters.length) {
+                parameters = Arrays.copyOf(parameters, parameterIndex);
+            }
+            parameters[parameterIndex - 1] = (value == null) ? NULL_PARAMETER : value;
+        }
+    }
+
+    /**
+     * A parameter that cannot be part of a cache key has been bound: results will not be cached.
+     * @param parameterIndex index of the parameter (starting at 1)
+     */
+    private void bindUncacheable(final int parameterIndex) {
+        bound.set(parameterIndex);
+        cacheableParameters = false;
+    }
+
+    /**
+     * Forget recorded parameters.
+     */
+    private void clearBindings() {
+        bound.clear();
+        if (parameters != null) {
+            Arrays.fill(parameters, null);
+        }
+        cacheableParameters = true;
+    }
+
+    /**
+     * An update has been executed with the given SQL, cached results may be outdated.
+     * @param sql SQL of the update
+     */
+    private void invalidate(final String sql) {
+        invalidate(resultCache, notifier, sql);
+    }
+
+    /**
+     * Invalidates the cached results impacted by an update, again when the transaction completes
+     * if the update is part of a transaction.
+     * @param resultCache query result cache of the DataSource (may be null)
+     * @param notifier managed connection the update was executed on
+     * @param sql SQL of the update
+     */
+    static void invalidate(final QueryResultCache resultCache, final ConnectionNotifier notifier, final String sql) {
+        if (resultCache != null) {
+            resultCache.invalidate(sql);
+            if (notifier.isInTransaction()) {
+                notifier.notifyTransactionalUpdate(sql);
+            }
+        }
+    }
+
+    /**
+     * @return SQL of this statement with literals replaced by parameter markers.
+     */
+    protected String getNormalizedSql() {
+        if (normalizedSql == null) {
+            normalizedSql = SqlNormalizer.normalize(sql);
+        }
+        return normalizedSql;
+    }
+
+    /**
+     * An execution is starting.
+     * @param statementSql normalized SQL that is executed
+     * @return start time, in nanoseconds
+     */
+    private long start(final String statementSql) {
+        changed |= WARNINGS;
+        lastSql = statementSql;
+        return System.nanoTime();
+    }
+
+    /**
+     * An execution has succeeded.
+     * @param start start time, in nanoseconds
+     * @param updatedRows number of updated rows
+     */
+    private void executed(final long start, final long updatedRows) {
+        long elapsed = System.nanoTime() - start;
+        notifier.notifyStatementExecuted(lastSql, elapsed, updatedRows);
+        if (notifier.isSlow(elapsed)) {
+            slow(elapsed);
+        }
+    }
+
+    /**
+     * An execution has failed.
+     * @param start start time, in nanoseconds
+     */
+    private void failed(final long start) {
+        long elapsed = System.nanoTime() - start;
+        notifier.notifyStatementFailed(lastSql, elapsed);
+        if (notifier.isSlow(elapsed)) {
+            slow(elapsed);
+        }
+    }
+
+    /**
+     * Reports a slow execution, with the bound parameters when the prepared SQL was executed.
+     * @param elapsed execution time, in nanoseconds
+     */
+    private void slow(final long elapsed) {
+        if (lastSql.equals(getNormalizedSql())) {
+            notifier.notifySlowStatement(sql, elapsed, describeParameters());
+        } else {
+            notifier.notifySlowStatement(lastSql, elapsed, null);
+        }
+    }
+
+    /**
+     * @return summary of the bound parameters (types, and values if allowed), null if not reported
+     */
+    private String describeParameters() {
+        SlowQueryLog.Parameters slowParameters = notifier.getSlowParameters();
+        if (slowParameters == SlowQueryLog.Parameters.NONE) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("[");
+        int count = getParameterCount();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object value = (parameters == null || i >= parameters.length) ? null : parameters[i];
+            if (value == null) {
+                // Not bound, or not recordable (stream, LOB, ...)
+                sb.append(bound.get(i + 1) ? "?" : "<unbound>");
+            } else if (value == NULL_PARAMETER) {
+                sb.append("NULL");
+            } else if (slowParameters == SlowQueryLog.Parameters.VALUES) {
+                sb.append(value);
+            } else {
+                sb.append(value.getClass().getSimpleName());
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Wraps a result set of the last execution in order to count its fetched rows.
+     * The rows fetched from the previous result set are reported.
+     * @param rs physical result set (may be null)
+     * @return the wrapped result set
+     */
+    private ResultSet track(final ResultSet rs) {
+        releaseResults();
+        if (rs == null) {
+            return null;
+        }
+        results = new FetchCountingResultSet(rs, this, lastSql);
+        notifier.notifyResultSetOpened(results);
+        return results;
+    }
+
+    /**
+     * The current result set, if any, has been implicitly closed by a new execution:
+     * report its fetched rows.
+     */
+    private void releaseResults() {
+        if (results != null) {
+            results.report();
+            notifier.notifyResultSetClosed(results);
+            results = null;
+        }
+    }
+
+    /**
+     * Close the current result set, if any: the physical statement stays opened when
+     * this statement is logically closed.
+     */
+    private void closeResults() {
+        if (results != null) {
+            try {
+                results.close();
+            } catch (SQLException e) {
+                logger.debug("Cannot close the ResultSet", e);
+            }
+        }
+    }
+
+    /**
+     * A result set of this statement has been closed.
+     * @param rs closed result set
+     */
+    void resultsClosed(final FetchCountingResultSet rs) {
+        rs.report();
+        if (rs == results) {
+            results = null;
+        }
+        notifier.notifyResultSetClosed(rs);
+    }
+
+    /**
+     * Rows have been fetched from a result set of this statement.
+     * @param statementSql normalized SQL of the query
+     * @param rows number of fetched rows
+     */
+    void fetched(final String statementSql, final long rows) {
+        notifier.notifyRowsFetched(statementSql, rows);
     }
 
     /**
@@ -216,6 +619,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public void setPoolable(final boolean poolable) throws SQLException {
+        changed |= POOLABLE;
         ps.setPoolable(poolable);
     }
 
@@ -236,12 +640,28 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public <T> T unwrap(final Class<T> iface) throws SQLException {
-        return ps.unwrap(iface);
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        T unwrapped;
+        if (iface.isInstance(ps)) {
+            unwrapped = iface.cast(ps);
+        } else {
+            unwrapped = ps.unwrap(iface);
+        }
+        // Vendor specific settings may be applied to the physical statement
+        this.unwrapped = true;
+        return unwrapped;
     }
 
     @Override
     public boolean isWrapperFor(final Class<?> iface) throws SQLException {
-        return ps.isWrapperFor(iface);
+        return iface.isInstance(this) || iface.isInstance(ps) || ps.isWrapperFor(iface);
+    }
+
+    @Override
+    public boolean isUnwrapped() {
+        return unwrapped;
     }
 
     /**
@@ -265,6 +685,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
             logger.debug("Statement already closed");
             return;
         }
+        closeResults();
         opened = false;
         closing = true;
         notifier.notifyPsClose(this);
@@ -278,7 +699,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public void setMaxFieldSize(final int max) throws SQLException {
-        changed = true;
+        changed |= MAX_FIELD_SIZE;
         ps.setMaxFieldSize(max);
     }
 
@@ -289,12 +710,13 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public void setMaxRows(final int max) throws SQLException {
-        changed = true;
+        changed |= MAX_ROWS;
         ps.setMaxRows(max);
     }
 
     @Override
     public void setEscapeProcessing(final boolean enable) throws SQLException {
+        changed |= ESCAPE_PROCESSING;
         ps.setEscapeProcessing(enable);
     }
 
@@ -305,7 +727,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public void setQueryTimeout(final int seconds) throws SQLException {
-        changed = true;
+        changed |= QUERY_TIMEOUT;
         ps.setQueryTimeout(seconds);
     }
 
@@ -322,6 +744,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     @Override
     public void clearWarnings() throws SQLException {
         ps.clearWarnings();
+        changed &= ~WARNINGS;
     }
 
     @Override
@@ -332,13 +755,28 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     @Override
     public boolean execute(final String sql) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.execute(sql);
+        long start = start(SqlNormalizer.normalize(sql));
+        boolean result;
+        try {
+            result = ps.execute(sql);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
     }
 
     @Override
     public ResultSet getResultSet() throws SQLException {
-        return ps.getResultSet();
+        ResultSet rs = ps.getResultSet();
+        if (rs != null && results != null && results.wraps(rs)) {
+            return results;
+        }
+        return track(rs);
     }
 
     @Override
@@ -353,7 +791,7 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public void setFetchDirection(final int direction) throws SQLException {
-        changed = true;
+        changed |= FETCH_DIRECTION;
         ps.setFetchDirection(direction);
     }
 
@@ -362,9 +800,21 @@ public class ReusablePreparedStatement implements IPreparedStatement {
         return ps.getFetchDirection();
     }
 
+    /**
+     * Sets the fetch size of this statement, it is restored each time the statement is reused.
+     * @param rows default fetch size, 0 for the driver's default
+     * @throws SQLException if the fetch size cannot be set
+     */
+    public void setDefaultFetchSize(final int rows) throws SQLException {
+        defaultFetchSize = rows;
+        if (rows != NO_LIMIT) {
+            ps.setFetchSize(rows);
+        }
+    }
+
     @Override
     public void setFetchSize(final int rows) throws SQLException {
-        changed = true;
+        changed |= FETCH_SIZE;
         ps.setFetchSize(rows);
     }
 
@@ -386,18 +836,37 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     @Override
     public void addBatch(final String sql) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
+        changed |= BATCH;
         ps.addBatch(sql);
     }
 
     @Override
     public void clearBatch() throws SQLException {
         ps.clearBatch();
+        changed &= ~BATCH;
     }
 
     @Override
     public int[] executeBatch() throws SQLException {
-        return ps.executeBatch();
+        long start = start(getNormalizedSql());
+        int[] result;
+        try {
+            result = ps.executeBatch();
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        // The batch is empty once executed
+        changed &= ~BATCH;
+        long updatedRows = 0;
+        for (int count : result) {
+            if (count > 0) {
+                updatedRows += count;
+            }
+        }
+        executed(start, updatedRows);
+        invalidate(sql);
+        return result;
     }
 
     @Override
@@ -418,43 +887,103 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     @Override
     public int executeUpdate(final String sql, final int autoGeneratedKeys) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.executeUpdate(sql, autoGeneratedKeys);
+        long start = start(SqlNormalizer.normalize(sql));
+        int result;
+        try {
+            result = ps.executeUpdate(sql, autoGeneratedKeys);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, result);
+        invalidate(sql);
+        return result;
     }
 
     @Override
     public int executeUpdate(final String sql, final int[] columnIndexes) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.executeUpdate(sql, columnIndexes);
+        long start = start(SqlNormalizer.normalize(sql));
+        int result;
+        try {
+            result = ps.executeUpdate(sql, columnIndexes);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, result);
+        invalidate(sql);
+        return result;
     }
 
     @Override
     public int executeUpdate(final String sql, final String[] columnNames) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.executeUpdate(sql, columnNames);
+        long start = start(SqlNormalizer.normalize(sql));
+        int result;
+        try {
+            result = ps.executeUpdate(sql, columnNames);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, result);
+        invalidate(sql);
+        return result;
     }
 
     @Override
     public boolean execute(final String sql, final int autoGeneratedKeys) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.execute(sql, autoGeneratedKeys);
+        long start = start(SqlNormalizer.normalize(sql));
+        boolean result;
+        try {
+            result = ps.execute(sql, autoGeneratedKeys);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
     }
 
     @Override
     public boolean execute(final String sql, final int[] columnIndexes) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.execute(sql, columnIndexes);
+        long start = start(SqlNormalizer.normalize(sql));
+        boolean result;
+        try {
+            result = ps.execute(sql, columnIndexes);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
     }
 
     @Override
     public boolean execute(final String sql, final String[] columnNames) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.execute(sql, columnNames);
+        long start = start(SqlNormalizer.normalize(sql));
+        boolean result;
+        try {
+            result = ps.execute(sql, columnNames);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
     }
 
     @Override
@@ -468,150 +997,222 @@ public class ReusablePreparedStatement implements IPreparedStatement {
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        return ps.executeQuery();
+        if (cacheable && cacheableParameters && !notifier.isInTransaction()) {
+            QueryKey key = new QueryKey(sql, (parameters == null) ? NO_PARAMETERS : parameters.clone());
+            ResultSet cached = resultCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            long generation = resultCache.getGeneration(sql);
+            return resultCache.put(key, generation, query());
+        }
+        return query();
+    }
+
+    /**
+     * Executes the query on the physical statement.
+     * @return the wrapped result set
+     * @throws SQLException if the query fails
+     */
+    private ResultSet query() throws SQLException {
+        long start = start(getNormalizedSql());
+        ResultSet rs;
+        try {
+            rs = ps.executeQuery();
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        return track(rs);
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        changed = true;
-        return ps.executeUpdate();
+        long start = start(getNormalizedSql());
+        int result;
+        try {
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, result);
+        invalidate(sql);
+        return result;
     }
 
     @Override
     public void setNull(final int parameterIndex, final int sqlType) throws SQLException {
         ps.setNull(parameterIndex, sqlType);
+        bind(parameterIndex, null);
     }
 
     @Override
     public void setBoolean(final int parameterIndex, final boolean x) throws SQLException {
         ps.setBoolean(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setByte(final int parameterIndex, final byte x) throws SQLException {
         ps.setByte(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setShort(final int parameterIndex, final short x) throws SQLException {
         ps.setShort(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setInt(final int parameterIndex, final int x) throws SQLException {
         ps.setInt(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setLong(final int parameterIndex, final long x) throws SQLException {
         ps.setLong(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setFloat(final int parameterIndex, final float x) throws SQLException {
         ps.setFloat(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setDouble(final int parameterIndex, final double x) throws SQLException {
         ps.setDouble(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setBigDecimal(final int parameterIndex, final BigDecimal x) throws SQLException {
         ps.setBigDecimal(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setString(final int parameterIndex, final String x) throws SQLException {
         ps.setString(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setBytes(final int parameterIndex, final byte[] x) throws SQLException {
         ps.setBytes(parameterIndex, x);
+        bind(parameterIndex, (x == null) ? null : x.clone());
     }
 
     @Override
     public void setDate(final int parameterIndex, final Date x) throws SQLException {
         ps.setDate(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setTime(final int parameterIndex, final Time x) throws SQLException {
         ps.setTime(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setTimestamp(final int parameterIndex, final Timestamp x) throws SQLException {
         ps.setTimestamp(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public void setAsciiStream(final int parameterIndex, final InputStream x, final int length) throws SQLException {
         ps.setAsciiStream(parameterIndex, x, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setUnicodeStream(final int parameterIndex, final InputStream x, final int length) throws SQLException {
         ps.setUnicodeStream(parameterIndex, x, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setBinaryStream(final int parameterIndex, final InputStream x, final int length) throws SQLException {
         ps.setBinaryStream(parameterIndex, x, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void clearParameters() throws SQLException {
         ps.clearParameters();
+        clearBindings();
     }
 
     @Override
     public void setObject(final int parameterIndex, final Object x, final int targetSqlType) throws SQLException {
         ps.setObject(parameterIndex, x, targetSqlType);
+        bind(parameterIndex, Arrays.asList(x, targetSqlType));
     }
 
     @Override
     public void setObject(final int parameterIndex, final Object x) throws SQLException {
         ps.setObject(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
     public boolean execute() throws SQLException {
-        changed = true;
-        return ps.execute();
+        long start = start(getNormalizedSql());
+        boolean result;
+        try {
+            result = ps.execute();
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
     }
 
     @Override
     public void addBatch() throws SQLException {
-        changed = true;
+        changed |= BATCH;
         ps.addBatch();
     }
 
     @Override
     public void setCharacterStream(final int parameterIndex, final Reader reader, final int length) throws SQLException {
         ps.setCharacterStream(parameterIndex, reader, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setRef(final int parameterIndex, final Ref x) throws SQLException {
         ps.setRef(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setBlob(final int parameterIndex, final Blob x) throws SQLException {
         ps.setBlob(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setClob(final int parameterIndex, final Clob x) throws SQLException {
         ps.setClob(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setArray(final int parameterIndex, final Array x) throws SQLException {
         ps.setArray(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
@@ -622,26 +1223,31 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     @Override
     public void setDate(final int parameterIndex, final Date x, final Calendar cal) throws SQLException {
         ps.setDate(parameterIndex, x, cal);
+        bind(parameterIndex, Arrays.asList(x, (cal == null) ? null : cal.getTimeZone().getID()));
     }
 
     @Override
     public void setTime(final int parameterIndex, final Time x, final Calendar cal) throws SQLException {
         ps.setTime(parameterIndex, x, cal);
+        bind(parameterIndex, Arrays.asList(x, (cal == null) ? null : cal.getTimeZone().getID()));
     }
 
     @Override
     public void setTimestamp(final int parameterIndex, final Timestamp x, final Calendar cal) throws SQLException {
         ps.setTimestamp(parameterIndex, x, cal);
+        bind(parameterIndex, Arrays.asList(x, (cal == null) ? null : cal.getTimeZone().getID()));
     }
 
     @Override
     public void setNull(final int parameterIndex, final int sqlType, final String typeName) throws SQLException {
         ps.setNull(parameterIndex, sqlType, typeName);
+        bind(parameterIndex, null);
     }
 
     @Override
     public void setURL(final int parameterIndex, final URL x) throws SQLException {
         ps.setURL(parameterIndex, x);
+        bind(parameterIndex, x);
     }
 
     @Override
@@ -652,108 +1258,145 @@ public class ReusablePreparedStatement implements IPreparedStatement {
     @Override
     public void setRowId(final int parameterIndex, final RowId x) throws SQLException {
         ps.setRowId(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setNString(final int parameterIndex, final String value) throws SQLException {
         ps.setNString(parameterIndex, value);
+        bind(parameterIndex, value);
     }
 
     @Override
     public void setNCharacterStream(final int parameterIndex, final Reader value, final long length) throws SQLException {
         ps.setNCharacterStream(parameterIndex, value, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setNClob(final int parameterIndex, final NClob value) throws SQLException {
         ps.setNClob(parameterIndex, value);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setClob(final int parameterIndex, final Reader reader, final long length) throws SQLException {
         ps.setClob(parameterIndex, reader, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setBlob(final int parameterIndex, final InputStream inputStream, final long length) throws SQLException {
         ps.setBlob(parameterIndex, inputStream, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setNClob(final int parameterIndex, final Reader reader, final long length) throws SQLException {
         ps.setNClob(parameterIndex, reader, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setSQLXML(final int parameterIndex, final SQLXML xmlObject) throws SQLException {
         ps.setSQLXML(parameterIndex, xmlObject);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setObject(final int parameterIndex, final Object x, final int targetSqlType, final int scaleOrLength) throws SQLException {
         ps.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        bind(parameterIndex, Arrays.asList(x, targetSqlType, scaleOrLength));
     }
 
     @Override
     public void setAsciiStream(final int parameterIndex, final InputStream x, final long length) throws SQLException {
         ps.setAsciiStream(parameterIndex, x, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setBinaryStream(final int parameterIndex, final InputStream x, final long length) throws SQLException {
         ps.setBinaryStream(parameterIndex, x, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setCharacterStream(final int parameterIndex, final Reader reader, final long length) throws SQLException {
         ps.setCharacterStream(parameterIndex, reader, length);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setAsciiStream(final int parameterIndex, final InputStream x) throws SQLException {
         ps.setAsciiStream(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setBinaryStream(final int parameterIndex, final InputStream x) throws SQLException {
         ps.setBinaryStream(parameterIndex, x);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setCharacterStream(final int parameterIndex, final Reader reader) throws SQLException {
         ps.setCharacterStream(parameterIndex, reader);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setNCharacterStream(final int parameterIndex, final Reader value) throws SQLException {
         ps.setNCharacterStream(parameterIndex, value);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setClob(final int parameterIndex, final Reader reader) throws SQLException {
         ps.setClob(parameterIndex, reader);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setBlob(final int parameterIndex, final InputStream inputStream) throws SQLException {
         ps.setBlob(parameterIndex, inputStream);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public void setNClob(final int parameterIndex, final Reader reader) throws SQLException {
         ps.setNClob(parameterIndex, reader);
+        bindUncacheable(parameterIndex);
     }
 
     @Override
     public ResultSet executeQuery(final String sql) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        return ps.executeQuery(sql);
+        long start = start(SqlNormalizer.normalize(sql));
+        ResultSet rs;
+        try {
+            rs = ps.executeQuery(sql);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, 0);
+        return track(rs);
     }
 
     @Override
     public int executeUpdate(final String sql) throws SQLException {
         // TODO Should we throw an Exception since this method should not be called on a PreparedStatement (per spec) ?
-        changed = true;
-        return ps.executeUpdate(sql);
+        long start = start(SqlNormalizer.normalize(sql));
+        int result;
+        try {
+            result = ps.executeUpdate(sql);
+        } catch (SQLException e) {
+            failed(start);
+            throw e;
+        }
+        executed(start, result);
+        invalidate(sql);
+        return result;
     }
 }
\ No newline at end of file
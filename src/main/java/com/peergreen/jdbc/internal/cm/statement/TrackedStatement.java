@@ -0,0 +1,466 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.statement;
+
+import com.peergreen.jdbc.internal.cm.ConnectionNotifier;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wrapper on a plain Statement (not cached), so that the managed connection knows it is
+ * still opened and can close it when the connection is released.
+ */
+public class TrackedStatement implements Statement {
+
+    /**
+     * Physical Statement object on which the wrapper is.
+     */
+    private final Statement statement;
+
+    /**
+     * Managed Connection the Statement belongs to.
+     */
+    private final ConnectionNotifier notifier;
+
+    /**
+     * Query result cache of the DataSource, invalidated by the updates (may be null).
+     */
+    private final QueryResultCache resultCache;
+
+    /**
+     * SQL of the batched updates, invalidated once the batch is executed.
+     */
+    private final List<String> batch = new ArrayList<>();
+
+    /**
+     * Has this statement been closed ?
+     */
+    private boolean closed = false;
+
+    /**
+     * @param statement physical statement
+     * @param notifier managed connection
+     * @param resultCache query result cache of the DataSource (may be null)
+     */
+    public TrackedStatement(final Statement statement,
+                            final ConnectionNotifier notifier,
+                            final QueryResultCache resultCache) {
+        this.statement = statement;
+        this.notifier = notifier;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public ResultSet executeQuery(final String sql) throws SQLException {
+        long start = System.nanoTime();
+        ResultSet result;
+        try {
+            result = statement.executeQuery(sql);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, 0);
+        return result;
+    }
+
+    @Override
+    public int executeUpdate(final String sql) throws SQLException {
+        long start = System.nanoTime();
+        int result;
+        try {
+            result = statement.executeUpdate(sql);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, result);
+        invalidate(sql);
+        return result;
+    }
+
+    /**
+     * An execution has succeeded, reported to the connection (and to the slow query log if it took too long).
+     * @param sql executed SQL
+     * @param start start time, in nanoseconds
+     * @param updatedRows number of updated rows
+     */
+    private void executed(final String sql, final long start, final long updatedRows) {
+        long elapsed = System.nanoTime() - start;
+        notifier.notifyStatementExecuted(SqlNormalizer.normalize(sql), elapsed, updatedRows);
+        if (notifier.isSlow(elapsed)) {
+            notifier.notifySlowStatement(sql, elapsed, null);
+        }
+    }
+
+    /**
+     * An execution has failed, reported to the connection (and to the slow query log if it took too long).
+     * @param sql executed SQL
+     * @param start start time, in nanoseconds
+     */
+    private void failed(final String sql, final long start) {
+        long elapsed = System.nanoTime() - start;
+        notifier.notifyStatementFailed(SqlNormalizer.normalize(sql), elapsed);
+        if (notifier.isSlow(elapsed)) {
+            notifier.notifySlowStatement(sql, elapsed, null);
+        }
+    }
+
+    /**
+     * An update has been executed with the given SQL, cached results may be outdated.
+     * @param sql SQL of the update
+     */
+    private void invalidate(final String sql) {
+        ReusablePreparedStatement.invalidate(resultCache, notifier, sql);
+    }
+
+    /**
+     * Physically closes the statement (and its result sets), it is no more tracked by the connection.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            statement.close();
+        } finally {
+            notifier.notifyStatementClosed(this);
+        }
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return statement.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(final int max) throws SQLException {
+        statement.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return statement.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(final int max) throws SQLException {
+        statement.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(final boolean enable) throws SQLException {
+        statement.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return statement.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(final int seconds) throws SQLException {
+        statement.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        statement.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return statement.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        statement.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(final String name) throws SQLException {
+        statement.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(final String sql) throws SQLException {
+        long start = System.nanoTime();
+        boolean result;
+        try {
+            result = statement.execute(sql);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return statement.getResultSet();
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return statement.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return statement.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(final int direction) throws SQLException {
+        statement.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return statement.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(final int rows) throws SQLException {
+        statement.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return statement.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return statement.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return statement.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(final String sql) throws SQLException {
+        statement.addBatch(sql);
+        batch.add(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        statement.clearBatch();
+        batch.clear();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        // The batch is reported under the SQL of its first statement
+        String sql = batch.isEmpty() ? null : batch.get(0);
+        long start = System.nanoTime();
+        int[] result;
+        try {
+            result = statement.executeBatch();
+        } catch (SQLException e) {
+            if (sql != null) {
+                failed(sql, start);
+            }
+            throw e;
+        } finally {
+            // Some updates may have been applied even if the batch failed
+            for (String update : batch) {
+                invalidate(update);
+            }
+            batch.clear();
+        }
+        if (sql != null) {
+            long updatedRows = 0;
+            for (int count : result) {
+                if (count > 0) {
+                    updatedRows += count;
+                }
+            }
+            executed(sql, start, updatedRows);
+        }
+        return result;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return statement.getConnection();
+    }
+
+    @Override
+    public boolean getMoreResults(final int current) throws SQLException {
+        return statement.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return statement.getGeneratedKeys();
+    }
+
+    @Override
+    public int executeUpdate(final String sql, final int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        int result;
+        try {
+            result = statement.executeUpdate(sql, autoGeneratedKeys);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, result);
+        invalidate(sql);
+        return result;
+    }
+
+    @Override
+    public int executeUpdate(final String sql, final int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        int result;
+        try {
+            result = statement.executeUpdate(sql, columnIndexes);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, result);
+        invalidate(sql);
+        return result;
+    }
+
+    @Override
+    public int executeUpdate(final String sql, final String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        int result;
+        try {
+            result = statement.executeUpdate(sql, columnNames);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, result);
+        invalidate(sql);
+        return result;
+    }
+
+    @Override
+    public boolean execute(final String sql, final int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        boolean result;
+        try {
+            result = statement.execute(sql, autoGeneratedKeys);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean execute(final String sql, final int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        boolean result;
+        try {
+            result = statement.execute(sql, columnIndexes);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean execute(final String sql, final String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        boolean result;
+        try {
+            result = statement.execute(sql, columnNames);
+        } catch (SQLException e) {
+            failed(sql, start);
+            throw e;
+        }
+        executed(sql, start, 0);
+        if (!result) {
+            invalidate(sql);
+        }
+        return result;
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return statement.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public void setPoolable(final boolean poolable) throws SQLException {
+        statement.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return statement.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        statement.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return statement.isCloseOnCompletion();
+    }
+
+    @Override
+    public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (iface.isInstance(statement)) {
+            return iface.cast(statement);
+        }
+        return statement.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || iface.isInstance(statement) || statement.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource;
+
+import java.util.Locale;
+
+/**
+ * When the initial connections of the pool (up to {@code pool.min}) are created.
+ */
+public enum Activation {
+
+    /**
+     * Created when the DataSource starts, a connection failure prevents the start.
+     */
+    EAGER,
+
+    /**
+     * Created by a background thread once the DataSource is started, so that many DataSources
+     * start concurrently.
+     */
+    BACKGROUND,
+
+    /**
+     * Created by a background thread on the first {@code getConnection()}.
+     */
+    LAZY;
+
+    /**
+     * Activation used when {@code pool.activation} is not set.
+     */
+    public static final Activation DEFAULT = BACKGROUND;
+
+    /**
+     * @param activation {@code eager}, {@code background} or {@code lazy} (case insensitive)
+     * @return the parsed activation
+     * @throws IllegalArgumentException if the activation is unknown
+     */
+    public static Activation parse(final String activation) {
+        return valueOf(activation.trim().toUpperCase(Locale.ENGLISH));
+    }
+}
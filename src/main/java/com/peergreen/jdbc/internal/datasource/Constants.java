@@ -77,6 +77,38 @@ public interface Constants {
      */
     String JDBC_PREPAREDSTATEMENT_CACHESIZE = "jdbc.preparedstatement.cachesize";
 
+    /**
+     * Maximum number of cached instances of the same PreparedStatement in a connection (defaults to 4).
+     * An opened statement is never shared: when all the instances are used, a new statement is prepared
+     * and only cached if this limit is not reached.
+     */
+    String JDBC_PREPAREDSTATEMENT_INSTANCES = "jdbc.preparedstatement.instances";
+
+    /**
+     * Number of the most used statements (over all the connections) prepared on the connections created
+     * to fill the pool, before they are made available (defaults to 0, no warm up).
+     * Only effective when the PreparedStatement cache is enabled.
+     */
+    String JDBC_PREPAREDSTATEMENT_WARMUP_SIZE = "jdbc.preparedstatement.warmup.size";
+
+    /**
+     * Maximum number of milliseconds spent preparing statements on a new connection (defaults to 1 second).
+     */
+    String JDBC_PREPAREDSTATEMENT_WARMUP_TIMEOUT = "jdbc.preparedstatement.warmup.timeout";
+
+    /**
+     * Number of rows fetched per database round trip by the statements (defaults to 0, the driver's default).
+     * A statement may still change it, a cached statement gets it back when reused.
+     */
+    String JDBC_FETCH_SIZE = "jdbc.fetch.size";
+
+    /**
+     * Stream the results of forward only, read only statements instead of letting the driver load them
+     * entirely in memory (defaults to false). These statements use {@link #JDBC_FETCH_SIZE}, or 100 rows when
+     * it is not set. Some drivers have their own requirements (cursor fetch for MySQL, no auto-commit for PostgreSQL).
+     */
+    String JDBC_FETCH_STREAMING = "jdbc.fetch.streaming";
+
     /**
      * Minimum size of the connection pool (default to 0).
      */
@@ -97,6 +129,126 @@ public interface Constants {
      */
     String POOL_WAITERS_TIMEOUT = "pool.waiters.timeout";
 
+    /**
+     * When the initial connections are created: {@code eager} (during the start), {@code background}
+     * (after the start, by a background thread) or {@code lazy} (on first use) (defaults to background).
+     */
+    String POOL_ACTIVATION = "pool.activation";
+
+    /**
+     * Maximum number of milliseconds to wait, when the DataSource stops, for the borrowed connections
+     * to be released before closing them (defaults to 30 seconds, 0 closes them immediately).
+     */
+    String POOL_DRAIN_TIMEOUT = "pool.drain.timeout";
+
+    /**
+     * Maximum number of query results kept in the DataSource result cache (defaults to 0, no result cache).
+     * Only queries matching {@link #JDBC_RESULTCACHE_PATTERNS} and executed through pooled
+     * {@link java.sql.PreparedStatement}s are cached.
+     */
+    String JDBC_RESULTCACHE_SIZE = "jdbc.resultcache.size";
+
+    /**
+     * Time to live of a cached query result in milliseconds (defaults to 1 minute, 0 means no expiration).
+     */
+    String JDBC_RESULTCACHE_TTL = "jdbc.resultcache.ttl";
+
+    /**
+     * Semicolon separated list of regular expressions, a query is cacheable if its SQL matches one of them
+     * (defaults to {@literal null}, nothing is cached).
+     */
+    String JDBC_RESULTCACHE_PATTERNS = "jdbc.resultcache.patterns";
+
+    /**
+     * Comma separated list of table names: when an update executed through this DataSource references one of
+     * these tables, all the cached results of queries referencing the same table are invalidated
+     * (defaults to {@literal null}).
+     */
+    String JDBC_RESULTCACHE_TABLES = "jdbc.resultcache.tables";
+
+    /**
+     * Maximum number of distinct (normalized) SQL statements for which execution statistics are kept
+     * (defaults to 1000, 0 disables the per SQL statistics).
+     * When the limit is reached, the statement with the smallest total execution time is replaced.
+     */
+    String JDBC_STATISTICS_STATEMENTS_SIZE = "jdbc.statistics.statements.size";
+
+    /**
+     * Collect the DataSource statistics (defaults to true). When disabled, the statistics are neither
+     * collected nor exposed (MBeans, metrics), only the listeners registered as services are notified.
+     * Applied when the DataSource starts.
+     */
+    String JDBC_STATISTICS_ENABLED = "jdbc.statistics.enabled";
+
+    /**
+     * Number of seconds between two publications of the DataSource metrics to the
+     * {@link com.peergreen.jdbc.metrics.MetricsSink} services (defaults to 10, 0 disables the publication).
+     */
+    String JDBC_METRICS_INTERVAL = "jdbc.metrics.interval";
+
+    /**
+     * Comma separated list of the diagnostic events to record (defaults to none), such as
+     * {@code connection_waited,statement_executed}, or {@code all}.
+     * See {@link com.peergreen.jdbc.internal.cm.event.EventType} for the available events.
+     */
+    String JDBC_EVENTS = "jdbc.events";
+
+    /**
+     * Minimum duration in milliseconds of the recorded timed events (defaults to 0, every event is recorded).
+     */
+    String JDBC_EVENTS_THRESHOLD = "jdbc.events.threshold";
+
+    /**
+     * Number of recorded events kept in memory (defaults to 1000), the oldest ones are dropped.
+     */
+    String JDBC_EVENTS_SIZE = "jdbc.events.size";
+
+    /**
+     * Statements executed in more than this number of milliseconds are logged in the
+     * {@code <datasource>.ItemFactory.SlowQueries} logger (defaults to 0, disabled).
+     */
+    String JDBC_SLOW_THRESHOLD = "jdbc.slow.threshold";
+
+    /**
+     * Log one out of N slow executions of a statement, the first one is always logged (defaults to 1, all logged).
+     */
+    String JDBC_SLOW_SAMPLING = "jdbc.slow.sampling";
+
+    /**
+     * What the slow query log reports of the bound parameters: {@code none}, {@code types} (defaults, values
+     * are redacted) or {@code values}. Literals of the plain statements are only kept with {@code values}.
+     */
+    String JDBC_SLOW_PARAMETERS = "jdbc.slow.parameters";
+
+    /**
+     * A saturation notification is sent by the statistics MBean when more threads than this number wait
+     * for a connection (defaults to 0, disabled).
+     */
+    String JDBC_ALERT_WAITERS = "jdbc.alert.waiters";
+
+    /**
+     * A saturation notification is sent by the statistics MBean when the busy connections exceed this
+     * percentage of {@link #POOL_MAX} (defaults to 0, disabled).
+     */
+    String JDBC_ALERT_BUSY = "jdbc.alert.busy";
+
+    /**
+     * A saturation notification is sent by the statistics MBean when the 99th percentile of the wait
+     * time, over the last second, exceeds this number of milliseconds (defaults to 0, disabled).
+     */
+    String JDBC_ALERT_WAIT = "jdbc.alert.wait";
+
+    /**
+     * Send a saturation notification when connection requests are rejected because of too many
+     * waiters or of a wait timeout (defaults to true).
+     */
+    String JDBC_ALERT_REJECTIONS = "jdbc.alert.rejections";
+
+    /**
+     * Minimum number of seconds between two saturation notifications of the same kind (defaults to 60).
+     */
+    String JDBC_ALERT_PERIOD = "jdbc.alert.period";
+
 
     // Not used at the moment
 
@@ -11,23 +11,42 @@
 
 package com.peergreen.jdbc.internal.datasource;
 
+import com.peergreen.jdbc.internal.cm.CompositeConnectionManagerListener;
 import com.peergreen.jdbc.internal.cm.ConnectionManager;
+import com.peergreen.jdbc.internal.cm.IManagedConnection;
 import com.peergreen.jdbc.internal.cm.TransactionIsolation;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import com.peergreen.jdbc.internal.cm.event.EventRecorder;
+import com.peergreen.jdbc.internal.cm.event.SlowQueryLog;
+import com.peergreen.jdbc.internal.cm.pool.CompositePoolLifecycleListener;
 import com.peergreen.jdbc.internal.cm.pool.internal.ManagedConnectionFactory;
 import com.peergreen.jdbc.internal.cm.pool.internal.ManagedConnectionPool;
 import com.peergreen.jdbc.internal.cm.pool.internal.ds.DataSourceNativeConnectionBuilder;
 import com.peergreen.jdbc.internal.cm.stat.DataSourceStatisticsListener;
+import com.peergreen.jdbc.internal.cm.stat.Sampler;
+import com.peergreen.jdbc.internal.cm.stat.SaturationMonitor;
+import com.peergreen.jdbc.internal.cm.stat.StatementStatistics;
 import com.peergreen.jdbc.internal.datasource.mbean.internal.ConnectionPoolStatisticsManagementBean;
+import com.peergreen.jdbc.internal.datasource.mbean.internal.ConnectionStatisticsWindowManagementBean;
 import com.peergreen.jdbc.internal.datasource.mbean.internal.DataSourceManagementBean;
+import com.peergreen.jdbc.internal.datasource.mbean.internal.EventRecorderManagementBean;
+import com.peergreen.jdbc.internal.datasource.mbean.internal.QueryResultCacheManagementBean;
+import com.peergreen.jdbc.internal.datasource.mbean.internal.StatementStatisticsManagementBean;
 import com.peergreen.jdbc.internal.datasource.naming.DataSourceReference;
 import com.peergreen.jdbc.internal.log.FormattedLogger;
 import com.peergreen.jdbc.internal.log.Log;
+import com.peergreen.jdbc.internal.metrics.MetricsPublisher;
+import com.peergreen.jdbc.listener.ConnectionManagerListener;
+import com.peergreen.jdbc.listener.PoolLifecycleListener;
+import com.peergreen.jdbc.metrics.MetricsSink;
+import org.apache.felix.ipojo.annotations.Bind;
 import org.apache.felix.ipojo.annotations.Component;
 import org.apache.felix.ipojo.annotations.Invalidate;
 import org.apache.felix.ipojo.annotations.Property;
 import org.apache.felix.ipojo.annotations.Provides;
 import org.apache.felix.ipojo.annotations.Requires;
 import org.apache.felix.ipojo.annotations.ServiceProperty;
+import org.apache.felix.ipojo.annotations.Unbind;
 import org.apache.felix.ipojo.annotations.Updated;
 import org.apache.felix.ipojo.annotations.Validate;
 import org.osgi.service.jdbc.DataSourceFactory;
@@ -41,11 +60,21 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import static com.peergreen.jdbc.internal.datasource.Constants.DATASOURCE_NAME;
 import static java.lang.String.format;
@@ -62,6 +91,11 @@ import static java.lang.String.format;
 @Provides
 public class DataSource implements javax.sql.DataSource {
 
+    /**
+     * Statistics windows exposed through JMX, in minutes.
+     */
+    private static final int[] WINDOWS = {1, 5, Sampler.MAXIMUM_WINDOW};
+
     @Property(mandatory = true)
     private String driverClass;
 
@@ -78,10 +112,47 @@ public class DataSource implements javax.sql.DataSource {
     private TransactionIsolation transactionIsolation;
 
     private Integer preparedStatementCacheSize;
+    private Integer preparedStatementInstances;
+    private Integer warmUpSize;
+    private Long warmUpTimeout;
+    private Integer fetchSize;
+    private Boolean streaming;
     private Integer poolMin;
     private Integer poolMax;
     private Integer maxWaiters;
     private Long waiterTimeout;
+    private String activation;
+    private Long drainTimeout;
+
+    /**
+     * Lazy activation not yet triggered by a getConnection().
+     */
+    private volatile boolean lazy;
+
+    private Integer resultCacheSize;
+    private Long resultCacheTimeToLive;
+    private String resultCachePatterns;
+    private String resultCacheTables;
+
+    private Integer statementStatisticsSize;
+    private boolean statisticsEnabled = true;
+    private Integer metricsInterval;
+
+    private String events;
+    private Long eventsThreshold;
+    private Integer eventsSize;
+    private EventRecorder eventRecorder;
+
+    private Long slowThreshold;
+    private Integer slowSampling;
+    private String slowParameters;
+
+    private Long alertWaiters;
+    private Long alertBusy;
+    private Long alertWait;
+    private Boolean alertRejections;
+    private Long alertPeriod;
+    private SaturationMonitor monitor;
 
     private Integer loginTimeout;
     @ServiceProperty(name = DATASOURCE_NAME, mandatory = true)
@@ -93,7 +164,12 @@ public class DataSource implements javax.sql.DataSource {
     private final TransactionManager transactionManager;
     private final JNDIContextManager contextManager;
 
-    private javax.sql.DataSource delegate;
+    private volatile javax.sql.DataSource delegate;
+
+    /**
+     * Properties identifying the connections created by the delegate (url, credentials and driver properties).
+     */
+    private Properties identity;
 
     private Dictionary<String, Object> properties = new Hashtable<>();
     private ConnectionManager manager;
@@ -103,7 +179,21 @@ public class DataSource implements javax.sql.DataSource {
 
     private Logger parentLogger;
     private ConnectionPoolStatisticsManagementBean statisticsMBean;
+    private ScheduledExecutorService sampler;
+    private MetricsPublisher publisher;
+    private ScheduledFuture<?> publication;
+    private final List<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+
+    // Built-in statistics and listeners registered as services
+    private final CompositePoolLifecycleListener poolListeners = new CompositePoolLifecycleListener();
+    private final CompositeConnectionManagerListener managerListeners = new CompositeConnectionManagerListener();
+    private DataSourceStatisticsListener statistics;
+    private StatementStatistics statementStatistics;
+    private List<ConnectionStatisticsWindowManagementBean> windowMBeans = new ArrayList<>();
     private DataSourceManagementBean dataSourceMBean;
+    private QueryResultCacheManagementBean resultCacheMBean;
+    private StatementStatisticsManagementBean statementStatisticsMBean;
+    private EventRecorderManagementBean eventRecorderMBean;
 
     public DataSource(@Requires(filter = "(osgi.jdbc.driver.class=${driverClass})")
                       final DataSourceFactory dataSourceFactory,
@@ -124,6 +214,82 @@ public class DataSource implements javax.sql.DataSource {
     @Updated
     public void update(Dictionary<String, Object> configuration) {
         this.properties = configuration;
+        // Only when started
+        if (identity != null) {
+            Properties changed = getIdentity();
+            if (!changed.equals(identity)) {
+                reconnect(changed);
+            }
+        }
+    }
+
+    /**
+     * The connection identity changed: the native DataSource is replaced and the pooled connections
+     * are renewed as they are released, in-flight work continues on the previous connections.
+     */
+    private void reconnect(final Properties changed) {
+        Log log = getConnectionBuilderLogger();
+        javax.sql.DataSource source;
+        try {
+            source = dataSourceFactory.createDataSource(getDriverProperties());
+        } catch (SQLException | RuntimeException e) {
+            log.error("Cannot reconnect %s, the current connections are kept", datasourceName, e);
+            return;
+        }
+        delegate = source;
+        builder.setDataSource(source);
+        if (loginTimeout != null) {
+            builder.setLoginTimeout(loginTimeout);
+        }
+        pool.setUserName(username);
+        pool.setPassword(password);
+        identity = changed;
+        int count = pool.evict();
+        log.info("%s reconnected, %d connection(s) will be replaced", datasourceName, count);
+    }
+
+    private Properties getDriverProperties() {
+        Properties props = new Properties();
+        props.setProperty(DataSourceFactory.JDBC_URL, url);
+        props.setProperty(DataSourceFactory.JDBC_USER, username);
+        props.setProperty(DataSourceFactory.JDBC_PASSWORD, password);
+
+        // Collect additional properties
+        // Transform them into String if not already done
+        for (String key : Collections.list(properties.keys())) {
+            Object value = properties.get(key);
+            if (value != null) {
+                props.setProperty(key, value.toString());
+            }
+        }
+        return props;
+    }
+
+    private Properties getIdentity() {
+        Properties props = getDriverProperties();
+        for (String key : props.stringPropertyNames()) {
+            if (!DataSourceFactory.JDBC_URL.equals(key)
+                    && !DataSourceFactory.JDBC_USER.equals(key)
+                    && !DataSourceFactory.JDBC_PASSWORD.equals(key)
+                    && !isDriverProperty(key)) {
+                props.remove(key);
+            }
+        }
+        return props;
+    }
+
+    /**
+     * @param key configuration property name
+     * @return {@code true} if the property is not one of the DataSource own settings, it is then only
+     * given to the driver
+     */
+    public static boolean isDriverProperty(final String key) {
+        return !key.startsWith("jdbc.")
+                && !key.startsWith("pool.")
+                && !key.startsWith("jndi.")
+                && !key.startsWith("login.")
+                && !key.startsWith("datasource.")
+                && !"driverClass".equals(key);
     }
 
     @Property(name = Constants.URL, mandatory = true)
@@ -194,6 +360,46 @@ public class DataSource implements javax.sql.DataSource {
         }
     }
 
+    @Property(name = Constants.JDBC_PREPAREDSTATEMENT_INSTANCES, value = "4")
+    public void setPreparedStatementInstances(final Integer preparedStatementInstances) {
+        this.preparedStatementInstances = preparedStatementInstances;
+        if (factory != null) {
+            factory.setPreparedStatementInstances(preparedStatementInstances);
+        }
+    }
+
+    @Property(name = Constants.JDBC_PREPAREDSTATEMENT_WARMUP_SIZE, value = "0")
+    public void setWarmUpSize(final Integer warmUpSize) {
+        this.warmUpSize = warmUpSize;
+        if (pool != null) {
+            pool.setWarmUpSize(warmUpSize);
+        }
+    }
+
+    @Property(name = Constants.JDBC_PREPAREDSTATEMENT_WARMUP_TIMEOUT, value = "1000")
+    public void setWarmUpTimeoutMillis(final Long warmUpTimeout) {
+        this.warmUpTimeout = warmUpTimeout;
+        if (pool != null) {
+            pool.setWarmUpTimeoutMillis(warmUpTimeout);
+        }
+    }
+
+    @Property(name = Constants.JDBC_FETCH_SIZE, value = "0")
+    public void setFetchSize(final Integer fetchSize) {
+        this.fetchSize = fetchSize;
+        if (factory != null) {
+            factory.setFetchSize(fetchSize);
+        }
+    }
+
+    @Property(name = Constants.JDBC_FETCH_STREAMING, value = "false")
+    public void setStreaming(final Boolean streaming) {
+        this.streaming = streaming;
+        if (factory != null) {
+            factory.setStreaming(streaming);
+        }
+    }
+
     @Property(name = Constants.POOL_MIN, value = "0")
     public void setPoolMin(final Integer poolMin) {
         this.poolMin = poolMin;
@@ -226,6 +432,172 @@ public class DataSource implements javax.sql.DataSource {
         }
     }
 
+    @Property(name = Constants.POOL_ACTIVATION, value = "background")
+    public void setActivation(final String activation) {
+        this.activation = activation;
+    }
+
+    @Property(name = Constants.POOL_DRAIN_TIMEOUT, value = "30000")
+    public void setDrainTimeoutMillis(final Long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Property(name = Constants.JDBC_RESULTCACHE_SIZE, value = "0")
+    public void setResultCacheSize(final Integer resultCacheSize) {
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    @Property(name = Constants.JDBC_RESULTCACHE_TTL, value = "60000")
+    public void setResultCacheTimeToLiveMillis(final Long resultCacheTimeToLive) {
+        this.resultCacheTimeToLive = resultCacheTimeToLive;
+    }
+
+    @Property(name = Constants.JDBC_RESULTCACHE_PATTERNS)
+    public void setResultCachePatterns(final String resultCachePatterns) {
+        this.resultCachePatterns = resultCachePatterns;
+    }
+
+    @Property(name = Constants.JDBC_RESULTCACHE_TABLES)
+    public void setResultCacheTables(final String resultCacheTables) {
+        this.resultCacheTables = resultCacheTables;
+    }
+
+    @Property(name = Constants.JDBC_STATISTICS_STATEMENTS_SIZE, value = "1000")
+    public void setStatementStatisticsSize(final Integer statementStatisticsSize) {
+        this.statementStatisticsSize = statementStatisticsSize;
+    }
+
+    @Property(name = Constants.JDBC_STATISTICS_ENABLED, value = "true")
+    public void setStatisticsEnabled(final Boolean statisticsEnabled) {
+        this.statisticsEnabled = statisticsEnabled;
+    }
+
+    @Property(name = Constants.JDBC_METRICS_INTERVAL, value = "10")
+    public synchronized void setMetricsInterval(final Integer metricsInterval) {
+        this.metricsInterval = metricsInterval;
+        if (publisher != null) {
+            schedulePublication();
+        }
+    }
+
+    @Property(name = Constants.JDBC_EVENTS)
+    public void setEvents(final String events) {
+        this.events = events;
+        if (eventRecorder != null) {
+            eventRecorder.setEnabledEvents(EventRecorder.parse(events));
+        }
+    }
+
+    @Property(name = Constants.JDBC_EVENTS_THRESHOLD, value = "0")
+    public void setEventsThresholdMillis(final Long eventsThreshold) {
+        this.eventsThreshold = eventsThreshold;
+        if (eventRecorder != null) {
+            eventRecorder.setThreshold(eventsThreshold, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Property(name = Constants.JDBC_EVENTS_SIZE, value = "1000")
+    public void setEventsSize(final Integer eventsSize) {
+        this.eventsSize = eventsSize;
+    }
+
+    @Property(name = Constants.JDBC_SLOW_THRESHOLD, value = "0")
+    public void setSlowThresholdMillis(final Long slowThreshold) {
+        this.slowThreshold = slowThreshold;
+        if (factory != null) {
+            factory.getSlowQueryLog().setThreshold(slowThreshold, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Property(name = Constants.JDBC_SLOW_SAMPLING, value = "1")
+    public void setSlowSampling(final Integer slowSampling) {
+        this.slowSampling = slowSampling;
+        if (factory != null) {
+            factory.getSlowQueryLog().setSampling(slowSampling);
+        }
+    }
+
+    @Property(name = Constants.JDBC_SLOW_PARAMETERS, value = "types")
+    public void setSlowParameters(final String slowParameters) {
+        this.slowParameters = slowParameters;
+        if (factory != null) {
+            factory.getSlowQueryLog().setParameters(SlowQueryLog.parse(slowParameters));
+        }
+    }
+
+    @Property(name = Constants.JDBC_ALERT_WAITERS, value = "0")
+    public void setAlertWaiters(final Long alertWaiters) {
+        this.alertWaiters = alertWaiters;
+        configureMonitor();
+    }
+
+    @Property(name = Constants.JDBC_ALERT_BUSY, value = "0")
+    public void setAlertBusyPercent(final Long alertBusy) {
+        this.alertBusy = alertBusy;
+        configureMonitor();
+    }
+
+    @Property(name = Constants.JDBC_ALERT_WAIT, value = "0")
+    public void setAlertWaitMillis(final Long alertWait) {
+        this.alertWait = alertWait;
+        configureMonitor();
+    }
+
+    @Property(name = Constants.JDBC_ALERT_REJECTIONS, value = "true")
+    public void setAlertRejections(final Boolean alertRejections) {
+        this.alertRejections = alertRejections;
+        configureMonitor();
+    }
+
+    @Property(name = Constants.JDBC_ALERT_PERIOD, value = "60")
+    public void setAlertPeriodSeconds(final Long alertPeriod) {
+        this.alertPeriod = alertPeriod;
+        configureMonitor();
+    }
+
+    @Bind(aggregate = true, optional = true)
+    public void bindMetricsSink(final MetricsSink sink) {
+        sinks.add(sink);
+    }
+
+    @Unbind
+    public void unbindMetricsSink(final MetricsSink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Listeners registered as services are notified by all the DataSources, unless they have
+     * a {@value Constants#DATASOURCE_NAME} service property.
+     */
+    @Bind(aggregate = true, optional = true)
+    public void bindPoolLifecycleListener(final PoolLifecycleListener listener, final Map<String, Object> properties) {
+        if (isListening(properties)) {
+            poolListeners.addListener(listener);
+        }
+    }
+
+    @Unbind
+    public void unbindPoolLifecycleListener(final PoolLifecycleListener listener) {
+        poolListeners.removeListener(listener);
+    }
+
+    @Bind(aggregate = true, optional = true)
+    public void bindConnectionManagerListener(final ConnectionManagerListener listener, final Map<String, Object> properties) {
+        if (isListening(properties)) {
+            managerListeners.addListener(listener);
+        }
+    }
+
+    @Unbind
+    public void unbindConnectionManagerListener(final ConnectionManagerListener listener) {
+        managerListeners.removeListener(listener);
+    }
+
+    private boolean isListening(final Map<String, Object> properties) {
+        Object name = properties.get(DATASOURCE_NAME);
+        return name == null || name.equals(datasourceName);
+    }
+
     @Property(name = Constants.LOGIN_TIMEOUT)
     public void setLoginTimeout(final Integer loginTimeout) {
         this.loginTimeout = loginTimeout;
@@ -274,26 +646,114 @@ public class DataSource implements javax.sql.DataSource {
         return waiterTimeout;
     }
 
-    @Validate
-    public void start() throws SQLException {
+    public Long getDrainTimeout() {
+        return drainTimeout;
+    }
 
-        parentLogger = Logger.getLogger(getDataSourceLoggerName());
+    /**
+     * @return true while the DataSource is stopping and waits for the borrowed connections
+     */
+    public boolean isDraining() {
+        return pool.isDraining();
+    }
 
-        Properties props = new Properties();
-        props.setProperty(DataSourceFactory.JDBC_URL, url);
-        props.setProperty(DataSourceFactory.JDBC_USER, username);
-        props.setProperty(DataSourceFactory.JDBC_PASSWORD, password);
+    /**
+     * @return number of borrowed connections the drain is still waiting for
+     */
+    public int getDrainingConnections() {
+        return pool.isDraining() ? pool.getCurrentOpened() : 0;
+    }
 
-        // Collect additional properties
-        // Transform them into String if not already done
-        for (String key : Collections.list(properties.keys())) {
-            Object value = properties.get(key);
-            if (value != null) {
-                props.setProperty(key, value.toString());
-            }
+    /**
+     * @return why the initial connections could not be created in the background, null if they were
+     */
+    public String getActivationFailure() {
+        Throwable failure = pool.getActivationFailure();
+        if (failure == null) {
+            return null;
+        }
+        // The pool wraps the driver exception
+        if (failure.getCause() != null) {
+            failure = failure.getCause();
         }
+        return failure.toString();
+    }
+
+    public Integer getResultCacheSize() {
+        return resultCacheSize;
+    }
 
-        delegate = dataSourceFactory.createDataSource(props);
+    /**
+     * Destroys the idle connections, the pool is then filled up to its minimum size.
+     * @return number of destroyed connections
+     */
+    public int flushIdleConnections() {
+        return pool.flush();
+    }
+
+    /**
+     * Destroys the idle connections, and the busy ones when they are returned to the pool.
+     * @return number of evicted connections
+     */
+    public int evictConnections() {
+        return pool.evict();
+    }
+
+    /**
+     * Validates the idle connections, the invalid ones are destroyed.
+     * @return number of destroyed connections
+     */
+    public int validateIdleConnections() {
+        return pool.validateAvailables();
+    }
+
+    /**
+     * Immediately removes the aged and leaked connections and resizes the pool.
+     */
+    public void adjustPool() {
+        pool.adjust();
+    }
+
+    /**
+     * @return the physical connections of the pool
+     */
+    public List<IManagedConnection> getConnections() {
+        return pool.getConnections();
+    }
+
+    public int getOpenedConnections() {
+        return pool.getCurrentOpened();
+    }
+
+    public int getIdleConnections() {
+        return pool.getCurrentFree();
+    }
+
+    public int getWaiters() {
+        return pool.getCurrentWaiters();
+    }
+
+    /**
+     * @return the pool statistics, null if disabled
+     */
+    public DataSourceStatisticsListener getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the per statement statistics, null if disabled
+     */
+    public StatementStatistics getStatementStatistics() {
+        return statementStatistics;
+    }
+
+    @Validate
+    public void start() throws SQLException {
+
+        parentLogger = Logger.getLogger(getDataSourceLoggerName());
+
+        delegate = dataSourceFactory.createDataSource(getDriverProperties());
+        identity = getIdentity();
 
         manager = new ConnectionManager(getConnectionManagerLogger(), transactionManager);
         builder = new DataSourceNativeConnectionBuilder(getConnectionBuilderLogger(), delegate);
@@ -317,6 +777,17 @@ public class DataSource implements javax.sql.DataSource {
         if (transactionIsolation != null) {
             factory.setTransactionIsolation(transactionIsolation);
         }
+        if (preparedStatementInstances != null) {
+            factory.setPreparedStatementInstances(preparedStatementInstances);
+        }
+        if (fetchSize != null) {
+            factory.setFetchSize(fetchSize);
+        }
+        if (streaming != null) {
+            factory.setStreaming(streaming);
+        }
+        QueryResultCache resultCache = createResultCache();
+        factory.setResultCache(resultCache);
 
         if (loginTimeout != null) {
             builder.setLoginTimeout(loginTimeout);
@@ -328,6 +799,33 @@ public class DataSource implements javax.sql.DataSource {
         if (preparedStatementCacheSize != null) {
             pool.setPreparedStatementCacheSize(preparedStatementCacheSize);
         }
+        pool.setHotStatements(factory.getHotStatements());
+
+        eventRecorder = new EventRecorder((eventsSize == null) ? EventRecorder.DEFAULT_SIZE : eventsSize);
+        eventRecorder.setEnabledEvents(EventRecorder.parse(events));
+        if (eventsThreshold != null) {
+            eventRecorder.setThreshold(eventsThreshold, TimeUnit.MILLISECONDS);
+        }
+        factory.setEventRecorder(eventRecorder);
+        pool.setEventRecorder(eventRecorder);
+        manager.setEventRecorder(eventRecorder);
+
+        SlowQueryLog slowQueryLog = factory.getSlowQueryLog();
+        if (slowThreshold != null) {
+            slowQueryLog.setThreshold(slowThreshold, TimeUnit.MILLISECONDS);
+        }
+        if (slowSampling != null) {
+            slowQueryLog.setSampling(slowSampling);
+        }
+        if (slowParameters != null) {
+            slowQueryLog.setParameters(SlowQueryLog.parse(slowParameters));
+        }
+        if (warmUpSize != null) {
+            pool.setWarmUpSize(warmUpSize);
+        }
+        if (warmUpTimeout != null) {
+            pool.setWarmUpTimeoutMillis(warmUpTimeout);
+        }
         if (poolMax != null) {
             pool.setPoolMax(poolMax);
         }
@@ -342,11 +840,33 @@ public class DataSource implements javax.sql.DataSource {
         }
 
         // Plug statistic providers
-        DataSourceStatisticsListener listener = new DataSourceStatisticsListener();
-        pool.setPoolLifecycleListener(listener);
-        manager.setConnectionManagerListener(listener);
+        pool.setPoolLifecycleListener(poolListeners);
+        manager.setConnectionManagerListener(managerListeners);
+        if (statisticsEnabled) {
+            statistics = new DataSourceStatisticsListener();
+            poolListeners.addListener(statistics);
+            managerListeners.addListener(statistics);
+            factory.setStatementCacheListener(statistics);
+            factory.setResourceListener(statistics);
+            startSampler(statistics);
+            publisher = new MetricsPublisher(getMetricsLogger(), datasourceName, statistics, pool, sinks);
+            schedulePublication();
+            if (statementStatisticsSize != null && statementStatisticsSize > 0) {
+                statementStatistics = new StatementStatistics(statementStatisticsSize);
+                factory.setStatementListener(statementStatistics);
+            }
+        }
 
-        pool.start();
+        switch ((activation == null) ? Activation.DEFAULT : Activation.parse(activation)) {
+            case BACKGROUND:
+                pool.startInBackground();
+                break;
+            case LAZY:
+                lazy = true;
+                break;
+            default:
+                pool.start();
+        }
 
         // Only perform JNDI binding if requested (by default)
         if (bind) {
@@ -361,10 +881,28 @@ public class DataSource implements javax.sql.DataSource {
 
         // Register MBeans
         try {
-            statisticsMBean = new ConnectionPoolStatisticsManagementBean(datasourceName, listener);
-            statisticsMBean.start();
+            if (statistics != null) {
+                statisticsMBean = new ConnectionPoolStatisticsManagementBean(datasourceName, statistics);
+                statisticsMBean.start();
+                startMonitor(statistics, statisticsMBean);
+                for (int window : WINDOWS) {
+                    ConnectionStatisticsWindowManagementBean windowMBean = new ConnectionStatisticsWindowManagementBean(datasourceName, statistics, window);
+                    windowMBean.start();
+                    windowMBeans.add(windowMBean);
+                }
+            }
             dataSourceMBean = new DataSourceManagementBean(this);
             dataSourceMBean.start();
+            if (resultCache != null) {
+                resultCacheMBean = new QueryResultCacheManagementBean(datasourceName, resultCache);
+                resultCacheMBean.start();
+            }
+            if (statementStatistics != null) {
+                statementStatisticsMBean = new StatementStatisticsManagementBean(datasourceName, statementStatistics);
+                statementStatisticsMBean.start();
+            }
+            eventRecorderMBean = new EventRecorderManagementBean(datasourceName, eventRecorder);
+            eventRecorderMBean.start();
         } catch (MalformedObjectNameException e) {
             // Ignored
         }
@@ -372,6 +910,102 @@ public class DataSource implements javax.sql.DataSource {
 
     }
 
+    /**
+     * Periodically ends the statistics period, so that the windows move.
+     */
+    private void startSampler(final Sampler statistics) {
+        sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "JDBC statistics sampler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        sampler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                statistics.sample();
+            }
+        }, Sampler.PERIOD, Sampler.PERIOD, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Checks the saturation thresholds every second on the sampler thread, alarms are sent
+     * as notifications of the statistics MBean.
+     */
+    private synchronized void startMonitor(final DataSourceStatisticsListener statistics,
+                                           final SaturationMonitor.AlarmListener listener) {
+        monitor = new SaturationMonitor(statistics);
+        configureMonitor();
+        final SaturationMonitor checked = monitor;
+        sampler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checked.check(pool.getPoolMax(), System.currentTimeMillis(), listener);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private synchronized void configureMonitor() {
+        if (monitor == null) {
+            return;
+        }
+        if (alertWaiters != null) {
+            monitor.setWaitersThreshold(alertWaiters);
+        }
+        if (alertBusy != null) {
+            monitor.setBusyThreshold(alertBusy);
+        }
+        if (alertWait != null) {
+            monitor.setWaitTimeThreshold(alertWait, TimeUnit.MILLISECONDS);
+        }
+        if (alertRejections != null) {
+            monitor.setRejectionsEnabled(alertRejections);
+        }
+        if (alertPeriod != null) {
+            monitor.setPeriod(alertPeriod, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * (Re)schedules the metrics publication with the current interval, on the sampler thread.
+     */
+    private synchronized void schedulePublication() {
+        if (publication != null) {
+            publication.cancel(false);
+            publication = null;
+        }
+        if (metricsInterval != null && metricsInterval > 0) {
+            publication = sampler.scheduleWithFixedDelay(publisher, metricsInterval, metricsInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return a new query result cache configured from the properties, or null if result caching is disabled
+     */
+    private QueryResultCache createResultCache() {
+        if (resultCacheSize == null || resultCacheSize <= 0 || resultCachePatterns == null) {
+            return null;
+        }
+        List<Pattern> patterns = new ArrayList<>();
+        for (String pattern : resultCachePatterns.split(";")) {
+            if (!pattern.trim().isEmpty()) {
+                patterns.add(Pattern.compile(pattern.trim(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL));
+            }
+        }
+        List<String> tables = new ArrayList<>();
+        if (resultCacheTables != null) {
+            for (String table : resultCacheTables.split(",")) {
+                if (!table.trim().isEmpty()) {
+                    tables.add(table.trim());
+                }
+            }
+        }
+        long timeToLive = (resultCacheTimeToLive == null) ? 0 : resultCacheTimeToLive;
+        return new QueryResultCache(resultCacheSize, timeToLive, patterns, tables);
+    }
+
     private Log getConnectionManagerLogger() {
         return new FormattedLogger(Logger.getLogger(parentLogger.getName() + ".ConnectionManager"));
     }
@@ -384,6 +1018,10 @@ public class DataSource implements javax.sql.DataSource {
         return new FormattedLogger(Logger.getLogger(parentLogger.getName() + ".ItemFactory"));
     }
 
+    private Log getMetricsLogger() {
+        return new FormattedLogger(Logger.getLogger(parentLogger.getName() + ".Metrics"));
+    }
+
     private Log getPoolLogger() {
         return new FormattedLogger(Logger.getLogger(parentLogger.getName() + ".Pool"));
     }
@@ -396,13 +1034,48 @@ public class DataSource implements javax.sql.DataSource {
     @Invalidate
     public void stop() {
 
+        // Stop giving connections and let the in-flight work complete
+        if (drainTimeout != null && drainTimeout > 0) {
+            int remaining = pool.drain(drainTimeout);
+            if (remaining > 0) {
+                getPoolLogger().warn("%s: %d connection(s) still in use after %d ms, they are closed",
+                                     datasourceName, remaining, drainTimeout);
+            }
+        }
+
         // Deactivate MBeans
         if (statisticsMBean != null) {
             statisticsMBean.stop();
+            statisticsMBean = null;
+        }
+        for (ConnectionStatisticsWindowManagementBean windowMBean : windowMBeans) {
+            windowMBean.stop();
+        }
+        windowMBeans.clear();
+        synchronized (this) {
+            publisher = null;
+            publication = null;
+            monitor = null;
+            if (sampler != null) {
+                sampler.shutdownNow();
+                sampler = null;
+            }
         }
         if (dataSourceMBean != null) {
             dataSourceMBean.stop();
         }
+        if (resultCacheMBean != null) {
+            resultCacheMBean.stop();
+            resultCacheMBean = null;
+        }
+        if (statementStatisticsMBean != null) {
+            statementStatisticsMBean.stop();
+            statementStatisticsMBean = null;
+        }
+        if (eventRecorderMBean != null) {
+            eventRecorderMBean.stop();
+            eventRecorderMBean = null;
+        }
 
         // Unbind from JNDI
         if (bind) {
@@ -414,28 +1087,68 @@ public class DataSource implements javax.sql.DataSource {
                 // Ignored
             }
         }
+        lazy = false;
         pool.stop();
+        factory.getSlowQueryLog().stop();
+        if (statistics != null) {
+            poolListeners.removeListener(statistics);
+            managerListeners.removeListener(statistics);
+            statistics = null;
+        }
+        statementStatistics = null;
         delegate = null;
+        identity = null;
     }
 
     @Override
     public Connection getConnection() throws SQLException {
+        if (lazy) {
+            activate();
+        }
         return manager.getConnection();
     }
 
     @Override
     public Connection getConnection(final String username, final String password) throws SQLException {
+        if (lazy) {
+            activate();
+        }
         return manager.getConnection(username, password);
     }
 
+    /**
+     * First use of a lazily activated DataSource: the pool is filled in the background.
+     */
+    private synchronized void activate() {
+        if (lazy) {
+            lazy = false;
+            pool.startInBackground();
+        }
+    }
+
     @Override
     public <T> T unwrap(final Class<T> iface) throws SQLException {
-        throw new SQLException(format("DataSource does not supports the Wrapper interface"));
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        // Connections obtained from the driver's DataSource are not pooled
+        javax.sql.DataSource source = delegate;
+        if (source == null) {
+            throw new SQLException(format("DataSource %s is not started", datasourceName));
+        }
+        if (iface.isInstance(source)) {
+            return iface.cast(source);
+        }
+        return source.unwrap(iface);
     }
 
     @Override
     public boolean isWrapperFor(final Class<?> iface) throws SQLException {
-        return false;
+        if (iface.isInstance(this)) {
+            return true;
+        }
+        javax.sql.DataSource source = delegate;
+        return source != null && (iface.isInstance(source) || source.isWrapperFor(iface));
     }
 
     public String getDataSourceName() {
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.command;
+
+import java.util.concurrent.TimeUnit;
+import javax.transaction.Transaction;
+
+import org.apache.felix.gogo.commands.Action;
+import org.apache.felix.gogo.commands.Argument;
+import org.apache.felix.gogo.commands.Command;
+import org.apache.felix.ipojo.annotations.Bind;
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.HandlerDeclaration;
+import org.apache.felix.ipojo.annotations.Unbind;
+import org.apache.felix.service.command.CommandSession;
+import org.fusesource.jansi.Ansi;
+import org.osgi.framework.ServiceReference;
+
+import com.peergreen.jdbc.internal.cm.IManagedConnection;
+import com.peergreen.jdbc.internal.datasource.DataSource;
+
+import static com.peergreen.jdbc.internal.datasource.command.DataSourceRegistry.toMillis;
+
+/**
+ * State and hold time of the physical connections, per DataSource.
+ * Connections are read from a snapshot, without taking the pool lock.
+ */
+@Component
+@Command(name = "connections",
+        scope = "jdbc",
+        description = "Display the physical connections of the DataSources.")
+@HandlerDeclaration("<sh:command xmlns:sh='org.ow2.shelbie'/>")
+public class ConnectionsAction implements Action {
+
+    @Argument(name = "datasource",
+              description = "Name of the DataSource (all the DataSources by default)")
+    private String name;
+
+    private final DataSourceRegistry datasources = new DataSourceRegistry();
+
+    @Override
+    public Object execute(final CommandSession session) throws Exception {
+        Ansi buffer = Ansi.ansi();
+        long now = System.currentTimeMillis();
+        for (DataSource datasource : datasources.select(name)) {
+            buffer.render("%s:", datasource.getDataSourceName());
+            buffer.newline();
+            buffer.render("  %6s %-14s %5s %12s %10s  %s", "Id", "State", "Open", "Held (ms)", "Age (s)", "Transaction");
+            for (IManagedConnection mc : datasource.getConnections()) {
+                Transaction transaction = mc.getTransaction();
+                boolean held = mc.isOpen();
+                String state;
+                if (transaction != null) {
+                    state = "in transaction";
+                } else if (held) {
+                    state = "held";
+                } else {
+                    state = "idle";
+                }
+                buffer.newline();
+                buffer.render("  %6d %-14s %5d %12s %10d  %s",
+                              mc.getIdentifier(),
+                              state,
+                              mc.getOpenCount(),
+                              held ? String.format("%.1f", toMillis(mc.getHeldTime())) : "-",
+                              TimeUnit.MILLISECONDS.toSeconds(now - mc.getCreationTime()),
+                              (transaction == null) ? "-" : transaction);
+            }
+            buffer.newline();
+        }
+        return buffer.toString();
+    }
+
+    @Bind(aggregate = true, optional = true)
+    public void bindDataSource(javax.sql.DataSource datasource, ServiceReference<?> reference) {
+        datasources.bind(datasource, reference);
+    }
+
+    @Unbind
+    public void unbindDataSource(javax.sql.DataSource datasource) {
+        datasources.unbind(datasource);
+    }
+}
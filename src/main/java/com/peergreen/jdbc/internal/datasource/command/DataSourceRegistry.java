@@ -0,0 +1,63 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.command;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.framework.ServiceReference;
+
+import com.peergreen.jdbc.internal.datasource.Constants;
+import com.peergreen.jdbc.internal.datasource.DataSource;
+
+/**
+ * DataSources of this bundle bound by a command, sorted by name.
+ */
+final class DataSourceRegistry {
+
+    private final Map<String, DataSource> datasources = new ConcurrentSkipListMap<>();
+
+    public void bind(final javax.sql.DataSource datasource, final ServiceReference<?> reference) {
+        Object name = reference.getProperty(Constants.DATASOURCE_NAME);
+        // DataSources provided by other bundles do not expose their pool
+        if (name != null && datasource instanceof DataSource) {
+            datasources.put(name.toString(), (DataSource) datasource);
+        }
+    }
+
+    public void unbind(final javax.sql.DataSource datasource) {
+        datasources.values().remove(datasource);
+    }
+
+    /**
+     * @param name DataSource name, null for all the DataSources
+     * @return the selected DataSources
+     */
+    public Collection<DataSource> select(final String name) {
+        if (name == null) {
+            return datasources.values();
+        }
+        DataSource datasource = datasources.get(name);
+        if (datasource == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(datasource);
+    }
+
+    public static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
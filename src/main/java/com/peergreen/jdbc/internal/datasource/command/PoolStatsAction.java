@@ -0,0 +1,120 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.command;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.gogo.commands.Action;
+import org.apache.felix.gogo.commands.Argument;
+import org.apache.felix.gogo.commands.Command;
+import org.apache.felix.gogo.commands.Option;
+import org.apache.felix.ipojo.annotations.Bind;
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.HandlerDeclaration;
+import org.apache.felix.ipojo.annotations.Unbind;
+import org.apache.felix.service.command.CommandSession;
+import org.fusesource.jansi.Ansi;
+import org.osgi.framework.ServiceReference;
+
+import com.peergreen.jdbc.internal.cm.stat.DataSourceStatisticsListener;
+import com.peergreen.jdbc.internal.cm.stat.Histogram;
+import com.peergreen.jdbc.internal.datasource.DataSource;
+
+import static com.peergreen.jdbc.internal.datasource.command.DataSourceRegistry.toMillis;
+
+/**
+ * Busy, idle and waiting connections of the DataSources, with the wait time percentiles.
+ * Values are read without taking the pool lock.
+ */
+@Component
+@Command(name = "pool-stats",
+        scope = "jdbc",
+        description = "Display the connection pool state of the DataSources.")
+@HandlerDeclaration("<sh:command xmlns:sh='org.ow2.shelbie'/>")
+public class PoolStatsAction implements Action {
+
+    private static final String HEADER = "%-20s %6s %6s %8s %10s %10s %10s";
+    private static final String ROW = "%-20s %6d %6d %8d %10.1f %10.1f %10.1f";
+
+    @Argument(name = "datasource",
+              description = "Name of the DataSource (all the DataSources by default)")
+    private String name;
+
+    @Option(name = "-w",
+            aliases = "--watch",
+            description = "Refresh every given number of seconds, until interrupted")
+    private int watch = 0;
+
+    private final DataSourceRegistry datasources = new DataSourceRegistry();
+
+    @Override
+    public Object execute(final CommandSession session) throws Exception {
+        if (watch <= 0) {
+            return render(Ansi.ansi()).toString();
+        }
+
+        PrintStream console = session.getConsole();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                console.print(render(Ansi.ansi().eraseScreen().cursor(1, 1)));
+                console.flush();
+                TimeUnit.SECONDS.sleep(watch);
+            }
+        } catch (InterruptedException e) {
+            // End of the watch
+        }
+        return null;
+    }
+
+    private Ansi render(final Ansi buffer) {
+        buffer.render(HEADER, "DataSource", "Busy", "Idle", "Waiters", "Wait p50", "Wait p99", "Wait p99.9");
+        for (DataSource datasource : datasources.select(name)) {
+            int opened = datasource.getOpenedConnections();
+            int idle = datasource.getIdleConnections();
+            buffer.newline();
+            DataSourceStatisticsListener statistics = datasource.getStatistics();
+            if (statistics == null) {
+                buffer.render("%-20s %6d %6d %8d %10s %10s %10s",
+                              datasource.getDataSourceName(),
+                              Math.max(opened - idle, 0),
+                              idle,
+                              datasource.getWaiters(),
+                              "-", "-", "-");
+            } else {
+                Histogram waits = statistics.getWaitedTimeHistogram();
+                buffer.render(ROW,
+                              datasource.getDataSourceName(),
+                              Math.max(opened - idle, 0),
+                              idle,
+                              datasource.getWaiters(),
+                              toMillis(waits.getPercentile(50)),
+                              toMillis(waits.getPercentile(99)),
+                              toMillis(waits.getPercentile(99.9)));
+            }
+        }
+        buffer.newline();
+        buffer.render("Wait times in milliseconds");
+        return buffer;
+    }
+
+    @Bind(aggregate = true, optional = true)
+    public void bindDataSource(javax.sql.DataSource datasource, ServiceReference<?> reference) {
+        datasources.bind(datasource, reference);
+    }
+
+    @Unbind
+    public void unbindDataSource(javax.sql.DataSource datasource) {
+        datasources.unbind(datasource);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.command;
+
+import org.apache.felix.gogo.commands.Action;
+import org.apache.felix.gogo.commands.Argument;
+import org.apache.felix.gogo.commands.Command;
+import org.apache.felix.gogo.commands.Option;
+import org.apache.felix.ipojo.annotations.Bind;
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.HandlerDeclaration;
+import org.apache.felix.ipojo.annotations.Unbind;
+import org.apache.felix.service.command.CommandSession;
+import org.fusesource.jansi.Ansi;
+import org.osgi.framework.ServiceReference;
+
+import com.peergreen.jdbc.internal.cm.stat.SqlExecutionStatistics;
+import com.peergreen.jdbc.internal.cm.stat.StatementStatistics;
+import com.peergreen.jdbc.internal.datasource.DataSource;
+
+/**
+ * Statements with the highest total execution time, per DataSource.
+ */
+@Component
+@Command(name = "top-sql",
+        scope = "jdbc",
+        description = "Display the heaviest statements of the DataSources (by total execution time).")
+@HandlerDeclaration("<sh:command xmlns:sh='org.ow2.shelbie'/>")
+public class TopSqlAction implements Action {
+
+    private static final int MAXIMUM_SQL_LENGTH = 80;
+
+    @Argument(name = "datasource",
+              description = "Name of the DataSource (all the DataSources by default)")
+    private String name;
+
+    @Option(name = "-n",
+            aliases = "--count",
+            description = "Number of displayed statements (defaults to 10)")
+    private int count = 10;
+
+    private final DataSourceRegistry datasources = new DataSourceRegistry();
+
+    @Override
+    public Object execute(final CommandSession session) throws Exception {
+        Ansi buffer = Ansi.ansi();
+        for (DataSource datasource : datasources.select(name)) {
+            buffer.render("%s:", datasource.getDataSourceName());
+            StatementStatistics statistics = datasource.getStatementStatistics();
+            if (statistics == null) {
+                buffer.newline();
+                buffer.render("  Statement statistics are disabled");
+                buffer.newline();
+                continue;
+            }
+            buffer.newline();
+            buffer.render("  %12s %10s %10s %10s %7s  %s", "Total (ms)", "Executions", "Avg (ms)", "Max (ms)", "Errors", "SQL");
+            for (SqlExecutionStatistics sql : statistics.getTopByTotalTime(count)) {
+                buffer.newline();
+                buffer.render("  %12.1f %10d %10.2f %10.1f %7d  %s",
+                              sql.getTotalTime(),
+                              sql.getExecutions(),
+                              sql.getAverageTime(),
+                              sql.getMaximumTime(),
+                              sql.getErrors(),
+                              abbreviate(sql.getSql()));
+            }
+            buffer.newline();
+        }
+        return buffer.toString();
+    }
+
+    private static String abbreviate(final String sql) {
+        if (sql.length() <= MAXIMUM_SQL_LENGTH) {
+            return sql;
+        }
+        return sql.substring(0, MAXIMUM_SQL_LENGTH - 3) + "...";
+    }
+
+    @Bind(aggregate = true, optional = true)
+    public void bindDataSource(javax.sql.DataSource datasource, ServiceReference<?> reference) {
+        datasources.bind(datasource, reference);
+    }
+
+    @Unbind
+    public void unbindDataSource(javax.sql.DataSource datasource) {
+        datasources.unbind(datasource);
+    }
+}
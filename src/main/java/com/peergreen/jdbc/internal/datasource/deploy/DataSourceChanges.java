@@ -0,0 +1,126 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.deploy;
+
+import com.peergreen.jdbc.internal.datasource.Constants;
+import com.peergreen.jdbc.internal.datasource.DataSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Differences between two configurations of the same DataSource.
+ * Most of the tunables are applied live by the DataSource instance, the others require a restart.
+ */
+public class DataSourceChanges {
+
+    /**
+     * Properties only read when the DataSource starts.
+     */
+    private static final List<String> RESTART_PROPERTIES = Arrays.asList(
+            Constants.DATASOURCE_NAME,
+            "driverClass",
+            Constants.JNDI_BIND,
+            Constants.JDBC_RESULTCACHE_SIZE,
+            Constants.JDBC_RESULTCACHE_TTL,
+            Constants.JDBC_RESULTCACHE_PATTERNS,
+            Constants.JDBC_RESULTCACHE_TABLES,
+            Constants.JDBC_STATISTICS_STATEMENTS_SIZE,
+            Constants.JDBC_STATISTICS_ENABLED,
+            Constants.JDBC_EVENTS_SIZE
+    );
+
+    private final Map<String, String> changed;
+    private final Set<String> removed;
+
+    private DataSourceChanges(final Map<String, String> changed, final Set<String> removed) {
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableSet(removed);
+    }
+
+    /**
+     * @param previous deployed configuration
+     * @param current new configuration
+     * @return the changes to apply to move from previous to current
+     */
+    public static DataSourceChanges between(final Dictionary<String, String> previous,
+                                            final Dictionary<String, String> current) {
+        Map<String, String> changed = new HashMap<>();
+        for (String key : Collections.list(current.keys())) {
+            String value = current.get(key);
+            if (!value.equals(previous.get(key))) {
+                changed.put(key, value);
+            }
+        }
+        Set<String> removed = new HashSet<>();
+        for (String key : Collections.list(previous.keys())) {
+            if (current.get(key) == null) {
+                removed.add(key);
+            }
+        }
+        return new DataSourceChanges(changed, removed);
+    }
+
+    /**
+     * @return new or modified properties with their new value
+     */
+    public Map<String, String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return properties no longer configured
+     */
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * A removed property cannot be applied live: the instance would keep the previous value
+     * instead of going back to the default one.
+     * @return {@code true} if the DataSource has to be stopped and started again
+     */
+    public boolean requiresRestart() {
+        if (!removed.isEmpty()) {
+            return true;
+        }
+        for (String key : changed.keySet()) {
+            if (RESTART_PROPERTIES.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the connections have to be replaced (url, credentials or driver properties changed)
+     */
+    public boolean isIdentityChanged() {
+        for (String key : changed.keySet()) {
+            if (DataSource.isDriverProperty(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -26,6 +26,7 @@ public class DataSourceInfo {
     private final String name;
     private final Dictionary<String, String> properties = new Hashtable<>();
     private ComponentInstance instance;
+    private DataSourceChanges changes;
 
     public DataSourceInfo(final String name) {
         this.name = name;
@@ -47,4 +48,15 @@ public class DataSourceInfo {
     public void setInstance(final ComponentInstance instance) {
         this.instance = instance;
     }
+
+    /**
+     * @return differences with the previously deployed configuration (only set during an update)
+     */
+    public DataSourceChanges getChanges() {
+        return changes;
+    }
+
+    public void setChanges(final DataSourceChanges changes) {
+        this.changes = changes;
+    }
 }
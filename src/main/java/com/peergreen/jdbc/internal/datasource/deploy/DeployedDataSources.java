@@ -0,0 +1,45 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.deploy;
+
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.Instantiate;
+import org.apache.felix.ipojo.annotations.Provides;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link DataSourceInfo} of the deployed artifacts, so that an update can be compared
+ * with the running configuration.
+ */
+@Component
+@Instantiate
+@Provides(specifications = DeployedDataSources.class)
+public class DeployedDataSources {
+
+    private final Map<URI, DataSourceInfo> deployed = new ConcurrentHashMap<>();
+
+    public void put(final URI artifact, final DataSourceInfo info) {
+        deployed.put(artifact, info);
+    }
+
+    public DataSourceInfo get(final URI artifact) {
+        return deployed.get(artifact);
+    }
+
+    public DataSourceInfo remove(final URI artifact) {
+        return deployed.remove(artifact);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.deploy.processor;
+
+import static java.lang.String.format;
+
+import org.apache.felix.ipojo.annotations.Requires;
+
+import com.peergreen.deployment.ProcessorContext;
+import com.peergreen.deployment.ProcessorException;
+import com.peergreen.deployment.processor.Phase;
+import com.peergreen.deployment.processor.Processor;
+import com.peergreen.jdbc.internal.datasource.deploy.DataSourceChanges;
+import com.peergreen.jdbc.internal.datasource.deploy.DataSourceInfo;
+import com.peergreen.jdbc.internal.datasource.deploy.DeployedDataSources;
+
+/**
+ * Compare the updated configuration with the deployed one and attach the running instance to the new facet.
+ */
+@Processor
+@Phase("ds-compute-diff")
+public class DataSourceComputeDiffProcessor {
+
+    private final DeployedDataSources deployed;
+
+    public DataSourceComputeDiffProcessor(@Requires DeployedDataSources deployed) {
+        this.deployed = deployed;
+    }
+
+    public void handle(DataSourceInfo info, ProcessorContext context) throws ProcessorException {
+        DataSourceInfo previous = deployed.get(context.getArtifact().uri());
+        if (previous == null) {
+            throw new ProcessorException(format("DataSource '%s' is not deployed, cannot update it", info.getName()), new Exception());
+        }
+        if (info.getInstance() == null) {
+            info.setInstance(previous.getInstance());
+        }
+        info.setChanges(DataSourceChanges.between(previous.getProperties(), info.getProperties()));
+    }
+}
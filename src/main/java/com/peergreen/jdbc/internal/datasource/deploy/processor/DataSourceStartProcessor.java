@@ -29,6 +29,7 @@ import com.peergreen.deployment.ProcessorException;
 import com.peergreen.deployment.processor.Phase;
 import com.peergreen.deployment.processor.Processor;
 import com.peergreen.jdbc.internal.datasource.deploy.DataSourceInfo;
+import com.peergreen.jdbc.internal.datasource.deploy.DeployedDataSources;
 
 @Processor
 @Phase("ds-start")
@@ -36,12 +37,20 @@ public class DataSourceStartProcessor {
 
     public static final int FIVE = 5;
     private final Factory datasource;
+    private final DeployedDataSources deployed;
 
-    public DataSourceStartProcessor(@Requires(from = "com.peergreen.jdbc.internal.datasource.DataSource") Factory datasource) {
+    public DataSourceStartProcessor(@Requires(from = "com.peergreen.jdbc.internal.datasource.DataSource") Factory datasource,
+                                    @Requires DeployedDataSources deployed) {
         this.datasource = datasource;
+        this.deployed = deployed;
     }
 
     public void handle(DataSourceInfo info, ProcessorContext context) throws ProcessorException {
+        start(info);
+        deployed.put(context.getArtifact().uri(), info);
+    }
+
+    void start(final DataSourceInfo info) throws ProcessorException {
         ComponentInstance instance = null;
         try {
             instance = datasource.createComponentInstance(info.getProperties());
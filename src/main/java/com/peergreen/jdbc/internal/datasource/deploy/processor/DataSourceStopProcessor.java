@@ -12,19 +12,32 @@
 package com.peergreen.jdbc.internal.datasource.deploy.processor;
 
 import org.apache.felix.ipojo.ComponentInstance;
+import org.apache.felix.ipojo.annotations.Requires;
 
 import com.peergreen.deployment.ProcessorContext;
 import com.peergreen.deployment.ProcessorException;
 import com.peergreen.deployment.processor.Phase;
 import com.peergreen.deployment.processor.Processor;
 import com.peergreen.jdbc.internal.datasource.deploy.DataSourceInfo;
+import com.peergreen.jdbc.internal.datasource.deploy.DeployedDataSources;
 
 @Processor
 @Phase("ds-stop")
 public class DataSourceStopProcessor {
 
+    private final DeployedDataSources deployed;
+
+    public DataSourceStopProcessor(@Requires DeployedDataSources deployed) {
+        this.deployed = deployed;
+    }
+
     public void handle(DataSourceInfo info, ProcessorContext context) throws ProcessorException {
+        DataSourceInfo previous = deployed.remove(context.getArtifact().uri());
         ComponentInstance instance = info.getInstance();
+        if (instance == null && previous != null) {
+            // Facet freshly scanned, the running instance is attached to the deployed one
+            instance = previous.getInstance();
+        }
         if (instance != null) {
             instance.dispose();
         }
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.deploy.processor;
+
+import org.apache.felix.ipojo.ComponentInstance;
+import org.apache.felix.ipojo.Factory;
+import org.apache.felix.ipojo.annotations.Requires;
+
+import com.peergreen.deployment.ProcessorContext;
+import com.peergreen.deployment.ProcessorException;
+import com.peergreen.deployment.processor.Phase;
+import com.peergreen.deployment.processor.Processor;
+import com.peergreen.jdbc.internal.datasource.deploy.DataSourceChanges;
+import com.peergreen.jdbc.internal.datasource.deploy.DataSourceInfo;
+import com.peergreen.jdbc.internal.datasource.deploy.DeployedDataSources;
+
+/**
+ * Apply the computed changes to the running DataSource.
+ * Tunables are reconfigured live (connection identity changes renew the pooled connections as they
+ * are released), the DataSource is only restarted when a change cannot be applied live.
+ */
+@Processor
+@Phase("ds-update")
+public class DataSourceUpdateProcessor {
+
+    private final DataSourceStartProcessor starter;
+    private final DeployedDataSources deployed;
+
+    public DataSourceUpdateProcessor(@Requires(from = "com.peergreen.jdbc.internal.datasource.DataSource") Factory datasource,
+                                     @Requires DeployedDataSources deployed) {
+        this.starter = new DataSourceStartProcessor(datasource, deployed);
+        this.deployed = deployed;
+    }
+
+    public void handle(DataSourceInfo info, ProcessorContext context) throws ProcessorException {
+        DataSourceChanges changes = info.getChanges();
+        ComponentInstance instance = info.getInstance();
+        if (changes == null || instance == null || changes.requiresRestart()) {
+            if (instance != null) {
+                instance.dispose();
+                info.setInstance(null);
+            }
+            starter.start(info);
+        } else if (!changes.isEmpty()) {
+            instance.reconfigure(info.getProperties());
+        }
+        deployed.put(context.getArtifact().uri(), info);
+    }
+}
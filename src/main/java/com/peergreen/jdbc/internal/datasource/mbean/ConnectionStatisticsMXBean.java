@@ -11,6 +11,8 @@
 
 package com.peergreen.jdbc.internal.datasource.mbean;
 
+import java.util.Map;
+
 /**
  * User: guillaume
  * Date: 22/10/13
@@ -29,6 +31,28 @@ public interface ConnectionStatisticsMXBean {
     long getWaitedTimeMinimum();
     long getWaitedTimeMaximum();
     double getWaitedTimeAverage();
+    // Percentiles in milliseconds
+    double getWaitedTimePercentile50();
+    double getWaitedTimePercentile90();
+    double getWaitedTimePercentile99();
+    double getWaitedTimePercentile999();
+
+    // Held time (from getConnection() to close())
+    // --------------------------------
+    long getHeldTimeTotal();
+    long getHeldTimeMaximum();
+    double getHeldTimeAverage();
+    double getHeldTimePercentile50();
+    double getHeldTimePercentile99();
+    // Held time not spent executing statements
+    long getIdleHeldTimeTotal();
+    long getIdleHeldTimeMaximum();
+    double getIdleHeldTimeAverage();
+    double getIdleHeldTimePercentile50();
+    double getIdleHeldTimePercentile99();
+    // Held time per transaction
+    double getTransactionHeldTimePercentile99();
+    double getTransactionIdleHeldTimePercentile99();
 
     // Waiters
     // --------------------------------
@@ -49,6 +73,8 @@ public interface ConnectionStatisticsMXBean {
     long getNumberOfReusedConnections();
     long getNumberOfServedConnections();
     long getNumberOfCompletedTransactionalConnections();
+    long getNumberOfWarmBorrowedConnections();
+    long getNumberOfColdBorrowedConnections();
 
     // Connections in transaction
     // --------------------------------
@@ -61,9 +87,33 @@ public interface ConnectionStatisticsMXBean {
     long getNumberOfRejectedConnectionsForTimeout();
     long getNumberOfRejectedConnectionsForOverflow();
     long getNumberOfRejectedConnectionsForFailure();
+    long getNumberOfRejectedConnectionsForDrain();
 
-    // Per Transaction connections
+    // Per Transaction connections (completed transactions)
     // --------------------------------
     double getNumberOfConnectionsReusedPerTransactionAverage();
     long getNumberOfConnectionsReusedPerTransactionMaximum();
+    long getNumberOfConnectionsReusedPerTransactionPercentile99();
+
+    // Statements cache
+    // --------------------------------
+    long getNumberOfPreparedStatementCacheHits();
+    long getNumberOfPreparedStatementCacheMisses();
+    long getNumberOfCallableStatementCacheHits();
+    long getNumberOfCallableStatementCacheMisses();
+    long getNumberOfPreparedStatementCacheBusy();
+    long getNumberOfCallableStatementCacheBusy();
+
+    // Resources not closed by the application
+    // --------------------------------
+    long getNumberOfAutoClosedStatements();
+    long getNumberOfAutoClosedResultSets();
+
+    // Operations
+    // --------------------------------
+    /**
+     * Restarts the counters from 0 (the windows too), gauges keep their current level.
+     * @return counters values before the reset
+     */
+    Map<String, Long> resetStatistics();
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean;
+
+/**
+ * DataSource statistics over the latest completed minutes.
+ */
+public interface ConnectionStatisticsWindowMXBean {
+
+    // Window boundaries
+    // --------------------------------
+    int getWindowMinutes();
+    /**
+     * Time actually covered, shorter than the window just after the start or a reset.
+     */
+    double getPeriodSeconds();
+
+    // Connections
+    // --------------------------------
+    long getNumberOfServedConnections();
+    double getServedConnectionsPerSecond();
+    long getNumberOfCreatedConnections();
+    long getNumberOfDestroyedConnections();
+
+    // Connections rejection
+    // --------------------------------
+    long getNumberOfRejectedConnectionsForTimeout();
+    long getNumberOfRejectedConnectionsForOverflow();
+    long getNumberOfRejectedConnectionsForFailure();
+    long getNumberOfRejectedConnectionsForDrain();
+
+    // Waited time
+    // --------------------------------
+    long getWaitedTimeMaximum();
+    double getWaitedTimeAverage();
+    // Percentiles in milliseconds
+    double getWaitedTimePercentile50();
+    double getWaitedTimePercentile99();
+
+    // Waiters and busy connections
+    // --------------------------------
+    long getNumberOfWaitersMaximum();
+    long getNumberOfBusyConnectionsMaximum();
+
+    // Held time percentiles in milliseconds
+    // --------------------------------
+    double getHeldTimePercentile99();
+    double getIdleHeldTimePercentile99();
+
+    // Statements cache
+    // --------------------------------
+    long getNumberOfPreparedStatementCacheHits();
+    long getNumberOfPreparedStatementCacheMisses();
+}
@@ -11,6 +11,8 @@
 
 package com.peergreen.jdbc.internal.datasource.mbean;
 
+import javax.management.openmbean.TabularData;
+
 /**
  * User: guillaume
  * Date: 22/10/13
@@ -51,4 +53,51 @@ public interface DataSourceMXBean {
 
     int getJdbcPreparedStatementCacheSize();
     void setJdbcPreparedStatementCacheSize(int cacheSize);
+
+    long getPoolDrainTimeout();
+    void setPoolDrainTimeout(long timeout);
+
+    /**
+     * @return true while the DataSource is stopping and waits for the borrowed connections
+     */
+    boolean isDraining();
+
+    /**
+     * @return number of borrowed connections the drain is still waiting for
+     */
+    int getDrainingConnections();
+
+    /**
+     * @return why the initial connections could not be created in the background, null if they were
+     */
+    String getActivationFailure();
+
+    /**
+     * Destroys the idle connections, the pool is then filled up to its minimum size.
+     * @return number of destroyed connections
+     */
+    int flushIdleConnections();
+
+    /**
+     * Destroys the idle connections now and the busy ones when they are returned to the pool.
+     * @return number of evicted connections
+     */
+    int evictConnections();
+
+    /**
+     * Validates the idle connections in parallel, the invalid ones are destroyed.
+     * @return number of destroyed connections
+     */
+    int validateIdleConnections();
+
+    /**
+     * Removes the aged and leaked connections and resizes the pool now, without waiting for the pool keeper.
+     */
+    void adjustPool();
+
+    /**
+     * @return one row per physical connection: identifier, age (ms), open count, transaction,
+     *         cached statements and reused statements
+     */
+    TabularData dumpConnections();
 }
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean;
+
+import java.util.List;
+
+/**
+ * Diagnostic events recorded by a DataSource.
+ */
+public interface EventRecorderMXBean {
+
+    /**
+     * @return comma separated list of the recorded event types
+     */
+    String getEnabledEvents();
+    void setEnabledEvents(String events);
+
+    long getThresholdMillis();
+    void setThresholdMillis(long threshold);
+
+    long getNumberOfRecordedEvents();
+
+    /**
+     * @return kept events, oldest first
+     */
+    List<String> getEvents();
+
+    void clearEvents();
+}
@@ -0,0 +1,23 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean;
+
+/**
+ * Emits a {@value #NOTIFICATION_TYPE} notification for each metrics publication of a DataSource.
+ * The notification message is the DataSource name, its user data maps the metric names to their values.
+ */
+public interface MetricsNotificationMXBean {
+
+    String NOTIFICATION_TYPE = "jdbc.metrics";
+
+    long getNumberOfNotifications();
+}
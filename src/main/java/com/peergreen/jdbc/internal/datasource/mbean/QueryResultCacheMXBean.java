@@ -0,0 +1,36 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean;
+
+/**
+ * Management interface of the query result cache of a DataSource.
+ */
+public interface QueryResultCacheMXBean {
+
+    // Configuration
+    // --------------------------------
+    int getMaximumSize();
+    long getTimeToLive();
+
+    // Content
+    // --------------------------------
+    int getSize();
+    void clear();
+
+    // Efficiency
+    // --------------------------------
+    long getNumberOfHits();
+    long getNumberOfMisses();
+    double getHitRatio();
+    long getNumberOfEvictions();
+    long getNumberOfInvalidations();
+}
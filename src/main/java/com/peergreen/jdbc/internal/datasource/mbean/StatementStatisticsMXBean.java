@@ -0,0 +1,35 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean;
+
+import com.peergreen.jdbc.internal.cm.stat.SqlExecutionStatistics;
+
+import java.util.List;
+
+/**
+ * Management interface of the per SQL execution statistics of a DataSource.
+ */
+public interface StatementStatisticsMXBean {
+
+    // Configuration
+    // --------------------------------
+    int getMaximumSize();
+    int getTopSize();
+    void setTopSize(int topSize);
+
+    // Content
+    // --------------------------------
+    int getSize();
+    long getNumberOfEvictions();
+    List<SqlExecutionStatistics> getTopStatementsByTotalTime();
+    void reset();
+}
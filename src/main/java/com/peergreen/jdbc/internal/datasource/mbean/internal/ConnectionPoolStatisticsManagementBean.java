@@ -12,16 +12,23 @@
 package com.peergreen.jdbc.internal.datasource.mbean.internal;
 
 import com.peergreen.jdbc.internal.cm.stat.DataSourceStatisticsListener;
+import com.peergreen.jdbc.internal.cm.stat.SaturationMonitor;
 import com.peergreen.jdbc.internal.datasource.mbean.ConnectionStatisticsMXBean;
 
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
+import javax.management.MBeanNotificationInfo;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.String.format;
 
@@ -30,11 +37,13 @@ import static java.lang.String.format;
  * Date: 23/10/13
  * Time: 16:46
  */
-public class ConnectionPoolStatisticsManagementBean implements ConnectionStatisticsMXBean {
+public class ConnectionPoolStatisticsManagementBean extends NotificationBroadcasterSupport
+        implements ConnectionStatisticsMXBean, SaturationMonitor.AlarmListener {
 
     private final MBeanServer server;
     private final ObjectName name;
     private final DataSourceStatisticsListener statistics;
+    private final AtomicLong sequence = new AtomicLong();
 
     public ConnectionPoolStatisticsManagementBean(String datasource, DataSourceStatisticsListener statistics) throws MalformedObjectNameException {
         this.statistics = statistics;
@@ -58,6 +67,39 @@ public class ConnectionPoolStatisticsManagementBean implements ConnectionStatist
             // Ignored
         }
     }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo() {
+        SaturationMonitor.Alarm[] alarms = SaturationMonitor.Alarm.values();
+        String[] types = new String[alarms.length];
+        for (int i = 0; i < alarms.length; i++) {
+            types[i] = alarms[i].getType();
+        }
+        return new MBeanNotificationInfo[] {
+                new MBeanNotificationInfo(types, Notification.class.getName(), "Pool saturation alarms")
+        };
+    }
+
+    /**
+     * Sends the alarm as a notification, the measured value is the user data.
+     */
+    @Override
+    public void alarmRaised(final SaturationMonitor.Alarm alarm, final long value, final long threshold) {
+        String message;
+        if (threshold == 0) {
+            message = format("%s: %d", alarm.getDescription(), value);
+        } else {
+            message = format("%s: %d, above %d", alarm.getDescription(), value, threshold);
+        }
+        Notification notification = new Notification(alarm.getType(),
+                                                     name,
+                                                     sequence.incrementAndGet(),
+                                                     System.currentTimeMillis(),
+                                                     message);
+        notification.setUserData(value);
+        sendNotification(notification);
+    }
+
     @Override
     public long getMonitoringBeginning() {
         return statistics.getFrom();
@@ -88,6 +130,94 @@ public class ConnectionPoolStatisticsManagementBean implements ConnectionStatist
         return statistics.getWaitedTime().getAverage();
     }
 
+    @Override
+    public double getWaitedTimePercentile50() {
+        return getWaitedTimePercentile(50);
+    }
+
+    @Override
+    public double getWaitedTimePercentile90() {
+        return getWaitedTimePercentile(90);
+    }
+
+    @Override
+    public double getWaitedTimePercentile99() {
+        return getWaitedTimePercentile(99);
+    }
+
+    @Override
+    public double getWaitedTimePercentile999() {
+        return getWaitedTimePercentile(99.9);
+    }
+
+    private double getWaitedTimePercentile(final double percentile) {
+        return toMillis(statistics.getWaitedTimeHistogram().getPercentile(percentile));
+    }
+
+    @Override
+    public long getHeldTimeTotal() {
+        return statistics.getHeldTime().getTotal();
+    }
+
+    @Override
+    public long getHeldTimeMaximum() {
+        return statistics.getHeldTime().getMaximum();
+    }
+
+    @Override
+    public double getHeldTimeAverage() {
+        return statistics.getHeldTime().getAverage();
+    }
+
+    @Override
+    public double getHeldTimePercentile50() {
+        return toMillis(statistics.getHeldTimeHistogram().getPercentile(50));
+    }
+
+    @Override
+    public double getHeldTimePercentile99() {
+        return toMillis(statistics.getHeldTimeHistogram().getPercentile(99));
+    }
+
+    @Override
+    public long getIdleHeldTimeTotal() {
+        return statistics.getIdleHeldTime().getTotal();
+    }
+
+    @Override
+    public long getIdleHeldTimeMaximum() {
+        return statistics.getIdleHeldTime().getMaximum();
+    }
+
+    @Override
+    public double getIdleHeldTimeAverage() {
+        return statistics.getIdleHeldTime().getAverage();
+    }
+
+    @Override
+    public double getIdleHeldTimePercentile50() {
+        return toMillis(statistics.getIdleHeldTimeHistogram().getPercentile(50));
+    }
+
+    @Override
+    public double getIdleHeldTimePercentile99() {
+        return toMillis(statistics.getIdleHeldTimeHistogram().getPercentile(99));
+    }
+
+    @Override
+    public double getTransactionHeldTimePercentile99() {
+        return toMillis(statistics.getTransactionHeldTime().getPercentile(99));
+    }
+
+    @Override
+    public double getTransactionIdleHeldTimePercentile99() {
+        return toMillis(statistics.getTransactionIdleHeldTime().getPercentile(99));
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
     @Override
     public long getNumberOfWaiters() {
         return statistics.getWaiters().getLatest();
@@ -148,6 +278,11 @@ public class ConnectionPoolStatisticsManagementBean implements ConnectionStatist
         return statistics.getFailureRejection().getValue();
     }
 
+    @Override
+    public long getNumberOfRejectedConnectionsForDrain() {
+        return statistics.getDrainRejection().getValue();
+    }
+
     @Override
     public long getNumberOfServedConnections() {
         return statistics.getServedConnections().getValue();
@@ -158,6 +293,16 @@ public class ConnectionPoolStatisticsManagementBean implements ConnectionStatist
         return statistics.getCompletedConnections().getValue();
     }
 
+    @Override
+    public long getNumberOfWarmBorrowedConnections() {
+        return statistics.getWarmBorrows().getValue();
+    }
+
+    @Override
+    public long getNumberOfColdBorrowedConnections() {
+        return statistics.getColdBorrows().getValue();
+    }
+
     @Override
     public long getNumberOfConnectionsInTransaction() {
         return statistics.getInTransaction().getLatest();
@@ -182,4 +327,54 @@ public class ConnectionPoolStatisticsManagementBean implements ConnectionStatist
     public long getNumberOfConnectionsReusedPerTransactionMaximum() {
         return statistics.getPerTransactionConnections().getMaximum();
     }
+
+    @Override
+    public long getNumberOfConnectionsReusedPerTransactionPercentile99() {
+        return statistics.getPerTransactionConnections().getPercentile(99);
+    }
+
+    @Override
+    public long getNumberOfPreparedStatementCacheHits() {
+        return statistics.getPreparedStatementHits().getValue();
+    }
+
+    @Override
+    public long getNumberOfPreparedStatementCacheMisses() {
+        return statistics.getPreparedStatementMisses().getValue();
+    }
+
+    @Override
+    public long getNumberOfCallableStatementCacheHits() {
+        return statistics.getCallableStatementHits().getValue();
+    }
+
+    @Override
+    public long getNumberOfCallableStatementCacheMisses() {
+        return statistics.getCallableStatementMisses().getValue();
+    }
+
+    @Override
+    public long getNumberOfPreparedStatementCacheBusy() {
+        return statistics.getPreparedStatementBusy().getValue();
+    }
+
+    @Override
+    public long getNumberOfCallableStatementCacheBusy() {
+        return statistics.getCallableStatementBusy().getValue();
+    }
+
+    @Override
+    public long getNumberOfAutoClosedStatements() {
+        return statistics.getAutoClosedStatements().getValue();
+    }
+
+    @Override
+    public long getNumberOfAutoClosedResultSets() {
+        return statistics.getAutoClosedResultSets().getValue();
+    }
+
+    @Override
+    public Map<String, Long> resetStatistics() {
+        return statistics.reset();
+    }
 }
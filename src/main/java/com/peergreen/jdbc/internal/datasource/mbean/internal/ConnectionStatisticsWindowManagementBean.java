@@ -0,0 +1,179 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean.internal;
+
+import com.peergreen.jdbc.internal.cm.stat.DataSourceStatisticsListener;
+import com.peergreen.jdbc.internal.datasource.mbean.ConnectionStatisticsWindowMXBean;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Exposes the DataSource statistics over a window of completed periods.
+ */
+public class ConnectionStatisticsWindowManagementBean implements ConnectionStatisticsWindowMXBean {
+
+    private final MBeanServer server;
+    private final ObjectName name;
+    private final DataSourceStatisticsListener statistics;
+    private final int window;
+
+    /**
+     * @param window number of completed periods (minutes)
+     */
+    public ConnectionStatisticsWindowManagementBean(String datasource, DataSourceStatisticsListener statistics, int window) throws MalformedObjectNameException {
+        this.statistics = statistics;
+        this.window = window;
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(format("peergreen:type=DataSourceStatistics,name=%s,window=%dm", datasource, window));
+    }
+
+    public void start() {
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(format("Cannot register %s MBean", name));
+        }
+    }
+
+    public void stop() {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Ignored
+        }
+    }
+
+    @Override
+    public int getWindowMinutes() {
+        return window;
+    }
+
+    @Override
+    public double getPeriodSeconds() {
+        return statistics.getPeriodSeconds(window);
+    }
+
+    @Override
+    public long getNumberOfServedConnections() {
+        return statistics.getServedConnections().getValue(window);
+    }
+
+    @Override
+    public double getServedConnectionsPerSecond() {
+        double seconds = getPeriodSeconds();
+        if (seconds == 0) {
+            return 0;
+        }
+        return getNumberOfServedConnections() / seconds;
+    }
+
+    @Override
+    public long getNumberOfCreatedConnections() {
+        return statistics.getCreatedConnections().getValue(window);
+    }
+
+    @Override
+    public long getNumberOfDestroyedConnections() {
+        return statistics.getDestroyedConnections().getValue(window);
+    }
+
+    @Override
+    public long getNumberOfRejectedConnectionsForTimeout() {
+        return statistics.getTimeoutRejection().getValue(window);
+    }
+
+    @Override
+    public long getNumberOfRejectedConnectionsForOverflow() {
+        return statistics.getOverflowRejection().getValue(window);
+    }
+
+    @Override
+    public long getNumberOfRejectedConnectionsForFailure() {
+        return statistics.getFailureRejection().getValue(window);
+    }
+
+    @Override
+    public long getNumberOfRejectedConnectionsForDrain() {
+        return statistics.getDrainRejection().getValue(window);
+    }
+
+    @Override
+    public long getWaitedTimeMaximum() {
+        return orZero(statistics.getWaitedTime().getMaximum(window));
+    }
+
+    @Override
+    public double getWaitedTimeAverage() {
+        return statistics.getWaitedTime().getAverage(window);
+    }
+
+    @Override
+    public double getWaitedTimePercentile50() {
+        return toMillis(statistics.getWaitedTimeHistogram().getPercentile(50, window));
+    }
+
+    @Override
+    public double getWaitedTimePercentile99() {
+        return toMillis(statistics.getWaitedTimeHistogram().getPercentile(99, window));
+    }
+
+    @Override
+    public long getNumberOfWaitersMaximum() {
+        return orZero(statistics.getWaiters().getMaximum(window));
+    }
+
+    @Override
+    public long getNumberOfBusyConnectionsMaximum() {
+        return orZero(statistics.getBusy().getMaximum(window));
+    }
+
+    @Override
+    public double getHeldTimePercentile99() {
+        return toMillis(statistics.getHeldTimeHistogram().getPercentile(99, window));
+    }
+
+    @Override
+    public double getIdleHeldTimePercentile99() {
+        return toMillis(statistics.getIdleHeldTimeHistogram().getPercentile(99, window));
+    }
+
+    @Override
+    public long getNumberOfPreparedStatementCacheHits() {
+        return statistics.getPreparedStatementHits().getValue(window);
+    }
+
+    @Override
+    public long getNumberOfPreparedStatementCacheMisses() {
+        return statistics.getPreparedStatementMisses().getValue(window);
+    }
+
+    /**
+     * Extremes are unknown (Long.MIN_VALUE) until a period is completed.
+     */
+    private static long orZero(final long maximum) {
+        return (maximum == Long.MIN_VALUE) ? 0 : maximum;
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
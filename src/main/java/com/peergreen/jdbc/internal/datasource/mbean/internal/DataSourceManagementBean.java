@@ -11,6 +11,7 @@
 
 package com.peergreen.jdbc.internal.datasource.mbean.internal;
 
+import com.peergreen.jdbc.internal.cm.IManagedConnection;
 import com.peergreen.jdbc.internal.cm.TransactionIsolation;
 import com.peergreen.jdbc.internal.datasource.DataSource;
 import com.peergreen.jdbc.internal.datasource.mbean.DataSourceMXBean;
@@ -22,6 +23,14 @@ import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
 import java.lang.management.ManagementFactory;
 import java.sql.SQLException;
 
@@ -33,6 +42,32 @@ import static java.lang.String.format;
  * Time: 16:52
  */
 public class DataSourceManagementBean implements DataSourceMXBean {
+
+    private static final String[] CONNECTION_ITEMS = {
+            "identifier", "age", "openCount", "transaction", "cachedStatements", "reusedStatements"
+    };
+    private static final OpenType<?>[] CONNECTION_ITEM_TYPES = {
+            SimpleType.INTEGER, SimpleType.LONG, SimpleType.INTEGER, SimpleType.STRING, SimpleType.INTEGER, SimpleType.INTEGER
+    };
+    private static final CompositeType CONNECTION_TYPE;
+    private static final TabularType CONNECTIONS_TYPE;
+
+    static {
+        try {
+            CONNECTION_TYPE = new CompositeType("Connection",
+                                                "Physical connection of the pool",
+                                                CONNECTION_ITEMS,
+                                                CONNECTION_ITEMS,
+                                                CONNECTION_ITEM_TYPES);
+            CONNECTIONS_TYPE = new TabularType("Connections",
+                                               "Physical connections of the pool",
+                                               CONNECTION_TYPE,
+                                               new String[] {"identifier"});
+        } catch (OpenDataException e) {
+            throw new IllegalStateException("Cannot build the connections open types", e);
+        }
+    }
+
     private final DataSource delegate;
     private final MBeanServer server;
     private final ObjectName name;
@@ -181,4 +216,72 @@ public class DataSourceManagementBean implements DataSourceMXBean {
     public void setJdbcPreparedStatementCacheSize(final int cacheSize) {
         delegate.setPreparedStatementCacheSize(cacheSize);
     }
+
+    @Override
+    public long getPoolDrainTimeout() {
+        return delegate.getDrainTimeout();
+    }
+
+    @Override
+    public void setPoolDrainTimeout(final long timeout) {
+        delegate.setDrainTimeoutMillis(timeout);
+    }
+
+    @Override
+    public boolean isDraining() {
+        return delegate.isDraining();
+    }
+
+    @Override
+    public int getDrainingConnections() {
+        return delegate.getDrainingConnections();
+    }
+
+    @Override
+    public String getActivationFailure() {
+        return delegate.getActivationFailure();
+    }
+
+    @Override
+    public int flushIdleConnections() {
+        return delegate.flushIdleConnections();
+    }
+
+    @Override
+    public int evictConnections() {
+        return delegate.evictConnections();
+    }
+
+    @Override
+    public int validateIdleConnections() {
+        return delegate.validateIdleConnections();
+    }
+
+    @Override
+    public void adjustPool() {
+        delegate.adjustPool();
+    }
+
+    @Override
+    public TabularData dumpConnections() {
+        TabularData table = new TabularDataSupport(CONNECTIONS_TYPE);
+        long now = System.currentTimeMillis();
+        for (IManagedConnection mc : delegate.getConnections()) {
+            Object transaction = mc.getTransaction();
+            Object[] values = {
+                    mc.getIdentifier(),
+                    now - mc.getCreationTime(),
+                    mc.getOpenCount(),
+                    (transaction == null) ? "" : transaction.toString(),
+                    mc.getCachedStatements(),
+                    mc.getReUsedPreparedStatements()
+            };
+            try {
+                table.put(new CompositeDataSupport(CONNECTION_TYPE, CONNECTION_ITEMS, values));
+            } catch (OpenDataException e) {
+                throw new IllegalStateException(format("Cannot describe connection %d", mc.getIdentifier()), e);
+            }
+        }
+        return table;
+    }
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean.internal;
+
+import com.peergreen.jdbc.internal.cm.event.Event;
+import com.peergreen.jdbc.internal.cm.event.EventRecorder;
+import com.peergreen.jdbc.internal.cm.event.EventType;
+import com.peergreen.jdbc.internal.datasource.mbean.EventRecorderMXBean;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Exposes the diagnostic events of a DataSource.
+ */
+public class EventRecorderManagementBean implements EventRecorderMXBean {
+
+    private final MBeanServer server;
+    private final ObjectName name;
+    private final EventRecorder recorder;
+
+    public EventRecorderManagementBean(String datasource, EventRecorder recorder) throws MalformedObjectNameException {
+        this.recorder = recorder;
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(format("peergreen:type=DataSourceEvents,name=%s", datasource));
+    }
+
+    public void start() {
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(format("Cannot register %s MBean", name));
+        }
+    }
+
+    public void stop() {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Ignored
+        }
+    }
+
+    @Override
+    public String getEnabledEvents() {
+        StringBuilder sb = new StringBuilder();
+        for (EventType type : recorder.getEnabledEvents()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(type.name().toLowerCase(Locale.ENGLISH));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void setEnabledEvents(final String events) {
+        recorder.setEnabledEvents(EventRecorder.parse(events));
+    }
+
+    @Override
+    public long getThresholdMillis() {
+        return recorder.getThreshold(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setThresholdMillis(final long threshold) {
+        recorder.setThreshold(threshold, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getNumberOfRecordedEvents() {
+        return recorder.getRecorded();
+    }
+
+    @Override
+    public List<String> getEvents() {
+        List<String> events = new ArrayList<>();
+        for (Event event : recorder.getEvents()) {
+            events.add(event.toString());
+        }
+        return events;
+    }
+
+    @Override
+    public void clearEvents() {
+        recorder.clear();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean.internal;
+
+import com.peergreen.jdbc.internal.datasource.mbean.MetricsNotificationMXBean;
+import com.peergreen.jdbc.metrics.MetricsSink;
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.Instantiate;
+import org.apache.felix.ipojo.annotations.Invalidate;
+import org.apache.felix.ipojo.annotations.Provides;
+import org.apache.felix.ipojo.annotations.Validate;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Forwards the DataSources metrics as JMX notifications, so that agents listen instead of polling
+ * the statistics MBeans.
+ */
+@Component
+@Instantiate
+@Provides(specifications = MetricsSink.class)
+public class MetricsNotificationManagementBean extends NotificationBroadcasterSupport implements MetricsSink, MetricsNotificationMXBean {
+
+    private final MBeanServer server;
+    private final ObjectName name;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Publications being collected, per DataSource.
+     */
+    private final Map<String, Publication> publications = new HashMap<>();
+
+    public MetricsNotificationManagementBean() throws MalformedObjectNameException {
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName("peergreen:type=DataSourceMetrics");
+    }
+
+    @Validate
+    public void start() {
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(format("Cannot register %s MBean", name));
+        }
+    }
+
+    @Invalidate
+    public void stop() {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Ignored
+        }
+    }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo() {
+        return new MBeanNotificationInfo[] {
+                new MBeanNotificationInfo(new String[] {NOTIFICATION_TYPE},
+                                          Notification.class.getName(),
+                                          "DataSource metrics")
+        };
+    }
+
+    @Override
+    public long getNumberOfNotifications() {
+        return sequence.get();
+    }
+
+    @Override
+    public synchronized void begin(final String datasource, final long timestamp) {
+        publications.put(datasource, new Publication(timestamp));
+    }
+
+    @Override
+    public synchronized void gauge(final String datasource, final String name, final long value) {
+        put(datasource, name, value);
+    }
+
+    @Override
+    public synchronized void gauge(final String datasource, final String name, final double value) {
+        put(datasource, name, value);
+    }
+
+    @Override
+    public synchronized void counter(final String datasource, final String name, final long value) {
+        put(datasource, name, value);
+    }
+
+    @Override
+    public void end(final String datasource) {
+        Publication publication;
+        synchronized (this) {
+            publication = publications.remove(datasource);
+        }
+        if (publication != null) {
+            Notification notification = new Notification(NOTIFICATION_TYPE,
+                                                         name,
+                                                         sequence.incrementAndGet(),
+                                                         publication.timestamp,
+                                                         datasource);
+            notification.setUserData(publication.values);
+            // Sent outside of the lock, listeners may be slow
+            sendNotification(notification);
+        }
+    }
+
+    private void put(final String datasource, final String name, final Number value) {
+        Publication publication = publications.get(datasource);
+        if (publication != null) {
+            publication.values.put(name, value);
+        }
+    }
+
+    private static class Publication {
+        private final long timestamp;
+        private final HashMap<String, Number> values = new HashMap<>();
+
+        public Publication(final long timestamp) {
+            this.timestamp = timestamp;
+        }
+    }
+}
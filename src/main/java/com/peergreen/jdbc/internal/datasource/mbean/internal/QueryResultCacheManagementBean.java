@@ -0,0 +1,108 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean.internal;
+
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import com.peergreen.jdbc.internal.datasource.mbean.QueryResultCacheMXBean;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static java.lang.String.format;
+
+/**
+ * Exposes the query result cache of a DataSource.
+ */
+public class QueryResultCacheManagementBean implements QueryResultCacheMXBean {
+
+    private final MBeanServer server;
+    private final ObjectName name;
+    private final QueryResultCache cache;
+
+    public QueryResultCacheManagementBean(String datasource, QueryResultCache cache) throws MalformedObjectNameException {
+        this.cache = cache;
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(format("peergreen:type=QueryResultCache,name=%s", datasource));
+    }
+
+    public void start() {
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(format("Cannot register %s MBean", name));
+        }
+    }
+
+    public void stop() {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Ignored
+        }
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return cache.getMaximumSize();
+    }
+
+    @Override
+    public long getTimeToLive() {
+        return cache.getTimeToLive();
+    }
+
+    @Override
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public long getNumberOfHits() {
+        return cache.getHits();
+    }
+
+    @Override
+    public long getNumberOfMisses() {
+        return cache.getMisses();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = cache.getHits();
+        long total = hits + cache.getMisses();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) hits / total;
+    }
+
+    @Override
+    public long getNumberOfEvictions() {
+        return cache.getEvictions();
+    }
+
+    @Override
+    public long getNumberOfInvalidations() {
+        return cache.getInvalidations();
+    }
+}
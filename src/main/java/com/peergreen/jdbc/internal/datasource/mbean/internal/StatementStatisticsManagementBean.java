@@ -0,0 +1,98 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.datasource.mbean.internal;
+
+import com.peergreen.jdbc.internal.cm.stat.SqlExecutionStatistics;
+import com.peergreen.jdbc.internal.cm.stat.StatementStatistics;
+import com.peergreen.jdbc.internal.datasource.mbean.StatementStatisticsMXBean;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Exposes the per SQL execution statistics of a DataSource.
+ */
+public class StatementStatisticsManagementBean implements StatementStatisticsMXBean {
+
+    private static final int DEFAULT_TOP_SIZE = 10;
+
+    private final MBeanServer server;
+    private final ObjectName name;
+    private final StatementStatistics statistics;
+    private volatile int topSize = DEFAULT_TOP_SIZE;
+
+    public StatementStatisticsManagementBean(String datasource, StatementStatistics statistics) throws MalformedObjectNameException {
+        this.statistics = statistics;
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(format("peergreen:type=StatementStatistics,name=%s", datasource));
+    }
+
+    public void start() {
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException(format("Cannot register %s MBean", name));
+        }
+    }
+
+    public void stop() {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Ignored
+        }
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return statistics.getMaximumSize();
+    }
+
+    @Override
+    public int getTopSize() {
+        return topSize;
+    }
+
+    @Override
+    public void setTopSize(final int topSize) {
+        this.topSize = topSize;
+    }
+
+    @Override
+    public int getSize() {
+        return statistics.getSize();
+    }
+
+    @Override
+    public long getNumberOfEvictions() {
+        return statistics.getEvictions();
+    }
+
+    @Override
+    public List<SqlExecutionStatistics> getTopStatementsByTotalTime() {
+        return statistics.getTopByTotalTime(topSize);
+    }
+
+    @Override
+    public void reset() {
+        statistics.reset();
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.metrics;
+
+import com.peergreen.jdbc.internal.log.FormattedLogger;
+import com.peergreen.jdbc.internal.log.Log;
+import com.peergreen.jdbc.metrics.MetricsSink;
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.Invalidate;
+import org.apache.felix.ipojo.annotations.Property;
+import org.apache.felix.ipojo.annotations.Provides;
+import org.apache.felix.ipojo.annotations.Validate;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Appends the published metrics to a local file, rotated when it reaches its maximum size.
+ * Each publication is written as one line in the InfluxDB line protocol ({@code line} format),
+ * or as one {@code timestamp,datasource,name,value} line per metric ({@code csv} format).
+ * <p>
+ * Instances are created by configuration of the {@value #FACTORY} factory.
+ */
+@Component(name = FileMetricsSink.FACTORY)
+@Provides(specifications = MetricsSink.class)
+public class FileMetricsSink implements MetricsSink {
+
+    public static final String FACTORY = "com.peergreen.jdbc.metrics.file";
+
+    public static final String LINE_FORMAT = "line";
+    public static final String CSV_FORMAT = "csv";
+
+    private static final Log LOGGER = new FormattedLogger(Logger.getLogger(FileMetricsSink.class.getName()));
+
+    @Property(name = "metrics.file", mandatory = true)
+    private String path;
+
+    @Property(name = "metrics.file.format", value = LINE_FORMAT)
+    private String format;
+
+    /**
+     * Size in bytes after which the file is rotated.
+     */
+    @Property(name = "metrics.file.size", value = "10485760")
+    private long maximumSize;
+
+    /**
+     * Number of rotated files kept.
+     */
+    @Property(name = "metrics.file.count", value = "5")
+    private int count;
+
+    private File file;
+    private Writer writer;
+
+    /**
+     * Publications being written, per DataSource.
+     */
+    private final Map<String, Publication> publications = new HashMap<>();
+
+    public FileMetricsSink() {
+    }
+
+    public FileMetricsSink(final String path, final String format, final long maximumSize, final int count) {
+        this.path = path;
+        this.format = format;
+        this.maximumSize = maximumSize;
+        this.count = count;
+    }
+
+    @Validate
+    public synchronized void start() throws IOException {
+        file = new File(path);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        open();
+    }
+
+    @Invalidate
+    public synchronized void stop() {
+        close();
+        publications.clear();
+    }
+
+    @Override
+    public synchronized void begin(final String datasource, final long timestamp) {
+        Publication publication = publications.get(datasource);
+        if (publication == null) {
+            publication = new Publication();
+            publications.put(datasource, publication);
+        }
+        publication.timestamp = timestamp;
+        publication.fields = 0;
+        publication.buffer.setLength(0);
+        if (isLineFormat()) {
+            publication.buffer.append("jdbc,datasource=");
+            escape(publication.buffer, datasource);
+        }
+    }
+
+    @Override
+    public synchronized void gauge(final String datasource, final String name, final long value) {
+        Publication publication = field(datasource, name);
+        if (publication != null) {
+            publication.buffer.append(value);
+            if (isLineFormat()) {
+                publication.buffer.append('i');
+            }
+            endField(publication);
+        }
+    }
+
+    @Override
+    public synchronized void gauge(final String datasource, final String name, final double value) {
+        Publication publication = field(datasource, name);
+        if (publication != null) {
+            publication.buffer.append(value);
+            endField(publication);
+        }
+    }
+
+    @Override
+    public synchronized void counter(final String datasource, final String name, final long value) {
+        gauge(datasource, name, value);
+    }
+
+    @Override
+    public synchronized void end(final String datasource) {
+        Publication publication = publications.get(datasource);
+        if (publication == null || writer == null) {
+            return;
+        }
+        if (isLineFormat()) {
+            publication.buffer.append(' ')
+                    .append(TimeUnit.MILLISECONDS.toNanos(publication.timestamp))
+                    .append('\n');
+        }
+        try {
+            writer.append(publication.buffer);
+            writer.flush();
+            if (file.length() >= maximumSize) {
+                rotate();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write metrics to %s", file, e);
+        }
+    }
+
+    private Publication field(final String datasource, final String name) {
+        Publication publication = publications.get(datasource);
+        if (publication == null) {
+            return null;
+        }
+        StringBuilder buffer = publication.buffer;
+        if (isLineFormat()) {
+            buffer.append((publication.fields == 0) ? ' ' : ',').append(name).append('=');
+        } else {
+            buffer.append(publication.timestamp).append(',');
+            escape(buffer, datasource);
+            buffer.append(',').append(name).append(',');
+        }
+        return publication;
+    }
+
+    private void endField(final Publication publication) {
+        publication.fields++;
+        if (!isLineFormat()) {
+            publication.buffer.append('\n');
+        }
+    }
+
+    private boolean isLineFormat() {
+        return !CSV_FORMAT.equalsIgnoreCase(format);
+    }
+
+    /**
+     * Spaces and commas are escaped in line protocol tags, and replaced in CSV values.
+     */
+    private void escape(final StringBuilder buffer, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ' ' || c == ',' || c == '=') {
+                if (isLineFormat()) {
+                    buffer.append('\\').append(c);
+                } else {
+                    buffer.append('_');
+                }
+            } else {
+                buffer.append(c);
+            }
+        }
+    }
+
+    /**
+     * Current file becomes {@code <file>.1}, {@code <file>.1} becomes {@code <file>.2}, ...
+     * the oldest one is deleted.
+     */
+    private void rotate() throws IOException {
+        close();
+        new File(path + "." + count).delete();
+        for (int i = count - 1; i >= 1; i--) {
+            File rotated = new File(path + "." + i);
+            if (rotated.exists()) {
+                rotated.renameTo(new File(path + "." + (i + 1)));
+            }
+        }
+        if (count > 0) {
+            file.renameTo(new File(path + ".1"));
+        } else {
+            file.delete();
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    private void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Ignored
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Publication being written, the buffer is reused from one publication to the next.
+     */
+    private static class Publication {
+        private final StringBuilder buffer = new StringBuilder(512);
+        private long timestamp;
+        private int fields;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.metrics;
+
+import com.peergreen.jdbc.internal.cm.pool.internal.ManagedConnectionPool;
+import com.peergreen.jdbc.internal.cm.stat.DataSourceStatisticsListener;
+import com.peergreen.jdbc.internal.log.Log;
+import com.peergreen.jdbc.metrics.MetricsSink;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the statistics of a DataSource to the available {@link MetricsSink}s.
+ */
+public class MetricsPublisher implements Runnable {
+
+    // Gauges
+    public static final String CONNECTIONS_OPENED = "connections.opened";
+    public static final String CONNECTIONS_BUSY = "connections.busy";
+    public static final String WAITERS = "waiters";
+    public static final String WAITED_TIME_P99 = "waited.time.p99";
+    public static final String HELD_TIME_P99 = "held.time.p99";
+
+    // Counters
+    public static final String CONNECTIONS_SERVED = "connections.served";
+    public static final String CONNECTIONS_CREATED = "connections.created";
+    public static final String CONNECTIONS_DESTROYED = "connections.destroyed";
+    public static final String REJECTED_TIMEOUT = "rejected.timeout";
+    public static final String REJECTED_OVERFLOW = "rejected.overflow";
+    public static final String REJECTED_FAILURE = "rejected.failure";
+    public static final String REJECTED_DRAIN = "rejected.drain";
+    public static final String STATEMENTS_CACHE_HITS = "statements.cache.hits";
+    public static final String STATEMENTS_CACHE_MISSES = "statements.cache.misses";
+    public static final String STATEMENTS_AUTOCLOSED = "statements.autoclosed";
+    public static final String RESULTSETS_AUTOCLOSED = "resultsets.autoclosed";
+
+    private final Log logger;
+    private final String datasource;
+    private final DataSourceStatisticsListener statistics;
+    private final ManagedConnectionPool pool;
+    private final List<MetricsSink> sinks;
+
+    /**
+     * @param sinks live list of the sinks, safe to iterate while modified
+     */
+    public MetricsPublisher(final Log logger,
+                            final String datasource,
+                            final DataSourceStatisticsListener statistics,
+                            final ManagedConnectionPool pool,
+                            final List<MetricsSink> sinks) {
+        this.logger = logger;
+        this.datasource = datasource;
+        this.statistics = statistics;
+        this.pool = pool;
+        this.sinks = sinks;
+    }
+
+    @Override
+    public void run() {
+        for (MetricsSink sink : sinks) {
+            try {
+                publish(sink);
+            } catch (RuntimeException e) {
+                // A failing sink must not prevent the next publications
+                logger.warn("Cannot publish metrics of %s", datasource, e);
+            }
+        }
+    }
+
+    private void publish(final MetricsSink sink) {
+        sink.begin(datasource, System.currentTimeMillis());
+
+        sink.gauge(datasource, CONNECTIONS_OPENED, pool.getCurrentOpened());
+        sink.gauge(datasource, CONNECTIONS_BUSY, pool.getCurrentBusy());
+        sink.gauge(datasource, WAITERS, pool.getCurrentWaiters());
+        sink.gauge(datasource, WAITED_TIME_P99, toMillis(statistics.getWaitedTimeHistogram().getPercentile(99)));
+        sink.gauge(datasource, HELD_TIME_P99, toMillis(statistics.getHeldTimeHistogram().getPercentile(99)));
+
+        sink.counter(datasource, CONNECTIONS_SERVED, statistics.getServedConnections().getValue());
+        sink.counter(datasource, CONNECTIONS_CREATED, statistics.getCreatedConnections().getValue());
+        sink.counter(datasource, CONNECTIONS_DESTROYED, statistics.getDestroyedConnections().getValue());
+        sink.counter(datasource, REJECTED_TIMEOUT, statistics.getTimeoutRejection().getValue());
+        sink.counter(datasource, REJECTED_OVERFLOW, statistics.getOverflowRejection().getValue());
+        sink.counter(datasource, REJECTED_FAILURE, statistics.getFailureRejection().getValue());
+        sink.counter(datasource, REJECTED_DRAIN, statistics.getDrainRejection().getValue());
+        sink.counter(datasource, STATEMENTS_CACHE_HITS, statistics.getPreparedStatementHits().getValue());
+        sink.counter(datasource, STATEMENTS_CACHE_MISSES, statistics.getPreparedStatementMisses().getValue());
+        sink.counter(datasource, STATEMENTS_AUTOCLOSED, statistics.getAutoClosedStatements().getValue());
+        sink.counter(datasource, RESULTSETS_AUTOCLOSED, statistics.getAutoClosedResultSets().getValue());
+
+        sink.end(datasource);
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
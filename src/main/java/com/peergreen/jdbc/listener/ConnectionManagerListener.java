@@ -0,0 +1,47 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.listener;
+
+import javax.transaction.Transaction;
+
+/**
+ * Events of the connections handed out by a DataSource (transaction enlistment, reuse, release).
+ * <p>
+ * Services registered with this interface are notified by every DataSource, unless they have a
+ * {@code datasource.name} service property, in which case only the named DataSource notifies them.
+ * Events are sent from the application threads: implementations must be fast and must not call
+ * back into the DataSource.
+ */
+public interface ConnectionManagerListener {
+    void connectionEnlisted(Transaction transaction);
+    void connectionEnlistmentError();
+    void connectionDelisted(Transaction transaction);
+    void connectionServed();
+    void connectionReusedInSameTransaction(Transaction transaction);
+
+    /**
+     * The transaction has completed, its connection goes back to the pool.
+     * @param transaction completed transaction
+     * @param reuses number of times the connection has been served again in the transaction
+     * @param heldTime time the connection has been held by the application in the transaction, in nanoseconds
+     * @param idleHeldTime part of the held time spent without executing statements, in nanoseconds
+     */
+    void connectionFreedAfterTransactionCompletion(Transaction transaction, int reuses, long heldTime, long idleHeldTime);
+
+    /**
+     * The application has closed all its handles on a connection.
+     * @param transaction transaction the connection is kept for, null if none
+     * @param heldTime time since the application got the connection, in nanoseconds
+     * @param jdbcTime part of the held time spent executing statements, in nanoseconds
+     */
+    void connectionReleased(Transaction transaction, long heldTime, long jdbcTime);
+}
@@ -9,23 +9,36 @@
  * limitations under the License.
  */
 
-package com.peergreen.jdbc.internal.cm.pool;
+package com.peergreen.jdbc.listener;
 
 /**
- * User: guillaume
- * Date: 21/10/13
- * Time: 16:44
+ * Events of a DataSource connection pool.
+ * <p>
+ * Services registered with this interface are notified by every DataSource, unless they have a
+ * {@code datasource.name} service property, in which case only the named DataSource notifies them.
+ * Events are sent from the application threads, often while the pool is locked: implementations
+ * must be fast and must not call back into the DataSource.
  */
 public interface PoolLifecycleListener {
     void connectionCreated();
     void connectionDestroyed();
     void connectionValidated();
+    void connectionBorrowed(boolean warm);
 
     void waiterStartWaiting();
+    /**
+     * @param waitedTime whole time waited for a connection, in nanoseconds
+     * @param timedOut true if no connection was obtained before the timeout
+     */
     void waiterStopWaiting(long waitedTime, boolean timedOut);
     void waiterRejectedTimeout();
     void waiterRejectedOverflow();
     void waiterRejectedFailure();
 
+    /**
+     * A connection has been refused because the pool is drained (the DataSource is stopping).
+     */
+    void waiterRejectedDrain();
+
     void busyConnections(int current);
 }
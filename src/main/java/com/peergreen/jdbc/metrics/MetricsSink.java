@@ -0,0 +1,57 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.metrics;
+
+/**
+ * Service receiving the metrics periodically published by each DataSource.
+ * <p>
+ * A publication is a call to {@link #begin(String, long)}, followed by {@code gauge()} and
+ * {@code counter()} calls, then {@link #end(String)}, all from the same thread. Publications of
+ * different DataSources may be concurrent. Metric names are constants and values are primitives,
+ * so publishing does not allocate.
+ */
+public interface MetricsSink {
+
+    /**
+     * A publication starts.
+     * @param datasource DataSource name
+     * @param timestamp publication time, in milliseconds since the epoch
+     */
+    void begin(String datasource, long timestamp);
+
+    /**
+     * @param datasource DataSource name
+     * @param name metric name
+     * @param value current level
+     */
+    void gauge(String datasource, String name, long value);
+
+    /**
+     * @param datasource DataSource name
+     * @param name metric name
+     * @param value current level
+     */
+    void gauge(String datasource, String name, double value);
+
+    /**
+     * @param datasource DataSource name
+     * @param name metric name
+     * @param value number of events since the DataSource started (or its statistics were reset)
+     */
+    void counter(String datasource, String name, long value);
+
+    /**
+     * The publication is complete.
+     * @param datasource DataSource name
+     */
+    void end(String datasource);
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class StatementKeyTestCase {
+
+    private static final String SQL = "INSERT INTO CLIENTS (NAME) VALUES (?)";
+
+    @Mock
+    private Connection connection;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testDefaultOptionsAreTheSameStatement() throws Exception {
+        assertEquals(StatementKey.prepared(SQL),
+                     StatementKey.prepared(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+        assertEquals(StatementKey.prepared(SQL).hashCode(),
+                     StatementKey.prepared(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY).hashCode());
+    }
+
+    @Test
+    public void testOptionsAreDifferentStatements() throws Exception {
+        assertFalse(StatementKey.prepared(SQL).equals(StatementKey.prepared(SQL, Statement.RETURN_GENERATED_KEYS)));
+        assertFalse(StatementKey.prepared(SQL).equals(StatementKey.callable(SQL)));
+        assertFalse(StatementKey.prepared(SQL, new int[] {1}).equals(StatementKey.prepared(SQL, new int[] {2})));
+        assertFalse(StatementKey.prepared(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                            .equals(StatementKey.prepared(SQL,
+                                                          ResultSet.TYPE_FORWARD_ONLY,
+                                                          ResultSet.CONCUR_READ_ONLY,
+                                                          ResultSet.HOLD_CURSORS_OVER_COMMIT)));
+    }
+
+    @Test
+    public void testArrayOptionsAreComparedByValue() throws Exception {
+        assertEquals(StatementKey.prepared(SQL, new String[] {"ID"}), StatementKey.prepared(SQL, new String[] {"ID"}));
+        assertEquals(StatementKey.prepared(SQL, new int[] {1}), StatementKey.prepared(SQL, new int[] {1}));
+    }
+
+    @Test
+    public void testPrepareWithGeneratedKeys() throws Exception {
+        StatementKey.prepared(SQL, Statement.RETURN_GENERATED_KEYS).prepare(connection);
+        verify(connection).prepareStatement(SQL, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    @Test
+    public void testPrepareWithColumnNames() throws Exception {
+        String[] columns = {"ID"};
+        StatementKey.prepared(SQL, columns).prepare(connection);
+        verify(connection).prepareStatement(SQL, columns);
+    }
+
+    @Test
+    public void testPrepareWithHoldability() throws Exception {
+        StatementKey.prepared(SQL,
+                              ResultSet.TYPE_SCROLL_INSENSITIVE,
+                              ResultSet.CONCUR_READ_ONLY,
+                              ResultSet.CLOSE_CURSORS_AT_COMMIT).prepare(connection);
+        verify(connection).prepareStatement(SQL,
+                                            ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                            ResultSet.CONCUR_READ_ONLY,
+                                            ResultSet.CLOSE_CURSORS_AT_COMMIT);
+    }
+
+    @Test
+    public void testPrepareCall() throws Exception {
+        StatementKey.callable("{call UPDATE_CLIENTS(?)}").prepare(connection);
+        verify(connection).prepareCall("{call UPDATE_CLIENTS(?)}", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    @Test
+    public void testOnlyForwardOnlyReadOnlyStatementsAreStreamable() throws Exception {
+        assertTrue(StatementKey.prepared("SELECT 1").isStreamable());
+        assertTrue(StatementKey.prepared("SELECT 1", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY).isStreamable());
+        assertFalse(StatementKey.prepared("SELECT 1", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY).isStreamable());
+        assertFalse(StatementKey.prepared("SELECT 1", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE).isStreamable());
+    }
+}
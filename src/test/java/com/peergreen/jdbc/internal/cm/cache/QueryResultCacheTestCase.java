@@ -0,0 +1,156 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.cache;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class QueryResultCacheTestCase {
+
+    @Mock
+    private CachedRowSet rows;
+    @Mock
+    private ResultSet results;
+    @Mock
+    private CachedRowSet cursor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(rows.createShared()).thenReturn(cursor);
+    }
+
+    @Test
+    public void testOnlyMatchingQueriesAreCacheable() throws Exception {
+        QueryResultCache cache = cache(10, 0);
+        assertTrue(cache.isCacheable("SELECT * FROM COUNTRIES WHERE CODE = ?"));
+        assertFalse(cache.isCacheable("SELECT * FROM CLIENTS"));
+    }
+
+    @Test
+    public void testPutConsumesResultSetAndReturnsCursor() throws Exception {
+        QueryResultCache cache = cache(10, 0);
+        ResultSet rs = cache.put(key("FR"), results);
+
+        verify(rows).populate(results);
+        verify(results).close();
+        assertSame(rs, cursor);
+        assertEquals(cache.getSize(), 1);
+    }
+
+    @Test
+    public void testGetCountsHitsAndMisses() throws Exception {
+        QueryResultCache cache = cache(10, 0);
+        assertNull(cache.get(key("FR")));
+        cache.put(key("FR"), results);
+        assertNotNull(cache.get(key("FR")));
+        assertNull(cache.get(key("DE")));
+
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        QueryResultCache cache = cache(2, 0);
+        cache.put(key("FR"), results);
+        cache.put(key("DE"), results);
+        // Touch FR, DE becomes the eldest
+        cache.get(key("FR"));
+        cache.put(key("IT"), results);
+
+        assertEquals(cache.getSize(), 2);
+        assertEquals(cache.getEvictions(), 1);
+        assertNotNull(cache.get(key("FR")));
+        assertNull(cache.get(key("DE")));
+    }
+
+    @Test
+    public void testExpiredEntriesAreNotReturned() throws Exception {
+        QueryResultCache cache = cache(10, 1);
+        cache.put(key("FR"), results);
+        Thread.sleep(10);
+
+        assertNull(cache.get(key("FR")));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testUpdateOfWatchedTableInvalidatesEntries() throws Exception {
+        QueryResultCache cache = cache(10, 0);
+        cache.put(key("FR"), results);
+        cache.put(key("DE"), results);
+
+        cache.invalidate("UPDATE countries SET NAME = ? WHERE CODE = ?");
+
+        assertEquals(cache.getSize(), 0);
+        assertEquals(cache.getInvalidations(), 2);
+    }
+
+    @Test
+    public void testResultInvalidatedDuringQueryIsNotCached() throws Exception {
+        QueryResultCache cache = cache(10, 0);
+        long generation = cache.getGeneration(key("FR").getSql());
+
+        cache.invalidate("UPDATE COUNTRIES SET NAME = ?");
+        ResultSet rs = cache.put(key("FR"), generation, results);
+
+        assertSame(rs, cursor);
+        assertEquals(cache.getSize(), 0);
+        assertNull(cache.get(key("FR")));
+    }
+
+    @Test
+    public void testUpdateOfOtherTableKeepsEntries() throws Exception {
+        QueryResultCache cache = cache(10, 0);
+        cache.put(key("FR"), results);
+
+        cache.invalidate("UPDATE COUNTRIES_HISTORY SET NAME = ?");
+
+        assertEquals(cache.getSize(), 1);
+        assertEquals(cache.getInvalidations(), 0);
+    }
+
+    private QueryResultCache cache(final int size, final long ttl) {
+        return new QueryResultCache(size,
+                                    ttl,
+                                    Collections.singletonList(Pattern.compile("SELECT .* FROM COUNTRIES.*")),
+                                    Arrays.asList("COUNTRIES")) {
+            @Override
+            protected CachedRowSet createRowSet() throws SQLException {
+                return rows;
+            }
+        };
+    }
+
+    private static QueryKey key(final String code) {
+        return new QueryKey("SELECT * FROM COUNTRIES WHERE CODE = ?", new Object[] {code});
+    }
+}
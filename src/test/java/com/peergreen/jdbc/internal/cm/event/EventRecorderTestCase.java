@@ -0,0 +1,90 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.event;
+
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Checks the filtering and the bounded buffer of the event recorder.
+ */
+public class EventRecorderTestCase {
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        EventRecorder recorder = new EventRecorder();
+        for (EventType type : EventType.values()) {
+            assertFalse(recorder.isEnabled(type));
+        }
+        recorder.record(EventType.STATEMENT_EXECUTED, 1, 1000, "SELECT 1");
+        assertTrue(recorder.getEvents().isEmpty());
+        assertEquals(recorder.getRecorded(), 0);
+    }
+
+    @Test
+    public void testThresholdOnlyAppliesToTimedEvents() throws Exception {
+        EventRecorder recorder = new EventRecorder();
+        recorder.setEnabledEvents(EnumSet.of(EventType.STATEMENT_EXECUTED, EventType.CONNECTION_DESTROYED));
+        recorder.setThreshold(10, TimeUnit.MILLISECONDS);
+
+        recorder.record(EventType.STATEMENT_EXECUTED, 1, TimeUnit.MILLISECONDS.toNanos(5), "SELECT 1");
+        recorder.record(EventType.STATEMENT_EXECUTED, 1, TimeUnit.MILLISECONDS.toNanos(20), "SELECT 2");
+        recorder.record(EventType.CONNECTION_DESTROYED, 1, 0, null);
+        recorder.record(EventType.CONNECTION_CREATED, 2, TimeUnit.SECONDS.toNanos(1), null);
+
+        List<Event> events = recorder.getEvents();
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0).getSql(), "SELECT 2");
+        assertEquals(events.get(1).getType(), EventType.CONNECTION_DESTROYED);
+    }
+
+    @Test
+    public void testOldestEventsAreDropped() throws Exception {
+        EventRecorder recorder = new EventRecorder(2);
+        recorder.setEnabledEvents(EnumSet.allOf(EventType.class));
+        recorder.record(EventType.CONNECTION_CREATED, 1, 0, null);
+        recorder.record(EventType.CONNECTION_CREATED, 2, 0, null);
+        recorder.record(EventType.CONNECTION_CREATED, 3, 0, null);
+
+        List<Event> events = recorder.getEvents();
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0).getConnection(), 2);
+        assertEquals(events.get(1).getConnection(), 3);
+        assertEquals(recorder.getRecorded(), 3);
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        assertEquals(EventRecorder.parse("connection_waited, Statement_Executed"),
+                     EnumSet.of(EventType.CONNECTION_WAITED, EventType.STATEMENT_EXECUTED));
+        assertEquals(EventRecorder.parse("all"), EnumSet.allOf(EventType.class));
+        assertTrue(EventRecorder.parse(null).isEmpty());
+    }
+
+    @Test
+    public void testParseUnknownEvent() throws Exception {
+        try {
+            EventRecorder.parse("connection_lost");
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        fail();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.cm.event;
+
+import com.peergreen.jdbc.internal.log.Log;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Checks the threshold, the sampling and the redaction of the slow query log.
+ */
+public class SlowQueryLogTestCase {
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        SlowQueryLog log = new SlowQueryLog(new RecordingLog());
+        assertFalse(log.isEnabled());
+        assertFalse(log.isSlow(TimeUnit.HOURS.toNanos(1)));
+    }
+
+    @Test
+    public void testThreshold() throws Exception {
+        SlowQueryLog log = new SlowQueryLog(new RecordingLog());
+        log.setThreshold(100, TimeUnit.MILLISECONDS);
+        assertTrue(log.isEnabled());
+        assertFalse(log.isSlow(TimeUnit.MILLISECONDS.toNanos(99)));
+        assertTrue(log.isSlow(TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    @Test
+    public void testLiteralsAreRedacted() throws Exception {
+        RecordingLog messages = new RecordingLog();
+        SlowQueryLog log = new SlowQueryLog(messages);
+        log.setThreshold(1, TimeUnit.MILLISECONDS);
+        log.log("SELECT * FROM CLIENTS WHERE NAME = 'Smith'", TimeUnit.MILLISECONDS.toNanos(5), null, 3, null);
+        log.stop();
+
+        List<String> logged = messages.await(1);
+        assertTrue(logged.get(0).contains("SELECT * FROM CLIENTS WHERE NAME = ?"), logged.get(0));
+        assertTrue(logged.get(0).contains("connection 3"), logged.get(0));
+    }
+
+    @Test
+    public void testLiteralsAreKeptWithValues() throws Exception {
+        RecordingLog messages = new RecordingLog();
+        SlowQueryLog log = new SlowQueryLog(messages);
+        log.setThreshold(1, TimeUnit.MILLISECONDS);
+        log.setParameters(SlowQueryLog.Parameters.VALUES);
+        log.log("SELECT * FROM CLIENTS WHERE ID = ?", TimeUnit.MILLISECONDS.toNanos(5), "[42]", 3, "tx-1");
+        log.stop();
+
+        List<String> logged = messages.await(1);
+        assertTrue(logged.get(0).contains("in transaction tx-1"), logged.get(0));
+        assertTrue(logged.get(0).endsWith("SELECT * FROM CLIENTS WHERE ID = ? with parameters [42]"), logged.get(0));
+    }
+
+    @Test
+    public void testSamplingLogsTheFirstExecution() throws Exception {
+        RecordingLog messages = new RecordingLog();
+        SlowQueryLog log = new SlowQueryLog(messages);
+        log.setThreshold(1, TimeUnit.MILLISECONDS);
+        log.setSampling(3);
+        for (int i = 0; i < 7; i++) {
+            log.log("SELECT A FROM T", TimeUnit.MILLISECONDS.toNanos(5), null, 1, null);
+        }
+        log.log("SELECT B FROM T", TimeUnit.MILLISECONDS.toNanos(5), null, 1, null);
+        log.stop();
+
+        // Executions 1, 4 and 7 of the first statement, and the first one of the second
+        assertEquals(messages.await(4).size(), 4);
+    }
+
+    @Test
+    public void testParseParameters() throws Exception {
+        assertEquals(SlowQueryLog.parse(" Values"), SlowQueryLog.Parameters.VALUES);
+        try {
+            SlowQueryLog.parse("all");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testSamplingIgnoresLiterals() throws Exception {
+        RecordingLog messages = new RecordingLog();
+        SlowQueryLog log = new SlowQueryLog(messages);
+        log.setThreshold(1, TimeUnit.MILLISECONDS);
+        log.setSampling(3);
+        for (int i = 0; i < 7; i++) {
+            log.log("SELECT A FROM T WHERE ID = " + i, TimeUnit.MILLISECONDS.toNanos(5), null, 1, null);
+        }
+        log.stop();
+
+        // Executions 1, 4 and 7 of the same normalized statement
+        assertEquals(messages.await(7).size(), 3);
+    }
+
+    @Test
+    public void testNothingIsLoggedOnceStopped() throws Exception {
+        RecordingLog messages = new RecordingLog();
+        SlowQueryLog log = new SlowQueryLog(messages);
+        log.setThreshold(1, TimeUnit.MILLISECONDS);
+        log.stop();
+        log.log("SELECT A FROM T", TimeUnit.MILLISECONDS.toNanos(5), null, 1, null);
+
+        assertTrue(messages.await(1).isEmpty());
+    }
+
+    private static class RecordingLog implements Log {
+        private final List<String> messages = new ArrayList<>();
+
+        public synchronized List<String> await(final int count) throws InterruptedException {
+            long end = System.currentTimeMillis() + 5000;
+            while (messages.size() < count && System.currentTimeMillis() < end) {
+                wait(100);
+            }
+            return new ArrayList<>(messages);
+        }
+
+        @Override
+        public Log create(final String name) {
+            return this;
+        }
+
+        @Override
+        public void fine(final String message, final Object... objects) {
+        }
+
+        @Override
+        public void info(final String message, final Object... objects) {
+        }
+
+        @Override
+        public synchronized void warn(final String message, final Object... objects) {
+            messages.add(format(message, objects));
+            notifyAll();
+        }
+
+        @Override
+        public void error(final String message, final Object... objects) {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.managed;
+
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the ranking of the most used statements.
+ */
+public class HotStatementsTestCase {
+
+    @Test
+    public void testTopIsOrderedByUses() throws Exception {
+        HotStatements hot = new HotStatements();
+        record(hot, StatementKey.prepared("SELECT A FROM T"), 3);
+        record(hot, StatementKey.prepared("SELECT B FROM T"), 10);
+        record(hot, StatementKey.callable("{call P()}"), 5);
+
+        List<StatementKey> top = hot.getTop(2);
+        assertEquals(top.size(), 2);
+        assertEquals(top.get(0), StatementKey.prepared("SELECT B FROM T"));
+        assertEquals(top.get(1), StatementKey.callable("{call P()}"));
+    }
+
+    @Test
+    public void testSizeIsBoundedAndHotStatementsAreKept() throws Exception {
+        HotStatements hot = new HotStatements(4);
+        record(hot, StatementKey.prepared("SELECT HOT FROM T"), 100);
+        for (int i = 0; i < 50; i++) {
+            record(hot, StatementKey.prepared("SELECT C" + i + " FROM T"), 1);
+        }
+
+        assertEquals(hot.getSize(), 4);
+        assertEquals(hot.getTop(1).get(0), StatementKey.prepared("SELECT HOT FROM T"));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        HotStatements hot = new HotStatements();
+        record(hot, StatementKey.prepared("SELECT A FROM T"), 1);
+        hot.clear();
+        assertTrue(hot.getTop(10).isEmpty());
+    }
+
+    private static void record(final HotStatements hot, final StatementKey key, final int uses) {
+        for (int i = 0; i < uses; i++) {
+            hot.record(key);
+        }
+    }
+}
@@ -11,6 +11,7 @@
 
 package com.peergreen.jdbc.internal.cm.managed;
 
+import com.peergreen.jdbc.internal.cm.ResourceListener;
 import com.peergreen.jdbc.internal.cm.pool.internal.ManagedConnectionFactory;
 import com.peergreen.jdbc.internal.log.Log;
 import org.mockito.Mock;
@@ -22,9 +23,13 @@ import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
 import javax.transaction.Transaction;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -49,6 +54,12 @@ public class JManagedConnectionTestCase {
     private ConnectionEventListener listener;
     @Mock
     private Log log;
+    @Mock
+    private ResourceListener resourceListener;
+    @Mock
+    private Statement statement;
+    @Mock
+    private ResultSet resultSet;
 
     @BeforeMethod
     public void setUp() throws Exception {
@@ -202,4 +213,59 @@ public class JManagedConnectionTestCase {
     }
 
     // TODO Add tests about PreparedStatements, XAResource, ...
+
+    @Test
+    public void testResourcesLeftOpenedAreClosedOnRelease() throws Exception {
+        when(factory.getMaxAge()).thenReturn(1000l);
+        when(factory.getResourceListener()).thenReturn(resourceListener);
+
+        JManagedConnection mc = new JManagedConnection(log, connection, factory);
+        mc.notifyStatementOpened(statement);
+        mc.notifyResultSetOpened(resultSet);
+        mc.notifyClose();
+
+        verify(resultSet).close();
+        verify(statement).close();
+        verify(resourceListener).resourcesAutoClosed(1, 1);
+    }
+
+    @Test
+    public void testResourcesClosedByTheApplicationAreNotClosedOnRelease() throws Exception {
+        when(factory.getMaxAge()).thenReturn(1000l);
+        when(factory.getResourceListener()).thenReturn(resourceListener);
+
+        JManagedConnection mc = new JManagedConnection(log, connection, factory);
+        mc.notifyStatementOpened(statement);
+        mc.notifyStatementClosed(statement);
+        mc.notifyClose();
+
+        verify(statement, never()).close();
+        verify(resourceListener, never()).resourcesAutoClosed(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testAutoCommitIsTrackedWithoutAskingTheDatabase() throws Exception {
+        JManagedConnection mc = new JManagedConnection(log, connection, factory);
+        assertFalse(mc.isInTransaction());
+
+        mc.getConnection().setAutoCommit(false);
+        assertTrue(mc.isInTransaction());
+
+        mc.getConnection().setAutoCommit(true);
+        assertFalse(mc.isInTransaction());
+        verify(connection, never()).getAutoCommit();
+    }
+
+    @Test
+    public void testUnwrappedFlagIsCleared() throws Exception {
+        when(connection.isClosed()).thenReturn(true);
+        JManagedConnection mc = new JManagedConnection(log, connection, factory);
+        assertFalse(mc.isClosedByApplication());
+
+        mc.notifyUnwrapped();
+        assertTrue(mc.isClosedByApplication());
+
+        mc.clearUnwrapped();
+        assertFalse(mc.isClosedByApplication());
+    }
 }
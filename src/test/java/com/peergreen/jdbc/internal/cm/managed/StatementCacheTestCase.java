@@ -0,0 +1,164 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.managed;
+
+import com.peergreen.jdbc.internal.cm.IPreparedStatement;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class StatementCacheTestCase {
+
+    @Mock
+    private IPreparedStatement ps1;
+    @Mock
+    private IPreparedStatement ps2;
+    @Mock
+    private IPreparedStatement ps3;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testCachedStatementIsFound() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(10);
+        cache.put("A", ps1);
+        cache.release("A", ps1);
+
+        assertSame(cache.get("A"), ps1);
+        assertNull(cache.get("B"));
+        assertEquals(cache.getIdleSize(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIdleStatementIsEvicted() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(2);
+        cache.put("A", ps1);
+        cache.release("A", ps1);
+        cache.put("B", ps2);
+        cache.release("B", ps2);
+
+        // Touch A, B becomes the least recently used
+        cache.get("A");
+        cache.release("A", ps1);
+
+        cache.put("C", ps3);
+        cache.release("C", ps3);
+
+        assertEquals(cache.size(), 2);
+        verify(ps2).forget();
+        verify(ps1, never()).forget();
+        assertNull(cache.get("B"));
+    }
+
+    @Test
+    public void testRemovedStatementIsNoLongerCached() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(10);
+        cache.put("A", ps1);
+        cache.put("A", ps2);
+        cache.release("A", ps2);
+
+        assertTrue(cache.remove("A", ps1));
+        assertTrue(cache.remove("A", ps2));
+        assertFalse(cache.remove("A", ps1));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getIdleSize(), 0);
+        assertEquals(cache.getInstances("A"), 0);
+        verify(ps1, never()).forget();
+    }
+
+    @Test
+    public void testUsedStatementsAreNotEvicted() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(1);
+        cache.put("A", ps1);
+        cache.put("B", ps2);
+
+        assertEquals(cache.size(), 2);
+
+        cache.release("A", ps1);
+        verify(ps1).forget();
+        verify(ps2, never()).forget();
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testShrinkEvictsIdleStatements() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(10);
+        cache.put("A", ps1);
+        cache.release("A", ps1);
+        cache.put("B", ps2);
+        cache.release("B", ps2);
+
+        cache.setMaximumSize(1);
+
+        assertEquals(cache.size(), 1);
+        verify(ps1).forget();
+    }
+
+    @Test
+    public void testForceCloseAllReturnsOpenedStatementsToIdleList() throws Exception {
+        when(ps1.forceClose()).thenReturn(true);
+        StatementCache<String> cache = new StatementCache<>(10);
+        cache.put("A", ps1);
+        cache.put("B", ps2);
+        cache.release("B", ps2);
+
+        assertEquals(cache.forceCloseAll(), 1);
+        assertEquals(cache.getIdleSize(), 2);
+        verify(ps2, never()).forceClose();
+    }
+
+    @Test
+    public void testOpenedStatementIsNotShared() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(10);
+        cache.put("A", ps1);
+
+        assertNull(cache.get("A"));
+        assertEquals(cache.getInstances("A"), 1);
+    }
+
+    @Test
+    public void testSeveralInstancesPerKey() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(10);
+        assertTrue(cache.put("A", ps1));
+        assertTrue(cache.put("A", ps2));
+        cache.release("A", ps2);
+
+        assertEquals(cache.getInstances("A"), 2);
+        assertSame(cache.get("A"), ps2);
+        assertNull(cache.get("A"));
+    }
+
+    @Test
+    public void testInstancesPerKeyAreLimited() throws Exception {
+        StatementCache<String> cache = new StatementCache<>(10);
+        cache.setMaximumInstances(2);
+        assertTrue(cache.put("A", ps1));
+        assertTrue(cache.put("A", ps2));
+        assertFalse(cache.put("A", ps3));
+
+        assertFalse(cache.release("A", ps3));
+        assertEquals(cache.size(), 2);
+    }
+}
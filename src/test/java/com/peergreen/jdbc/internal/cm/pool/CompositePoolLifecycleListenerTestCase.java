@@ -0,0 +1,89 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.pool;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the dispatch of the pool events.
+ */
+public class CompositePoolLifecycleListenerTestCase {
+
+    @Test
+    public void testEventsAreDispatchedToAllListeners() throws Exception {
+        CompositePoolLifecycleListener composite = new CompositePoolLifecycleListener();
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+        composite.addListener(first);
+        composite.addListener(second);
+
+        composite.connectionCreated();
+        composite.waiterStopWaiting(10, false);
+
+        assertEquals(first.events, 2);
+        assertEquals(second.events, 2);
+    }
+
+    @Test
+    public void testRemovedListenerIsNoLongerNotified() throws Exception {
+        CompositePoolLifecycleListener composite = new CompositePoolLifecycleListener();
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+        CountingListener third = new CountingListener();
+        composite.addListener(first);
+        composite.addListener(second);
+        composite.addListener(third);
+
+        composite.removeListener(second);
+        composite.connectionDestroyed();
+
+        assertEquals(first.events, 1);
+        assertEquals(second.events, 0);
+        assertEquals(third.events, 1);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        CompositePoolLifecycleListener composite = new CompositePoolLifecycleListener();
+        assertTrue(composite.isEmpty());
+        composite.connectionCreated();
+
+        CountingListener listener = new CountingListener();
+        composite.addListener(listener);
+        assertFalse(composite.isEmpty());
+        composite.removeListener(listener);
+        assertTrue(composite.isEmpty());
+    }
+
+    private static class CountingListener extends EmptyPoolLifecycleListener {
+        private int events = 0;
+
+        @Override
+        public void connectionCreated() {
+            events++;
+        }
+
+        @Override
+        public void connectionDestroyed() {
+            events++;
+        }
+
+        @Override
+        public void waiterStopWaiting(final long waitedTime, final boolean timedOut) {
+            events++;
+        }
+    }
+}
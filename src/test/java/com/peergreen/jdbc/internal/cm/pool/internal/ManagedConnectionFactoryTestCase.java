@@ -175,4 +175,18 @@ public class ManagedConnectionFactoryTestCase {
         factory.destroy(mc);
         verify(mc).remove();
     }
+
+    @Test
+    public void testStreamingFetchSizeOnlyAppliesToStreamableStatements() throws Exception {
+        ManagedConnectionFactory factory = new ManagedConnectionFactory(log, builder, listener);
+        assertEquals(factory.getFetchSize(true), 0);
+
+        factory.setStreaming(true);
+        assertEquals(factory.getFetchSize(true), ManagedConnectionFactory.DEFAULT_STREAMING_FETCH_SIZE);
+        assertEquals(factory.getFetchSize(false), 0);
+
+        factory.setFetchSize(500);
+        assertEquals(factory.getFetchSize(true), 500);
+        assertEquals(factory.getFetchSize(false), 500);
+    }
 }
@@ -12,9 +12,11 @@
 package com.peergreen.jdbc.internal.cm.pool.internal;
 
 import com.peergreen.jdbc.internal.cm.IManagedConnection;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import com.peergreen.jdbc.internal.cm.managed.HotStatements;
 import com.peergreen.jdbc.internal.cm.pool.PoolFactory;
-import com.peergreen.jdbc.internal.cm.pool.PoolLifecycleListener;
 import com.peergreen.jdbc.internal.log.Log;
+import com.peergreen.jdbc.listener.PoolLifecycleListener;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
@@ -23,6 +25,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -32,11 +35,13 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -81,6 +86,60 @@ public class ManagedConnectionPoolTestCase {
         verify(lifecycle, times(10)).connectionCreated();
     }
 
+    @Test
+    public void testPoolIsNotFilledBeforeStart() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.setPoolMin(2);
+
+        verify(factory, never()).create(any(UsernamePasswordInfo.class));
+    }
+
+    @Test
+    public void testPoolInitConnectionsAreCreatedInBackground() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                return mock(IManagedConnection.class);
+            }
+        });
+
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.setPoolMin(3);
+        pool.startInBackground();
+        assertTrue(pool.isStarted());
+
+        // Wait for the background activation
+        for (int i = 0; i < 100 && pool.getCurrentFree() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(pool.getCurrentFree(), 3);
+        verify(lifecycle, times(3)).connectionCreated();
+        pool.stop();
+    }
+
+    @Test
+    public void testBackgroundActivationFailureIsRecorded() throws Exception {
+        SQLException failure = new SQLException("Connection refused");
+        when(factory.create(any(UsernamePasswordInfo.class))).thenThrow(failure);
+
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.setPoolMin(3);
+        pool.startInBackground();
+
+        // Wait for the background activation
+        for (int i = 0; i < 100 && pool.getActivationFailure() == null; i++) {
+            Thread.sleep(10);
+        }
+        assertNotNull(pool.getActivationFailure());
+        assertSame(pool.getActivationFailure().getCause(), failure);
+        assertTrue(pool.isStarted());
+        pool.stop();
+    }
+
     @Test
     public void testGet() throws Exception {
         when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
@@ -110,6 +169,31 @@ public class ManagedConnectionPoolTestCase {
         verify(lifecycle).connectionCreated();
     }
 
+    @Test
+    public void testReleaseClearsUnwrappedFlag() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        pool.release(pool.get());
+
+        verify(mc).clearUnwrapped();
+    }
+
+    @Test
+    public void testClosedByApplicationIsDestroyedOnRelease() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        when(mc.isClosedByApplication()).thenReturn(true);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        pool.release(pool.get());
+
+        assertEquals(pool.getCurrentFree(), 0);
+        verify(factory).destroy(mc);
+        verify(mc, never()).clearUnwrapped();
+    }
+
     @Test
     public void testDiscard() throws Exception {
         when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
@@ -125,6 +209,191 @@ public class ManagedConnectionPoolTestCase {
         verify(factory).destroy(mc);
     }
 
+    @Test
+    public void testFlushDestroysIdleConnections() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        pool.release(pool.get());
+
+        assertEquals(pool.flush(), 1);
+        assertEquals(pool.getCurrentFree(), 0);
+        verify(factory).destroy(mc);
+    }
+
+    @Test
+    public void testEvictedConnectionIsDestroyedOnRelease() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        IManagedConnection busy = pool.get();
+
+        assertEquals(pool.evict(), 1);
+        verify(factory, never()).destroy(mc);
+
+        pool.release(busy);
+        verify(factory).destroy(mc);
+        assertEquals(pool.getCurrentFree(), 0);
+        assertTrue(pool.getConnections().isEmpty());
+    }
+
+    @Test
+    public void testValidationDestroysInvalidIdleConnections() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        when(factory.validate(mc)).thenReturn(false);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        pool.release(pool.get());
+
+        assertEquals(pool.validateAvailables(), 1);
+        assertEquals(pool.getCurrentFree(), 0);
+        verify(factory).destroy(mc);
+    }
+
+    @Test
+    public void testEvictedConnectionIsReplacedOnRelease() throws Exception {
+        IManagedConnection other = mock(IManagedConnection.class);
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc, other);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.setPoolMax(1);
+        pool.setPoolMin(1);
+        pool.start();
+        IManagedConnection busy = pool.get();
+
+        assertEquals(pool.evict(), 1);
+        // No room for a replacement while the evicted connection is used
+        verify(factory).create(any(UsernamePasswordInfo.class));
+
+        pool.release(busy);
+        verify(factory).destroy(mc);
+        assertEquals(pool.getConnections().size(), 1);
+        assertEquals(pool.getCurrentFree(), 1);
+        assertSame(pool.get(), other);
+    }
+
+    @Test
+    public void testInvalidConnectionIsRemovedWhenBorrowed() throws Exception {
+        IManagedConnection other = mock(IManagedConnection.class);
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc, other);
+        when(factory.validate(mc)).thenReturn(false);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        pool.release(pool.get());
+
+        assertSame(pool.get(), other);
+        verify(factory).destroy(mc);
+        assertEquals(pool.getConnections().size(), 1);
+        assertTrue(pool.getConnections().contains(other));
+    }
+
+    @Test
+    public void testDrainWaitsForBorrowedConnections() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        final ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        final IManagedConnection busy = pool.get();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                Thread.sleep(50);
+                pool.release(busy);
+                return null;
+            }
+        });
+
+        assertEquals(pool.drain(5000), 0);
+        assertTrue(pool.isDraining());
+        verify(factory).destroy(mc);
+        try {
+            pool.get();
+            fail();
+        } catch (SQLException e) {
+            // Expected: no more connections once drained
+        }
+        verify(lifecycle).waiterRejectedDrain();
+        verify(lifecycle, never()).waiterRejectedOverflow();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDrainTimeout() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        pool.get();
+
+        assertEquals(pool.drain(50), 1);
+        verify(factory, never()).destroy(mc);
+    }
+
+    @Test
+    public void testConnectionsSnapshotFollowsTheChanges() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+        assertTrue(pool.getConnections().isEmpty());
+
+        IManagedConnection busy = pool.get();
+        assertEquals(pool.getConnections().size(), 1);
+        assertEquals(pool.getCurrentOpened(), 1);
+
+        pool.discard(busy);
+        assertTrue(pool.getConnections().isEmpty());
+        assertEquals(pool.getCurrentOpened(), 0);
+    }
+
+    @Test
+    public void testGetNotifiesColdBorrow() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.start();
+
+        pool.get();
+
+        verify(lifecycle).connectionBorrowed(false);
+    }
+
+    @Test
+    public void testNewConnectionsAreWarmedUpBeforeBeingAvailable() throws Exception {
+        when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
+        when(factory.validate(mc)).thenReturn(true);
+        when(mc.warmUp(any(List.class), anyLong())).thenReturn(1);
+        when(mc.isWarmedUp()).thenReturn(true);
+        HotStatements hot = new HotStatements();
+        hot.record(StatementKey.prepared("SELECT A FROM T"));
+
+        ManagedConnectionPool pool = new ManagedConnectionPool(log, factory);
+        pool.setPoolLifecycleListener(lifecycle);
+        pool.setPreparedStatementCacheSize(10);
+        pool.setHotStatements(hot);
+        pool.setWarmUpSize(5);
+        pool.setPoolMin(1);
+        pool.start();
+
+        // Wait for the background warm up
+        for (int i = 0; i < 100 && pool.getCurrentFree() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(pool.getCurrentFree(), 1);
+        verify(mc).warmUp(any(List.class), eq(ManagedConnectionPool.DEFAULT_WARM_UP_TIMEOUT));
+        verify(mc).notifyWarmedUp();
+
+        assertEquals(pool.get(), mc);
+        verify(lifecycle).connectionBorrowed(true);
+        pool.stop();
+    }
+
     @Test
     public void testGetWaitTimeout() throws Exception {
         when(factory.create(any(UsernamePasswordInfo.class))).thenReturn(mc);
@@ -13,7 +13,14 @@ package com.peergreen.jdbc.internal.cm.stat;
 
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * User: guillaume
@@ -66,4 +73,30 @@ public class CounterTestCase {
         counter.update(-25);
         assertEquals(counter.getMaximum(), 30);
     }
+
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        final Counter counter = new Counter();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.update(1);
+                        counter.update(-1);
+                    }
+                    counter.update(1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(counter.getLatest(), 4);
+        assertTrue(counter.getMaximum() <= 8);
+    }
 }
@@ -11,14 +11,18 @@
 
 package com.peergreen.jdbc.internal.cm.stat;
 
+import com.peergreen.jdbc.internal.cm.StatementKey;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.transaction.Transaction;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * User: guillaume
@@ -45,12 +49,26 @@ public class DataSourceStatisticsListenerTestCase {
         Duration duration = statistics.getWaitedTime();
 
         assertEquals(duration.getTotal(), 0);
-        statistics.waiterStopWaiting(42, false);
+        statistics.waiterStopWaiting(TimeUnit.MILLISECONDS.toNanos(42), false);
         assertEquals(duration.getTotal(), 42);
-        statistics.waiterStopWaiting(12, false);
+        statistics.waiterStopWaiting(TimeUnit.MILLISECONDS.toNanos(12), false);
         assertEquals(duration.getTotal(), 54);
     }
 
+    @Test
+    public void testGetWaitedTimeHistogram() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.waiterStopWaiting(TimeUnit.MICROSECONDS.toNanos(300), false);
+        statistics.waiterStopWaiting(TimeUnit.MILLISECONDS.toNanos(12), true);
+
+        Histogram histogram = statistics.getWaitedTimeHistogram();
+        assertEquals(histogram.getCount(), 2);
+        assertTrue(histogram.getPercentile(50) >= TimeUnit.MICROSECONDS.toNanos(300));
+        assertTrue(histogram.getPercentile(50) < TimeUnit.MICROSECONDS.toNanos(310));
+        assertTrue(histogram.getPercentile(99) >= TimeUnit.MILLISECONDS.toNanos(12));
+    }
+
     @Test
     public void testGetBusy() throws Exception {
         DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
@@ -153,6 +171,16 @@ public class DataSourceStatisticsListenerTestCase {
         assertEquals(increment.getValue(), 3);
     }
 
+    @Test
+    public void testDrainRejectionIsNotAnOverflow() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.waiterRejectedDrain();
+        statistics.waiterRejectedDrain();
+        assertEquals(statistics.getDrainRejection().getValue(), 2);
+        assertEquals(statistics.getOverflowRejection().getValue(), 0);
+    }
+
     @Test
     public void testGetFailureRejection() throws Exception {
         DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
@@ -222,30 +250,142 @@ public class DataSourceStatisticsListenerTestCase {
         Increment increment = statistics.getCompletedConnections();
 
         assertEquals(increment.getValue(), 0);
-        statistics.connectionFreedAfterTransactionCompletion(transaction1);
+        statistics.connectionFreedAfterTransactionCompletion(transaction1, 0, 0, 0);
         assertEquals(increment.getValue(), 1);
-        statistics.connectionFreedAfterTransactionCompletion(transaction1);
-        statistics.connectionFreedAfterTransactionCompletion(transaction1);
+        statistics.connectionFreedAfterTransactionCompletion(transaction1, 0, 0, 0);
+        statistics.connectionFreedAfterTransactionCompletion(transaction1, 0, 0, 0);
         assertEquals(increment.getValue(), 3);
     }
 
     @Test
     public void testGetPerTransactionConnections() throws Exception {
         DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
-        PartitionIncrement partition = statistics.getPerTransactionConnections();
+        Distribution distribution = statistics.getPerTransactionConnections();
 
         statistics.connectionReusedInSameTransaction(transaction1);
-        assertEquals(partition.getAverage(), 1d);
-        statistics.connectionReusedInSameTransaction(transaction1);
-        statistics.connectionReusedInSameTransaction(transaction1);
-        statistics.connectionReusedInSameTransaction(transaction2);
-        assertEquals(partition.getAverage(), 2d);
+        // Only completed transactions are aggregated
+        assertEquals(distribution.getCount(), 0);
+        assertEquals(distribution.getAverage(), 0d);
+
+        statistics.connectionFreedAfterTransactionCompletion(transaction2, 1, 0, 0);
+        assertEquals(distribution.getAverage(), 1d);
+        statistics.connectionFreedAfterTransactionCompletion(transaction1, 3, 0, 0);
+        assertEquals(distribution.getAverage(), 2d);
+
+        assertEquals(distribution.getCount(), 2);
+        assertEquals(distribution.getMaximum(), 3);
+        assertEquals(distribution.getPercentile(100), 3);
+    }
+
+    @Test
+    public void testStatementCacheStatisticsPerKind() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.statementCacheMiss(StatementKey.Kind.PREPARED);
+        statistics.statementCacheHit(StatementKey.Kind.PREPARED);
+        statistics.statementCacheHit(StatementKey.Kind.PREPARED);
+        statistics.statementCacheMiss(StatementKey.Kind.CALLABLE);
+        statistics.statementCacheBusy(StatementKey.Kind.PREPARED);
+
+        assertEquals(statistics.getPreparedStatementHits().getValue(), 2);
+        assertEquals(statistics.getPreparedStatementMisses().getValue(), 1);
+        assertEquals(statistics.getCallableStatementHits().getValue(), 0);
+        assertEquals(statistics.getCallableStatementMisses().getValue(), 1);
+        assertEquals(statistics.getPreparedStatementBusy().getValue(), 1);
+        assertEquals(statistics.getCallableStatementBusy().getValue(), 0);
+    }
+
+    @Test
+    public void testWarmAndColdBorrows() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.connectionBorrowed(false);
+        statistics.connectionBorrowed(true);
+        statistics.connectionBorrowed(true);
+
+        assertEquals(statistics.getWarmBorrows().getValue(), 2);
+        assertEquals(statistics.getColdBorrows().getValue(), 1);
+    }
+
+    @Test
+    public void testResourcesAutoClosed() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
 
-        statistics.connectionFreedAfterTransactionCompletion(transaction2);
-        assertEquals(partition.getAverage(), 3d);
-        statistics.connectionFreedAfterTransactionCompletion(transaction1);
-        assertEquals(partition.getAverage(), 0d);
+        statistics.resourcesAutoClosed(2, 0);
+        statistics.resourcesAutoClosed(1, 3);
 
-        assertEquals(partition.getMaximum(), 3);
+        assertEquals(statistics.getAutoClosedStatements().getValue(), 3);
+        assertEquals(statistics.getAutoClosedResultSets().getValue(), 3);
+        statistics.sample();
+        statistics.resourcesAutoClosed(1, 0);
+        statistics.sample();
+        assertEquals(statistics.getAutoClosedStatements().getValue(1), 1);
+        assertEquals(statistics.getAutoClosedResultSets().getValue(1), 0);
+    }
+
+    @Test
+    public void testHeldTimeIsSplitBetweenStatementsAndIdle() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.connectionReleased(null, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(30));
+        statistics.connectionReleased(null, TimeUnit.MILLISECONDS.toNanos(20), TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(statistics.getHeldTime().getTotal(), 120);
+        assertEquals(statistics.getHeldTime().getMaximum(), 100);
+        assertEquals(statistics.getIdleHeldTime().getTotal(), 70);
+        assertEquals(statistics.getIdleHeldTime().getMinimum(), 0);
+        assertEquals(statistics.getHeldTimeHistogram().getCount(), 2);
+        assertTrue(statistics.getIdleHeldTimeHistogram().getPercentile(100) >= TimeUnit.MILLISECONDS.toNanos(70));
+    }
+
+    @Test
+    public void testTransactionHeldTimeIsRecordedOnCompletion() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.connectionFreedAfterTransactionCompletion(transaction1, 1, 100, 40);
+        statistics.connectionFreedAfterTransactionCompletion(transaction2, 0, 300, 0);
+
+        assertEquals(statistics.getTransactionHeldTime().getCount(), 2);
+        assertEquals(statistics.getTransactionHeldTime().getAverage(), 200d);
+        assertEquals(statistics.getTransactionHeldTime().getMaximum(), 300);
+        assertEquals(statistics.getTransactionIdleHeldTime().getMaximum(), 40);
+    }
+
+    @Test
+    public void testWindowsOnlyCoverCompletedPeriods() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+
+        statistics.connectionServed();
+        statistics.sample();
+        statistics.connectionServed();
+        statistics.connectionServed();
+        statistics.sample();
+        statistics.connectionServed();
+
+        assertEquals(statistics.getServedConnections().getValue(), 4);
+        assertEquals(statistics.getServedConnections().getValue(1), 2);
+        assertEquals(statistics.getServedConnections().getValue(5), 3);
+        assertTrue(statistics.getPeriodSeconds(5) >= statistics.getPeriodSeconds(1));
+    }
+
+    @Test
+    public void testResetReturnsASnapshot() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        statistics.connectionServed();
+        statistics.connectionServed();
+        statistics.busyConnections(3);
+        statistics.resourcesAutoClosed(2, 0);
+        statistics.sample();
+
+        Map<String, Long> snapshot = statistics.reset();
+
+        assertEquals(snapshot.get("servedConnections"), Long.valueOf(2));
+        assertEquals(snapshot.get("busyMaximum"), Long.valueOf(3));
+        assertEquals(snapshot.get("autoClosedStatements"), Long.valueOf(2));
+        assertEquals(statistics.getServedConnections().getValue(), 0);
+        assertEquals(statistics.getServedConnections().getValue(1), 0);
+        assertEquals(statistics.getAutoClosedStatements().getValue(), 0);
+        // Gauges keep their level
+        assertEquals(statistics.getBusy().getValue(), 3);
     }
 }
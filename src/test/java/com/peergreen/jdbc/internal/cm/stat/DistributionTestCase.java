@@ -0,0 +1,56 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Checks the streaming aggregate.
+ */
+public class DistributionTestCase {
+    @Test
+    public void testEmptyDistribution() throws Exception {
+        Distribution distribution = new Distribution();
+        assertEquals(distribution.getCount(), 0);
+        assertEquals(distribution.getAverage(), 0d);
+        assertEquals(distribution.getMaximum(), 0);
+        assertEquals(distribution.getPercentile(99), 0);
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        Distribution distribution = new Distribution();
+        distribution.update(0);
+        distribution.update(2);
+        distribution.update(4);
+
+        assertEquals(distribution.getCount(), 3);
+        assertEquals(distribution.getAverage(), 2d);
+        assertEquals(distribution.getMaximum(), 4);
+        assertEquals(distribution.getPercentile(50), 2);
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        Distribution distribution = new Distribution();
+        distribution.update(10);
+        distribution.sample();
+        distribution.update(2);
+        distribution.sample();
+
+        assertEquals(distribution.getAverage(1), 2d);
+        assertEquals(distribution.getMaximum(1), 2);
+        assertEquals(distribution.getAverage(5), 6d);
+    }
+}
@@ -13,6 +13,11 @@ package com.peergreen.jdbc.internal.cm.stat;
 
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
@@ -93,4 +98,67 @@ public class DurationTestCase {
         Duration duration = new Duration();
         assertEquals(duration.getUnit(), TimeUnit.MILLISECONDS);
     }
+
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        final Duration duration = new Duration();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 1; j <= 1000; j++) {
+                        duration.update(j);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(duration.getTotal(), 4 * 500500);
+        assertEquals(duration.getMinimum(), 1);
+        assertEquals(duration.getMaximum(), 1000);
+        assertEquals(duration.getAverage(), 500.5d);
+    }
+
+    @Test
+    public void testWindowCoversTheLatestCompletedPeriods() throws Exception {
+        Duration duration = new Duration();
+
+        duration.update(100);
+        duration.sample();
+        duration.update(10);
+        duration.update(30);
+        duration.sample();
+        // Current period, not in the windows yet
+        duration.update(1000);
+
+        assertEquals(duration.getCount(1), 2);
+        assertEquals(duration.getTotal(1), 40);
+        assertEquals(duration.getMaximum(1), 30);
+        assertEquals(duration.getAverage(1), 20d);
+        assertEquals(duration.getCount(5), 3);
+        assertEquals(duration.getMaximum(5), 100);
+        assertEquals(duration.getMinimum(5), 10);
+    }
+
+    @Test
+    public void testResetReturnsPreviousValues() throws Exception {
+        Duration duration = new Duration();
+        duration.update(10);
+        duration.update(20);
+        duration.sample();
+
+        Duration previous = duration.reset();
+
+        assertEquals(previous.getTotal(), 30);
+        assertEquals(previous.getMaximum(), 20);
+        assertEquals(duration.getTotal(), 0);
+        assertEquals(duration.getMaximum(), Long.MIN_VALUE);
+        assertEquals(duration.getCount(1), 0);
+    }
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the precision of the log-linear histogram.
+ */
+public class HistogramTestCase {
+
+    @Test
+    public void testEmptyHistogram() throws Exception {
+        Histogram histogram = new Histogram();
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getPercentile(99), 0);
+    }
+
+    @Test
+    public void testSmallValuesAreExact() throws Exception {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.update(i);
+        }
+        assertEquals(histogram.getCount(), 50);
+        assertEquals(histogram.getPercentile(50), 25);
+        assertEquals(histogram.getPercentile(90), 45);
+        assertEquals(histogram.getPercentile(100), 50);
+    }
+
+    @Test
+    public void testPercentilesAreWithinPrecision() throws Exception {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.update(i * 1000L);
+        }
+        assertWithinPrecision(histogram.getPercentile(50), 50000 * 1000L);
+        assertWithinPrecision(histogram.getPercentile(90), 90000 * 1000L);
+        assertWithinPrecision(histogram.getPercentile(99), 99000 * 1000L);
+        assertWithinPrecision(histogram.getPercentile(99.9), 99900 * 1000L);
+    }
+
+    @Test
+    public void testBucketsCoverAllValues() throws Exception {
+        long[] values = {0, 1, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = Histogram.index(value);
+            assertTrue(Histogram.highest(index) >= value);
+            if (index > 0) {
+                assertTrue(Histogram.highest(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() throws Exception {
+        Histogram histogram = new Histogram();
+        histogram.update(-5);
+        assertEquals(histogram.getPercentile(50), 0);
+    }
+
+    @Test
+    public void testWindowPercentiles() throws Exception {
+        Histogram histogram = new Histogram();
+        histogram.update(1000000);
+        histogram.sample();
+        for (int i = 1; i <= 10; i++) {
+            histogram.update(i);
+        }
+        histogram.sample();
+        histogram.update(5000000);
+
+        assertEquals(histogram.getCount(1), 10);
+        assertEquals(histogram.getPercentile(100, 1), 10);
+        assertEquals(histogram.getCount(15), 11);
+        assertWithinPrecision(histogram.getPercentile(100, 15), 1000000);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        Histogram histogram = new Histogram();
+        histogram.update(42);
+        histogram.sample();
+
+        Histogram previous = histogram.reset();
+
+        assertEquals(previous.getPercentile(50), 42);
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getCount(1), 0);
+    }
+
+    private static void assertWithinPrecision(final long actual, final long expected) {
+        assertTrue(actual >= expected, actual + " < " + expected);
+        assertTrue(actual <= expected * 1.032, actual + " > " + expected + " + 3.2%");
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the thresholds and the rate limiting of the saturation alarms.
+ */
+public class SaturationMonitorTestCase {
+
+    @Test
+    public void testNoAlarmBelowThresholds() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        SaturationMonitor monitor = new SaturationMonitor(statistics);
+        monitor.setWaitersThreshold(2);
+        monitor.setBusyThreshold(80);
+        statistics.waiterStartWaiting();
+        statistics.busyConnections(8);
+
+        RecordingListener listener = new RecordingListener();
+        monitor.check(10, 1000, listener);
+        assertTrue(listener.alarms.isEmpty());
+    }
+
+    @Test
+    public void testAlarmsAreRateLimited() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        SaturationMonitor monitor = new SaturationMonitor(statistics);
+        monitor.setWaitersThreshold(2);
+        monitor.setPeriod(10, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            statistics.waiterStartWaiting();
+        }
+
+        RecordingListener listener = new RecordingListener();
+        monitor.check(10, 1000, listener);
+        monitor.check(10, 2000, listener);
+        assertEquals(listener.alarms.size(), 1);
+        assertEquals(listener.alarms.get(0), SaturationMonitor.Alarm.WAITERS);
+        assertEquals(listener.values.get(0).longValue(), 3);
+
+        monitor.check(10, 11000, listener);
+        assertEquals(listener.alarms.size(), 2);
+    }
+
+    @Test
+    public void testBusyPercentOfPoolMax() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        SaturationMonitor monitor = new SaturationMonitor(statistics);
+        monitor.setBusyThreshold(80);
+        statistics.busyConnections(9);
+
+        RecordingListener listener = new RecordingListener();
+        monitor.check(10, 1000, listener);
+        assertEquals(listener.alarms.get(0), SaturationMonitor.Alarm.BUSY);
+        assertEquals(listener.values.get(0).longValue(), 90);
+    }
+
+    @Test
+    public void testWaitTimeOnlyConsidersRecentWaits() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        statistics.waiterStopWaiting(TimeUnit.SECONDS.toNanos(5), false);
+        SaturationMonitor monitor = new SaturationMonitor(statistics);
+        monitor.setWaitTimeThreshold(100, TimeUnit.MILLISECONDS);
+
+        RecordingListener listener = new RecordingListener();
+        monitor.check(10, 1000, listener);
+        assertTrue(listener.alarms.isEmpty());
+
+        statistics.waiterStopWaiting(TimeUnit.MILLISECONDS.toNanos(500), false);
+        monitor.check(10, 2000, listener);
+        assertEquals(listener.alarms.get(0), SaturationMonitor.Alarm.WAIT_TIME);
+    }
+
+    @Test
+    public void testWaitTimeIgnoresWaitsWhileDisabled() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        SaturationMonitor monitor = new SaturationMonitor(statistics);
+        RecordingListener listener = new RecordingListener();
+        monitor.check(10, 1000, listener);
+
+        statistics.waiterStopWaiting(TimeUnit.SECONDS.toNanos(5), false);
+        monitor.setWaitTimeThreshold(100, TimeUnit.MILLISECONDS);
+        monitor.check(10, 2000, listener);
+        assertTrue(listener.alarms.isEmpty());
+
+        statistics.waiterStopWaiting(TimeUnit.MILLISECONDS.toNanos(500), false);
+        monitor.check(10, 3000, listener);
+        assertEquals(listener.alarms.get(0), SaturationMonitor.Alarm.WAIT_TIME);
+    }
+
+    @Test
+    public void testRejectionsSinceThePreviousCheck() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        SaturationMonitor monitor = new SaturationMonitor(statistics);
+        statistics.waiterRejectedTimeout();
+        statistics.waiterRejectedTimeout();
+
+        RecordingListener listener = new RecordingListener();
+        monitor.check(10, 1000, listener);
+        assertEquals(listener.alarms.get(0), SaturationMonitor.Alarm.TIMEOUT_REJECTION);
+        assertEquals(listener.values.get(0).longValue(), 2);
+
+        // No new rejection
+        monitor.check(10, 100000, listener);
+        assertEquals(listener.alarms.size(), 1);
+    }
+
+    private static class RecordingListener implements SaturationMonitor.AlarmListener {
+        private final List<SaturationMonitor.Alarm> alarms = new ArrayList<>();
+        private final List<Long> values = new ArrayList<>();
+
+        @Override
+        public void alarmRaised(final SaturationMonitor.Alarm alarm, final long value, final long threshold) {
+            alarms.add(alarm);
+            values.add(value);
+        }
+    }
+}
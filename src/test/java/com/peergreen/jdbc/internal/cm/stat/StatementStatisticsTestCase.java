@@ -0,0 +1,113 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.stat;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the per SQL execution statistics.
+ */
+public class StatementStatisticsTestCase {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testExecutionsAreAggregatedPerStatement() throws Exception {
+        StatementStatistics statistics = new StatementStatistics(100);
+        statistics.statementExecuted("SELECT A FROM T WHERE B = ?", 2 * MS, 0);
+        statistics.rowsFetched("SELECT A FROM T WHERE B = ?", 5);
+        statistics.statementExecuted("SELECT A FROM T WHERE B = ?", 6 * MS, 0);
+        statistics.statementFailed("SELECT A FROM T WHERE B = ?", 1 * MS);
+
+        List<SqlExecutionStatistics> top = statistics.getTopByTotalTime(10);
+        assertEquals(top.size(), 1);
+        SqlExecutionStatistics select = top.get(0);
+        assertEquals(select.getExecutions(), 3);
+        assertEquals(select.getErrors(), 1);
+        assertEquals(select.getTotalTime(), 9d);
+        assertEquals(select.getMaximumTime(), 6d);
+        assertEquals(select.getAverageTime(), 3d);
+        assertEquals(select.getFetchedRows(), 5);
+        assertEquals(select.getTotalTimeError(), 0d);
+    }
+
+    @Test
+    public void testTopIsSortedByTotalTime() throws Exception {
+        StatementStatistics statistics = new StatementStatistics(100);
+        statistics.statementExecuted("UPDATE T SET A = ?", 3 * MS, 2);
+        statistics.statementExecuted("DELETE FROM T", 10 * MS, 7);
+        statistics.statementExecuted("SELECT A FROM T", 1 * MS, 0);
+
+        List<SqlExecutionStatistics> top = statistics.getTopByTotalTime(2);
+        assertEquals(top.size(), 2);
+        assertEquals(top.get(0).getSql(), "DELETE FROM T");
+        assertEquals(top.get(0).getUpdatedRows(), 7);
+        assertEquals(top.get(1).getSql(), "UPDATE T SET A = ?");
+    }
+
+    @Test
+    public void testSizeIsBoundedAndHeavyHittersAreKept() throws Exception {
+        StatementStatistics statistics = new StatementStatistics(160);
+        statistics.statementExecuted("SELECT HEAVY FROM T", 1000 * MS, 0);
+        for (int i = 0; i < 500; i++) {
+            statistics.statementExecuted("SELECT C" + i + " FROM T", MS, 0);
+        }
+
+        assertTrue(statistics.getSize() <= 160);
+        assertTrue(statistics.getEvictions() > 0);
+        SqlExecutionStatistics heaviest = statistics.getTopByTotalTime(1).get(0);
+        assertEquals(heaviest.getSql(), "SELECT HEAVY FROM T");
+        assertEquals(heaviest.getTotalTime(), 1000d);
+    }
+
+    @Test
+    public void testEvictedStatementTimeIsInherited() throws Exception {
+        // A single statement per stripe
+        StatementStatistics statistics = new StatementStatistics(1);
+        String first = "SELECT 1";
+        String second = null;
+        statistics.statementExecuted(first, 4 * MS, 0);
+        // Find another statement falling in the same stripe
+        for (int i = 0; second == null; i++) {
+            String candidate = "SELECT C" + i;
+            statistics.statementExecuted(candidate, MS, 0);
+            if (statistics.getEvictions() > 0) {
+                second = candidate;
+            }
+        }
+
+        SqlExecutionStatistics replacing = null;
+        for (SqlExecutionStatistics candidate : statistics.getTopByTotalTime(100)) {
+            if (candidate.getSql().equals(second)) {
+                replacing = candidate;
+            }
+        }
+        assertEquals(replacing.getTotalTimeError(), 4d);
+        assertEquals(replacing.getTotalTime(), 5d);
+        assertEquals(replacing.getExecutions(), 1);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        StatementStatistics statistics = new StatementStatistics(100);
+        statistics.statementExecuted("SELECT A FROM T", MS, 0);
+        statistics.reset();
+        assertEquals(statistics.getSize(), 0);
+        assertTrue(statistics.getTopByTotalTime(10).isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.statement;
+
+import com.peergreen.jdbc.internal.cm.ConnectionNotifier;
+import com.peergreen.jdbc.internal.cm.StatementKey;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.CallableStatement;
+import java.sql.Types;
+
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ReusableCallableStatementTestCase {
+
+    private static final StatementKey KEY = StatementKey.callable("{call COUNT_CLIENTS(?)}");
+
+    @Mock
+    private CallableStatement delegate;
+    @Mock
+    private ConnectionNotifier notifier;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testRegisterOutParameterIsDelegated() throws Exception {
+        ReusableCallableStatement cs = new ReusableCallableStatement(delegate, notifier, KEY);
+        cs.registerOutParameter(1, Types.INTEGER);
+
+        verify(delegate).registerOutParameter(1, Types.INTEGER);
+        assertTrue(cs.hasOutParameters());
+    }
+
+    @Test
+    public void testReuseResetsOutParameters() throws Exception {
+        ReusableCallableStatement cs = new ReusableCallableStatement(delegate, notifier, KEY);
+        cs.registerOutParameter(1, Types.INTEGER);
+        cs.close();
+        cs.reuse();
+
+        verify(delegate).clearParameters();
+        assertFalse(cs.hasOutParameters());
+    }
+
+    @Test
+    public void testCloseSendsNotifications() throws Exception {
+        ReusableCallableStatement cs = new ReusableCallableStatement(delegate, notifier, KEY);
+        cs.close();
+        verify(notifier).notifyPsClose(cs);
+    }
+}
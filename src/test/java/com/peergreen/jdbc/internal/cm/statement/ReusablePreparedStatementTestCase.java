@@ -12,6 +12,9 @@
 package com.peergreen.jdbc.internal.cm.statement;
 
 import com.peergreen.jdbc.internal.cm.ConnectionNotifier;
+import com.peergreen.jdbc.internal.cm.cache.QueryKey;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import com.peergreen.jdbc.internal.cm.event.SlowQueryLog;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
@@ -20,9 +23,16 @@ import org.testng.annotations.Test;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -36,6 +46,12 @@ public class ReusablePreparedStatementTestCase {
     private PreparedStatement delegate;
     @Mock
     private ConnectionNotifier notifier;
+    @Mock
+    private QueryResultCache cache;
+    @Mock
+    private ResultSet cached;
+    @Mock
+    private ResultSet results;
 
     @BeforeMethod
     public void setUp() throws Exception {
@@ -70,6 +86,18 @@ public class ReusablePreparedStatementTestCase {
         verify(notifier, only()).notifyPsClose(ps);
     }
 
+    @Test
+    public void testCloseClosesTheOpenedResultSet() throws Exception {
+        when(delegate.executeQuery()).thenReturn(results);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS");
+        ResultSet rs = ps.executeQuery();
+        verify(notifier).notifyResultSetOpened(rs);
+
+        ps.close();
+        verify(results).close();
+        verify(notifier).notifyResultSetClosed(rs);
+    }
+
     @Test
     public void testForgetClosesTheInternalPreparedStatement() throws Exception {
         ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS");
@@ -77,12 +105,24 @@ public class ReusablePreparedStatementTestCase {
         verify(delegate).close();
     }
 
+    @Test
+    public void testUnwrapReturnsThePhysicalStatement() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS");
+        assertSame(ps.unwrap(PreparedStatement.class), ps);
+        assertFalse(ps.isUnwrapped());
+
+        assertTrue(ps.isWrapperFor(delegate.getClass()));
+        assertSame(ps.unwrap(delegate.getClass()), delegate);
+        assertTrue(ps.isUnwrapped());
+    }
+
     @Test
     public void testReuseNotChanged() throws Exception {
         ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS");
         ps.reuse();
-        verify(delegate).clearParameters();
-        verify(delegate).clearWarnings();
+        verify(delegate, never()).clearParameters();
+        verify(delegate, never()).clearWarnings();
+        verify(delegate, never()).clearBatch();
     }
 
     @Test
@@ -93,9 +133,144 @@ public class ReusablePreparedStatementTestCase {
         ps.reuse();
 
         verify(delegate).clearBatch();
-        verify(delegate).setFetchDirection(ResultSet.FETCH_FORWARD);
-        verify(delegate).setMaxFieldSize(ReusablePreparedStatement.NO_LIMIT);
+        verify(delegate, never()).setFetchDirection(ResultSet.FETCH_FORWARD);
+        verify(delegate, never()).setMaxFieldSize(ReusablePreparedStatement.NO_LIMIT);
+        verify(delegate, never()).setMaxRows(ReusablePreparedStatement.NO_LIMIT);
+        verify(delegate, never()).setQueryTimeout(ReusablePreparedStatement.NO_LIMIT);
+    }
+
+    @Test
+    public void testReuseResetsOnlyChangedProperties() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS");
+        ps.setMaxRows(10);
+        ps.setFetchSize(500);
+        ps.setPoolable(false);
+        ps.reuse();
+
+        verify(delegate).setMaxRows(ReusablePreparedStatement.NO_LIMIT);
+        verify(delegate).setFetchSize(ReusablePreparedStatement.NO_LIMIT);
+        verify(delegate).setPoolable(true);
+        verify(delegate, never()).clearBatch();
+        verify(delegate, never()).setQueryTimeout(ReusablePreparedStatement.NO_LIMIT);
+
+        // Nothing left to reset
+        ps.reuse();
         verify(delegate).setMaxRows(ReusablePreparedStatement.NO_LIMIT);
-        verify(delegate).setQueryTimeout(ReusablePreparedStatement.NO_LIMIT);
+    }
+
+    @Test
+    public void testReuseRestoresDefaultFetchSize() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS");
+        ps.setDefaultFetchSize(100);
+        verify(delegate).setFetchSize(100);
+
+        ps.setFetchSize(10);
+        ps.reuse();
+        verify(delegate, times(2)).setFetchSize(100);
+    }
+
+    @Test
+    public void testReuseClearsWarningsAfterExecution() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "DELETE FROM CLIENTS");
+        ps.executeUpdate();
+        ps.reuse();
+        verify(delegate).clearWarnings();
+    }
+
+    @Test
+    public void testReuseClearsPartiallyBoundParameters() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE ID = ? AND NAME = ?");
+        ps.setInt(1, 42);
+        ps.reuse();
+        verify(delegate).clearParameters();
+    }
+
+    @Test
+    public void testReuseKeepsFullyBoundParameters() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE ID = ? AND NAME = '?'");
+        ps.setInt(1, 42);
+        ps.reuse();
+        verify(delegate, never()).clearParameters();
+    }
+
+    @Test
+    public void testReuseForgetsFullyBoundParameters() throws Exception {
+        when(cache.isCacheable("SELECT * FROM CLIENTS WHERE PHOTO = ?")).thenReturn(true);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE PHOTO = ?", cache);
+        ps.setBinaryStream(1, null);
+        ps.reuse();
+        verify(delegate, never()).clearParameters();
+
+        // The stream bound by the previous user no longer prevents caching
+        ps.setInt(1, 42);
+        ps.executeQuery();
+        verify(cache).get(new QueryKey("SELECT * FROM CLIENTS WHERE PHOTO = ?", new Object[] {42}));
+    }
+
+    @Test
+    public void testSlowParametersModeIsReadOnExecution() throws Exception {
+        when(notifier.isSlow(anyLong())).thenReturn(true);
+        when(notifier.getSlowParameters()).thenReturn(SlowQueryLog.Parameters.NONE);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE ID = ?");
+
+        // Slow query log reconfigured while the statement is cached
+        when(notifier.getSlowParameters()).thenReturn(SlowQueryLog.Parameters.VALUES);
+        ps.setInt(1, 42);
+        ps.executeQuery();
+
+        verify(notifier).notifySlowStatement(eq("SELECT * FROM CLIENTS WHERE ID = ?"), anyLong(), eq("[42]"));
+    }
+
+    @Test
+    public void testCachedResultIsReturnedWithoutExecution() throws Exception {
+        when(cache.isCacheable("SELECT * FROM CLIENTS WHERE ID = ?")).thenReturn(true);
+        when(cache.get(new QueryKey("SELECT * FROM CLIENTS WHERE ID = ?", new Object[] {42}))).thenReturn(cached);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE ID = ?", cache);
+        ps.setInt(1, 42);
+
+        assertSame(ps.executeQuery(), cached);
+        verify(delegate, never()).executeQuery();
+    }
+
+    @Test
+    public void testStreamParameterBypassesCache() throws Exception {
+        when(cache.isCacheable("SELECT * FROM CLIENTS WHERE PHOTO = ?")).thenReturn(true);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE PHOTO = ?", cache);
+        ps.setBinaryStream(1, null);
+        ps.executeQuery();
+
+        verify(cache, never()).get(any(QueryKey.class));
+        verify(delegate).executeQuery();
+    }
+
+    @Test
+    public void testUpdateInvalidatesCache() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "UPDATE CLIENTS SET NAME = ?", cache);
+        ps.executeUpdate();
+
+        verify(cache).invalidate(eq("UPDATE CLIENTS SET NAME = ?"));
+        verify(notifier, never()).notifyTransactionalUpdate(any(String.class));
+    }
+
+    @Test
+    public void testTransactionBypassesCache() throws Exception {
+        when(cache.isCacheable("SELECT * FROM CLIENTS WHERE ID = ?")).thenReturn(true);
+        when(notifier.isInTransaction()).thenReturn(true);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "SELECT * FROM CLIENTS WHERE ID = ?", cache);
+        ps.setInt(1, 42);
+        ps.executeQuery();
+
+        verify(cache, never()).get(any(QueryKey.class));
+        verify(delegate).executeQuery();
+    }
+
+    @Test
+    public void testUpdateInTransactionIsNotified() throws Exception {
+        when(notifier.isInTransaction()).thenReturn(true);
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(delegate, notifier, "UPDATE CLIENTS SET NAME = ?", cache);
+        ps.executeUpdate();
+
+        verify(cache).invalidate(eq("UPDATE CLIENTS SET NAME = ?"));
+        verify(notifier).notifyTransactionalUpdate(eq("UPDATE CLIENTS SET NAME = ?"));
     }
 }
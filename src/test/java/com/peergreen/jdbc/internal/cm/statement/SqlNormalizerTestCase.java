@@ -0,0 +1,53 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.cm.statement;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Checks the SQL normalization used to aggregate the execution statistics.
+ */
+public class SqlNormalizerTestCase {
+
+    @Test
+    public void testLiteralsAreReplaced() throws Exception {
+        assertEquals(SqlNormalizer.normalize("SELECT * FROM T WHERE A = 'x''y' AND B = 42 AND C = 1.5"),
+                     "SELECT * FROM T WHERE A = ? AND B = ? AND C = ?");
+    }
+
+    @Test
+    public void testIdentifiersAreKept() throws Exception {
+        assertEquals(SqlNormalizer.normalize("SELECT COL1 FROM \"TABLE 2\" WHERE T2.X = ?"),
+                     "SELECT COL1 FROM \"TABLE 2\" WHERE T2.X = ?");
+    }
+
+    @Test
+    public void testCommentsAndWhitespacesAreRemoved() throws Exception {
+        assertEquals(SqlNormalizer.normalize("SELECT  A\n\tFROM T /* hint */ -- trailing\nWHERE B = 3"),
+                     "SELECT A FROM T WHERE B = ?");
+    }
+
+    @Test
+    public void testSameStatementWithDifferentLiterals() throws Exception {
+        assertEquals(SqlNormalizer.normalize("DELETE FROM T WHERE ID = 1"),
+                     SqlNormalizer.normalize("DELETE FROM T WHERE ID = 2"));
+    }
+
+    @Test
+    public void testCountParameters() throws Exception {
+        assertEquals(SqlNormalizer.countParameters("SELECT * FROM T"), 0);
+        assertEquals(SqlNormalizer.countParameters("SELECT * FROM T WHERE A = ? AND B = ?"), 2);
+        assertEquals(SqlNormalizer.countParameters("{? = call F(?, '?')} -- ?\n/* ? */"), 2);
+    }
+}
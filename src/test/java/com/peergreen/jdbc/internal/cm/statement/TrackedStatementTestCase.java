@@ -0,0 +1,128 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.cm.statement;
+
+import com.peergreen.jdbc.internal.cm.ConnectionNotifier;
+import com.peergreen.jdbc.internal.cm.cache.QueryResultCache;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Updates executed through plain statements invalidate the query result cache.
+ */
+public class TrackedStatementTestCase {
+
+    private static final String QUERY = "SELECT * FROM COUNTRIES WHERE CODE = ?";
+
+    @Mock
+    private Statement statement;
+    @Mock
+    private PreparedStatement query;
+    @Mock
+    private ConnectionNotifier notifier;
+    @Mock
+    private ResultSet results;
+    @Mock
+    private CachedRowSet rows;
+    @Mock
+    private CachedRowSet cursor;
+
+    private QueryResultCache cache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(query.executeQuery()).thenReturn(results);
+        when(rows.createShared()).thenReturn(cursor);
+        cache = new QueryResultCache(10,
+                                     0,
+                                     Collections.singletonList(Pattern.compile("SELECT .* FROM COUNTRIES.*")),
+                                     Arrays.asList("COUNTRIES")) {
+            @Override
+            protected CachedRowSet createRowSet() throws SQLException {
+                return rows;
+            }
+        };
+    }
+
+    @Test
+    public void testUpdateInvalidatesCachedReads() throws Exception {
+        ReusablePreparedStatement ps = new ReusablePreparedStatement(query, notifier, QUERY, cache);
+        ps.setString(1, "FR");
+        ps.executeQuery();
+        ps.executeQuery();
+        verify(query).executeQuery();
+
+        TrackedStatement tracked = new TrackedStatement(statement, notifier, cache);
+        tracked.executeUpdate("UPDATE COUNTRIES SET NAME = 'France' WHERE CODE = 'FR'");
+
+        // The next read goes to the database
+        ps.executeQuery();
+        verify(query, times(2)).executeQuery();
+        verify(notifier, never()).notifyTransactionalUpdate(anyString());
+    }
+
+    @Test
+    public void testUpdateInTransactionIsNotified() throws Exception {
+        when(notifier.isInTransaction()).thenReturn(true);
+        TrackedStatement tracked = new TrackedStatement(statement, notifier, cache);
+        tracked.executeUpdate("UPDATE COUNTRIES SET NAME = 'France' WHERE CODE = 'FR'");
+
+        verify(notifier).notifyTransactionalUpdate(eq("UPDATE COUNTRIES SET NAME = 'France' WHERE CODE = 'FR'"));
+    }
+
+    @Test
+    public void testBatchInvalidatesEachUpdate() throws Exception {
+        when(notifier.isInTransaction()).thenReturn(true);
+        TrackedStatement tracked = new TrackedStatement(statement, notifier, cache);
+        tracked.addBatch("UPDATE COUNTRIES SET NAME = 'France' WHERE CODE = 'FR'");
+        tracked.addBatch("DELETE FROM CLIENTS WHERE ID = 42");
+        tracked.executeBatch();
+        tracked.executeBatch();
+
+        verify(notifier).notifyTransactionalUpdate(eq("UPDATE COUNTRIES SET NAME = 'France' WHERE CODE = 'FR'"));
+        verify(notifier).notifyTransactionalUpdate(eq("DELETE FROM CLIENTS WHERE ID = 42"));
+    }
+
+    @Test
+    public void testBatchIsTimed() throws Exception {
+        when(statement.executeBatch()).thenReturn(new int[] {1, 2});
+        when(notifier.isSlow(anyLong())).thenReturn(true);
+        TrackedStatement tracked = new TrackedStatement(statement, notifier, cache);
+        tracked.addBatch("UPDATE CLIENTS SET NAME = 'Smith' WHERE ID = 42");
+        tracked.addBatch("UPDATE CLIENTS SET NAME = 'Jones' WHERE ID = 43");
+        tracked.executeBatch();
+
+        verify(notifier).notifyStatementExecuted(eq("UPDATE CLIENTS SET NAME = ? WHERE ID = ?"), anyLong(), eq(3L));
+        verify(notifier).notifySlowStatement(eq("UPDATE CLIENTS SET NAME = 'Smith' WHERE ID = 42"), anyLong(), anyString());
+    }
+}
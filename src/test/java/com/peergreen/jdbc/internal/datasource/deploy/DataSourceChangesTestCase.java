@@ -0,0 +1,99 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.peergreen.jdbc.internal.datasource.deploy;
+
+import com.peergreen.jdbc.internal.datasource.Constants;
+import org.testng.annotations.Test;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks how configuration changes are classified between live tunables, identity changes and restarts.
+ */
+public class DataSourceChangesTestCase {
+
+    @Test
+    public void testSameConfigurationIsEmpty() throws Exception {
+        DataSourceChanges changes = DataSourceChanges.between(configuration(), configuration());
+        assertTrue(changes.isEmpty());
+        assertFalse(changes.requiresRestart());
+        assertFalse(changes.isIdentityChanged());
+    }
+
+    @Test
+    public void testTunablesAreAppliedLive() throws Exception {
+        Dictionary<String, String> current = configuration();
+        current.put(Constants.POOL_MAX, "20");
+        current.put(Constants.JDBC_CHECK_LEVEL, "2");
+
+        DataSourceChanges changes = DataSourceChanges.between(configuration(), current);
+        assertEquals(changes.getChanged().size(), 2);
+        assertEquals(changes.getChanged().get(Constants.POOL_MAX), "20");
+        assertFalse(changes.requiresRestart());
+        assertFalse(changes.isIdentityChanged());
+    }
+
+    @Test
+    public void testCredentialsChangeTheIdentity() throws Exception {
+        Dictionary<String, String> current = configuration();
+        current.put(Constants.PASSWORD, "secret");
+
+        DataSourceChanges changes = DataSourceChanges.between(configuration(), current);
+        assertFalse(changes.requiresRestart());
+        assertTrue(changes.isIdentityChanged());
+    }
+
+    @Test
+    public void testDriverPropertyChangesTheIdentity() throws Exception {
+        Dictionary<String, String> current = configuration();
+        current.put("create", "true");
+
+        DataSourceChanges changes = DataSourceChanges.between(configuration(), current);
+        assertFalse(changes.requiresRestart());
+        assertTrue(changes.isIdentityChanged());
+    }
+
+    @Test
+    public void testStartupPropertyRequiresRestart() throws Exception {
+        Dictionary<String, String> current = configuration();
+        current.put(Constants.JDBC_RESULTCACHE_SIZE, "100");
+
+        assertTrue(DataSourceChanges.between(configuration(), current).requiresRestart());
+    }
+
+    @Test
+    public void testRemovedPropertyRequiresRestart() throws Exception {
+        Dictionary<String, String> current = configuration();
+        current.remove(Constants.POOL_MIN);
+
+        DataSourceChanges changes = DataSourceChanges.between(configuration(), current);
+        assertTrue(changes.getRemoved().contains(Constants.POOL_MIN));
+        assertTrue(changes.requiresRestart());
+    }
+
+    private static Dictionary<String, String> configuration() {
+        Dictionary<String, String> properties = new Hashtable<>();
+        properties.put(Constants.DATASOURCE_NAME, "jdbc/test");
+        properties.put(Constants.URL, "jdbc:derby:memory:test");
+        properties.put(Constants.USERNAME, "app");
+        properties.put(Constants.PASSWORD, "app");
+        properties.put(Constants.POOL_MIN, "1");
+        properties.put(Constants.POOL_MAX, "10");
+        return properties;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.metrics;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the file formats and the rotation.
+ */
+public class FileMetricsSinkTestCase {
+
+    @Test
+    public void testLineProtocol() throws Exception {
+        File file = File.createTempFile("metrics", ".txt");
+        FileMetricsSink sink = new FileMetricsSink(file.getPath(), FileMetricsSink.LINE_FORMAT, 1024 * 1024, 1);
+        sink.start();
+        sink.begin("jdbc/My DS", 1000);
+        sink.gauge("jdbc/My DS", "connections.busy", 3);
+        sink.gauge("jdbc/My DS", "waited.time.p99", 1.5d);
+        sink.end("jdbc/My DS");
+        sink.stop();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(lines.size(), 1);
+        assertEquals(lines.get(0), "jdbc,datasource=jdbc/My\\ DS connections.busy=3i,waited.time.p99=1.5 1000000000");
+        file.delete();
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        File file = File.createTempFile("metrics", ".csv");
+        FileMetricsSink sink = new FileMetricsSink(file.getPath(), FileMetricsSink.CSV_FORMAT, 1024 * 1024, 1);
+        sink.start();
+        sink.begin("jdbc/DS", 1000);
+        sink.gauge("jdbc/DS", "connections.busy", 3);
+        sink.counter("jdbc/DS", "connections.served", 42);
+        sink.end("jdbc/DS");
+        sink.stop();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(lines.size(), 2);
+        assertEquals(lines.get(0), "1000,jdbc/DS,connections.busy,3");
+        assertEquals(lines.get(1), "1000,jdbc/DS,connections.served,42");
+        file.delete();
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        File file = File.createTempFile("metrics", ".txt");
+        FileMetricsSink sink = new FileMetricsSink(file.getPath(), FileMetricsSink.LINE_FORMAT, 10, 2);
+        sink.start();
+        for (int i = 0; i < 3; i++) {
+            sink.begin("jdbc/DS", i);
+            sink.gauge("jdbc/DS", "connections.busy", i);
+            sink.end("jdbc/DS");
+        }
+        sink.stop();
+
+        File first = new File(file.getPath() + ".1");
+        File second = new File(file.getPath() + ".2");
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertTrue(Files.readAllLines(first.toPath(), StandardCharsets.UTF_8).get(0).contains("busy=2i"));
+        assertTrue(Files.readAllLines(second.toPath(), StandardCharsets.UTF_8).get(0).contains("busy=1i"));
+        file.delete();
+        first.delete();
+        second.delete();
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2013 Peergreen S.A.S. All rights reserved.
+ * Proprietary and confidential.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.peergreen.jdbc.internal.metrics;
+
+import com.peergreen.jdbc.internal.cm.pool.internal.ManagedConnectionPool;
+import com.peergreen.jdbc.internal.cm.stat.DataSourceStatisticsListener;
+import com.peergreen.jdbc.metrics.MetricsSink;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks the metrics sent to the sinks.
+ */
+public class MetricsPublisherTestCase {
+
+    @Test
+    public void testPublication() throws Exception {
+        DataSourceStatisticsListener statistics = new DataSourceStatisticsListener();
+        statistics.connectionServed();
+        statistics.connectionServed();
+        statistics.waiterRejectedTimeout();
+        RecordingSink sink = new RecordingSink();
+
+        MetricsPublisher publisher = new MetricsPublisher(null, "jdbc/DS", statistics, new ManagedConnectionPool(null, null), Arrays.<MetricsSink>asList(sink));
+        publisher.run();
+
+        assertEquals(sink.calls, Arrays.asList("begin jdbc/DS", "end jdbc/DS"));
+        assertEquals(sink.values.get(MetricsPublisher.CONNECTIONS_SERVED), 2L);
+        assertEquals(sink.values.get(MetricsPublisher.REJECTED_TIMEOUT), 1L);
+        assertEquals(sink.values.get(MetricsPublisher.CONNECTIONS_BUSY), 0L);
+        assertTrue(sink.values.containsKey(MetricsPublisher.WAITED_TIME_P99));
+    }
+
+    @Test
+    public void testNoSink() throws Exception {
+        MetricsPublisher publisher = new MetricsPublisher(null, "jdbc/DS", new DataSourceStatisticsListener(), new ManagedConnectionPool(null, null), new ArrayList<MetricsSink>());
+        publisher.run();
+    }
+
+    private static class RecordingSink implements MetricsSink {
+        private final List<String> calls = new ArrayList<>();
+        private final Map<String, Number> values = new HashMap<>();
+
+        @Override
+        public void begin(final String datasource, final long timestamp) {
+            calls.add("begin " + datasource);
+        }
+
+        @Override
+        public void gauge(final String datasource, final String name, final long value) {
+            values.put(name, value);
+        }
+
+        @Override
+        public void gauge(final String datasource, final String name, final double value) {
+            values.put(name, value);
+        }
+
+        @Override
+        public void counter(final String datasource, final String name, final long value) {
+            values.put(name, value);
+        }
+
+        @Override
+        public void end(final String datasource) {
+            calls.add("end " + datasource);
+        }
+    }
+}